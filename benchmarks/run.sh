@@ -0,0 +1,13 @@
+#!/bin/bash
+
+# Собирает модуль и запускает бенчмарки JMH с выгрузкой результатов в JSON
+# Аргументы передаются JMH: ./run.sh MazeQueryBenchmark -wi 1 -i 3
+# Сравнить два запуска: java -cp target/benchmarks.jar game.bench.CompareResults results/A.json results/B.json
+
+cd "$(dirname "$0")" || exit 1
+mvn -B -q package || exit 1
+
+mkdir -p results
+output="results/jmh-$(date +%Y%m%d-%H%M%S).json"
+java -jar target/benchmarks.jar -rf json -rff "$output" "$@" || exit 1
+echo "Результаты: $output"
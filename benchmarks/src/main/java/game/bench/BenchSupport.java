@@ -0,0 +1,41 @@
+package game.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * Общие помощники бенчмарков
+ */
+final class BenchSupport {
+    private static final PrintStream NULL = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+    });
+    
+    private BenchSupport() {
+    }
+    
+    /**
+     * Выполняет действие с заглушённым System.out и возвращает его результат
+     * Maze печатает строку о генерации на каждый экземпляр, в замерах этот вывод не нужен
+     */
+    static <T> T quietly(Supplier<T> action) {
+        PrintStream out = System.out;
+        System.setOut(NULL);
+        try {
+            return action.get();
+        } finally {
+            System.setOut(out);
+        }
+    }
+    
+    /**
+     * Размер вида "ШxВ" из параметра бенчмарка
+     */
+    static int[] size(String value) {
+        int x = value.indexOf('x');
+        return new int[]{Integer.parseInt(value.substring(0, x)), Integer.parseInt(value.substring(x + 1))};
+    }
+}
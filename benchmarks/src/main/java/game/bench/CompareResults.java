@@ -0,0 +1,215 @@
+package game.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сравнение двух выгрузок JMH в JSON (-rf json): изменение каждого бенчмарка в процентах
+ * Для режима thrpt лучше больше, для остальных (avgt, sample, ss) - меньше.
+ * Код выхода 1, если хотя бы один бенчмарк ухудшился больше порога (по умолчанию 10%)
+ *
+ * java -cp target/benchmarks.jar game.bench.CompareResults results/old.json results/new.json 10
+ */
+public class CompareResults {
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: CompareResults старый.json новый.json [порог, %]");
+            System.exit(2);
+        }
+        Map<String, Result> before = load(args[0]);
+        Map<String, Result> after = load(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "бенчмарк", "было", "стало", "изменение");
+        for (Map.Entry<String, Result> entry : new TreeMap<>(after).entrySet()) {
+            Result now = entry.getValue();
+            Result old = before.get(entry.getKey());
+            if (old == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", now.score, "новый");
+                continue;
+            }
+            // Положительное изменение - улучшение независимо от режима
+            double change = (now.score - old.score) / old.score * 100.0;
+            if (!now.mode.equals("thrpt")) {
+                change = -change;
+            }
+            boolean regression = change < -threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n",
+                entry.getKey(), old.score, now.score, change, regression ? "  УХУДШЕНИЕ" : "");
+        }
+        System.out.println("Ухудшений больше " + threshold + "%: " + regressions);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+    
+    private static final class Result {
+        final String mode;
+        final double score;
+        
+        Result(String mode, double score) {
+            this.mode = mode;
+            this.score = score;
+        }
+    }
+    
+    /**
+     * Результаты по ключу "бенчмарк [параметры] (единицы)"
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Result> load(String file) throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Object item : (List<Object>) new JsonReader(text).read()) {
+            Map<String, Object> run = (Map<String, Object>) item;
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            if (!(metric.get("score") instanceof Number)) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder((String) run.get("benchmark"));
+            Object params = run.get("params");
+            if (params != null) {
+                key.append(' ').append(new TreeMap<>((Map<String, Object>) params));
+            }
+            key.append(" (").append(metric.get("scoreUnit")).append(')');
+            results.put(key.toString(), new Result((String) run.get("mode"), ((Number) metric.get("score")).doubleValue()));
+        }
+        return results;
+    }
+    
+    /**
+     * Минимальный разбор JSON: объекты, массивы, строки, числа, true/false/null
+     * JMH пишет нечисловые оценки строкой "NaN", они читаются как строки
+     */
+    private static final class JsonReader {
+        private final String text;
+        private int pos;
+        
+        JsonReader(String text) {
+            this.text = text;
+        }
+        
+        Object read() {
+            skipSpace();
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    pos += 4;
+                    return Boolean.TRUE;
+                case 'f':
+                    pos += 5;
+                    return Boolean.FALSE;
+                case 'n':
+                    pos += 4;
+                    return null;
+                default:
+                    return readNumber();
+            }
+        }
+        
+        private Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            pos++;
+            skipSpace();
+            if (text.charAt(pos) == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipSpace();
+                String key = readString();
+                skipSpace();
+                expect(':');
+                object.put(key, read());
+                skipSpace();
+                if (text.charAt(pos++) == '}') {
+                    return object;
+                }
+            }
+        }
+        
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            pos++;
+            skipSpace();
+            if (text.charAt(pos) == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(read());
+                skipSpace();
+                if (text.charAt(pos++) == ']') {
+                    return array;
+                }
+            }
+        }
+        
+        private String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    char escaped = text.charAt(pos++);
+                    switch (escaped) {
+                        case 'n':
+                            sb.append('\n');
+                            break;
+                        case 't':
+                            sb.append('\t');
+                            break;
+                        case 'u':
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default:
+                            sb.append(escaped);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        
+        private Double readNumber() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            return Double.valueOf(text.substring(start, pos));
+        }
+        
+        private void expect(char c) {
+            if (text.charAt(pos) != c) {
+                throw new IllegalArgumentException("Ожидался '" + c + "' в позиции " + pos);
+            }
+            pos++;
+        }
+        
+        private void skipSpace() {
+            while (Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
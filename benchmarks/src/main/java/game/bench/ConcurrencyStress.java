@@ -0,0 +1,366 @@
+package game.bench;
+
+import game.model.Direction;
+import game.model.GameState;
+import game.model.Maze;
+import game.model.Player;
+import game.protocol.Snapshot;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Стресс-проверка модели состояния в духе jcstress: несколько потоков-актёров одновременно
+ * пишут и читают Player и GameState, каждый прогон даёт исход, исходы считаются.
+ * Запрещённый исход - ошибка модели (разорванная позиция, потерянное обновление, два победителя,
+ * лабиринт не виден после начала партии, исключение при обходе игроков); с ними main() завершается с кодом 1.
+ * "Интересные" исходы допустимы и показывают, от чего защищает модель: например, getX() и getY()
+ * отдельными вызовами могут вернуть координаты разных ходов, а getState() - нет.
+ * На одном ядре гонки случаются реже: для надёжности запускать на многоядерной машине
+ *
+ * java -cp target/benchmarks.jar game.bench.ConcurrencyStress [--iterations=200000] [--seconds=2]
+ */
+public class ConcurrencyStress {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Maze MAZE = BenchSupport.quietly(() -> new Maze(40, 50, 42L));
+    
+    private final int iterations;
+    private final long durationNanos;
+    private boolean failed;
+    
+    /**
+     * Исходы одного теста: описание - сколько раз встретился, и какие из них запрещены
+     */
+    private static final class Outcomes {
+        private final String name;
+        private final Map<String, Long> counts = new TreeMap<>();
+        private final Map<String, Boolean> forbidden = new TreeMap<>();
+        
+        Outcomes(String name) {
+            this.name = name;
+        }
+        
+        synchronized void ok(String outcome) {
+            record(outcome, false);
+        }
+        
+        synchronized void interesting(String outcome) {
+            record(outcome + " (допустимо)", false);
+        }
+        
+        synchronized void forbidden(String outcome) {
+            record(outcome, true);
+        }
+        
+        private void record(String outcome, boolean isForbidden) {
+            counts.merge(outcome, 1L, Long::sum);
+            forbidden.put(outcome, isForbidden);
+        }
+        
+        boolean report() {
+            boolean passed = !forbidden.containsValue(true);
+            System.out.println((passed ? "[OK]   " : "[FAIL] ") + name);
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                String mark = forbidden.get(entry.getKey()) ? "  ЗАПРЕЩЕНО" : "";
+                System.out.printf("         %-55s %,12d%s%n", entry.getKey(), entry.getValue(), mark);
+            }
+            return passed;
+        }
+    }
+    
+    public ConcurrencyStress(int iterations, long durationNanos) {
+        this.iterations = iterations;
+        this.durationNanos = durationNanos;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int iterations = 200_000;
+        long seconds = 2;
+        for (String arg : args) {
+            if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Long.parseLong(arg.substring("--seconds=".length()));
+            } else {
+                System.err.println("Неизвестный аргумент: " + arg);
+                System.exit(2);
+            }
+        }
+        
+        ConcurrencyStress stress = new ConcurrencyStress(iterations, TimeUnit.SECONDS.toNanos(seconds));
+        stress.run();
+        System.exit(stress.failed ? 1 : 0);
+    }
+    
+    public void run() throws Exception {
+        check(positionIsNeverTorn());
+        check(settersDoNotLoseUpdates());
+        check(playerTableSurvivesConcurrentChanges());
+        check(singleWinner());
+        check(startedGamePublishesMaze());
+    }
+    
+    private void check(Outcomes outcomes) {
+        failed |= !outcomes.report();
+    }
+    
+    /**
+     * Писатель ходит по диагонали (i, i) с направлением i % 4, читатель проверяет, что тройка согласована
+     */
+    private Outcomes positionIsNeverTorn() throws InterruptedException {
+        Outcomes outcomes = new Outcomes("Player: позиция и направление читаются целиком");
+        Player player = new Player(1, 0, 0);
+        player.move(0, 0, DIRECTIONS[0]);
+        long deadline = System.nanoTime() + durationNanos;
+        
+        Thread writer = new Thread(() -> {
+            int i = 0;
+            while (System.nanoTime() < deadline) {
+                i = (i + 1) & 0xFFFF;
+                player.move(i, i, DIRECTIONS[i % DIRECTIONS.length]);
+            }
+        }, "stress-writer");
+        writer.start();
+        
+        long consistent = 0;
+        long split = 0;
+        long torn = 0;
+        while (writer.isAlive()) {
+            long state = player.getState();
+            int x = Player.xOf(state);
+            if (x != Player.yOf(state) || Player.directionOf(state) != DIRECTIONS[x % DIRECTIONS.length]) {
+                torn++;
+            } else {
+                consistent++;
+            }
+            // Прежний способ чтения: два вызова могут попасть на разные ходы
+            if (player.getX() != player.getY()) {
+                split++;
+            }
+        }
+        writer.join();
+        
+        addCount(outcomes, "getState(): x == y, направление от того же хода", consistent, false);
+        addCount(outcomes, "getState(): разорванная позиция", torn, true);
+        if (split > 0) {
+            addCount(outcomes, "getX() и getY() с разных ходов (допустимо)", split, false);
+        }
+        return outcomes;
+    }
+    
+    /**
+     * setPosition и setDirection из разных потоков: ни одно из обновлений не теряется
+     */
+    private Outcomes settersDoNotLoseUpdates() throws Exception {
+        Outcomes outcomes = new Outcomes("Player: setPosition и setDirection не затирают друг друга");
+        Player[] player = new Player[1];
+        int[] round = new int[1];
+        
+        runActors(outcomes, () -> {
+            player[0] = new Player(1, 0, 0);
+            round[0]++;
+        }, () -> {
+            player[0].setPosition(round[0] % 100 + 1, 7);
+        }, () -> {
+            player[0].setDirection(Direction.LEFT);
+        }, () -> {
+            long state = player[0].getState();
+            boolean position = Player.xOf(state) == round[0] % 100 + 1 && Player.yOf(state) == 7;
+            boolean direction = Player.directionOf(state) == Direction.LEFT;
+            if (position && direction) {
+                outcomes.ok("оба обновления видны");
+            } else {
+                outcomes.forbidden("потеряно: " + (position ? "" : "позиция ") + (direction ? "" : "направление"));
+            }
+        });
+        return outcomes;
+    }
+    
+    /**
+     * Игроки добавляются и удаляются, пока другой поток обходит таблицу и снимает снимок
+     */
+    private Outcomes playerTableSurvivesConcurrentChanges() throws InterruptedException {
+        Outcomes outcomes = new Outcomes("GameState: обход игроков во время добавления и удаления");
+        GameState state = new GameState();
+        state.addPlayer(new Player(0, 0, 0));
+        long deadline = System.nanoTime() + durationNanos;
+        AtomicReference<Throwable> writerError = new AtomicReference<>();
+        
+        Thread writer = new Thread(() -> {
+            try {
+                int id = 1;
+                while (System.nanoTime() < deadline) {
+                    state.addPlayer(new Player(id, id % 40, id % 50));
+                    // Игрок 0 не удаляется никогда: читатель проверяет, что он не пропадает
+                    if (id > 8) {
+                        state.removePlayer(id - 8);
+                    }
+                    id++;
+                }
+            } catch (Throwable e) {
+                writerError.set(e);
+            }
+        }, "stress-writer");
+        writer.start();
+        
+        long passes = 0;
+        while (writer.isAlive()) {
+            try {
+                int seen = 0;
+                for (Player player : state.getPlayers().values()) {
+                    if (player == null) {
+                        outcomes.forbidden("null в таблице игроков");
+                    }
+                    seen++;
+                }
+                Snapshot snapshot = Snapshot.capture(passes, state.getPlayers().values());
+                if (state.getPlayer(0) == null || snapshot.indexOf(0) < 0 || seen == 0) {
+                    outcomes.forbidden("пропал игрок, которого никто не удалял");
+                } else {
+                    passes++;
+                }
+            } catch (RuntimeException e) {
+                outcomes.forbidden("исключение при обходе: " + e.getClass().getSimpleName());
+            }
+        }
+        writer.join();
+        if (writerError.get() != null) {
+            outcomes.forbidden("исключение у писателя: " + writerError.get().getClass().getSimpleName());
+        }
+        addCount(outcomes, "обход и снимок без ошибок", passes, false);
+        return outcomes;
+    }
+    
+    /**
+     * Два игрока одновременно встают на выход: победитель ровно один, и он отмечен финишировавшим
+     */
+    private Outcomes singleWinner() throws Exception {
+        Outcomes outcomes = new Outcomes("GameState: один победитель при одновременном финише");
+        GameState[] state = new GameState[1];
+        boolean[] wins = new boolean[2];
+        
+        runActors(outcomes, () -> {
+            GameState fresh = new GameState();
+            fresh.initialize(MAZE, 5, 5);
+            fresh.addPlayer(new Player(1, 5, 5));
+            fresh.addPlayer(new Player(2, 5, 5));
+            state[0] = fresh;
+        }, () -> {
+            wins[0] = state[0].checkWin(1, 5, 5);
+        }, () -> {
+            wins[1] = state[0].checkWin(2, 5, 5);
+        }, () -> {
+            GameState finished = state[0];
+            int winner = finished.getWinnerId();
+            int finishedCount = (finished.getPlayer(1).isFinished() ? 1 : 0) + (finished.getPlayer(2).isFinished() ? 1 : 0);
+            if (!wins[0] || !wins[1] || !finished.isGameEnded()) {
+                outcomes.forbidden("финиш не засчитан");
+            } else if (finishedCount != 1 || (winner != 1 && winner != 2) || !finished.getPlayer(winner).isFinished()) {
+                outcomes.forbidden("победителей " + finishedCount + ", winnerId=" + winner);
+            } else {
+                outcomes.ok("победил игрок " + winner);
+            }
+        });
+        return outcomes;
+    }
+    
+    /**
+     * Кто увидел isGameStarted(), видит и лабиринт с выходом из того же initialize()
+     */
+    private Outcomes startedGamePublishesMaze() throws Exception {
+        Outcomes outcomes = new Outcomes("GameState: начатая партия видна вместе с лабиринтом");
+        GameState[] state = new GameState[1];
+        int[] observed = new int[1];
+        
+        runActors(outcomes, () -> {
+            state[0] = new GameState();
+            observed[0] = 0;
+        }, () -> {
+            state[0].initialize(MAZE, 7, 9);
+        }, () -> {
+            GameState reader = state[0];
+            if (!reader.isGameStarted()) {
+                observed[0] = 1;
+            } else if (reader.getMaze() == null || reader.getExitX() != 7 || reader.getExitY() != 9) {
+                observed[0] = 2;
+            } else {
+                observed[0] = 3;
+            }
+        }, () -> {
+            if (observed[0] == 1) {
+                outcomes.interesting("партия ещё не начата");
+            } else if (observed[0] == 2) {
+                outcomes.forbidden("партия начата, но лабиринт или выход не видны");
+            } else {
+                outcomes.ok("партия начата, лабиринт и выход видны");
+            }
+        });
+        return outcomes;
+    }
+    
+    /**
+     * Прогоны как в jcstress: подготовка, два актёра стартуют одновременно с барьера, затем арбитр
+     * Барьер даёт happens-before между фазами, поэтому подготовка и арбитр видят всё без volatile
+     */
+    private void runActors(Outcomes outcomes, Runnable setUp, Runnable first, Runnable second, Runnable arbiter)
+        throws Exception {
+        CyclicBarrier start = new CyclicBarrier(3);
+        CyclicBarrier done = new CyclicBarrier(3);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread firstThread = actor("stress-actor-1", first, start, done, error);
+        Thread secondThread = actor("stress-actor-2", second, start, done, error);
+        firstThread.start();
+        secondThread.start();
+        
+        try {
+            for (int i = 0; i < iterations && error.get() == null; i++) {
+                setUp.run();
+                start.await();
+                done.await();
+                arbiter.run();
+            }
+        } finally {
+            firstThread.interrupt();
+            secondThread.interrupt();
+            firstThread.join();
+            secondThread.join();
+        }
+        if (error.get() != null) {
+            outcomes.forbidden("исключение у актёра: " + error.get());
+        }
+    }
+    
+    private static Thread actor(String name, Runnable body, CyclicBarrier start, CyclicBarrier done,
+                                AtomicReference<Throwable> error) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    start.await();
+                    try {
+                        body.run();
+                    } catch (RuntimeException e) {
+                        error.compareAndSet(null, e);
+                    }
+                    done.await();
+                }
+            } catch (InterruptedException | BrokenBarrierException e) {
+                // Прогоны закончились
+            }
+        }, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+    
+    private static void addCount(Outcomes outcomes, String outcome, long count, boolean isForbidden) {
+        synchronized (outcomes) {
+            if (count > 0) {
+                outcomes.counts.merge(outcome, count, Long::sum);
+                outcomes.forbidden.put(outcome, isForbidden);
+            }
+        }
+    }
+}
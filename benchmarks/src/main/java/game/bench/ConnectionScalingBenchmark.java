@@ -0,0 +1,186 @@
+package game.bench;
+
+import game.server.GameServer;
+import game.server.ServerConfig;
+import game.utils.ConnectionThreads;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Масштабирование блокирующего сервера по соединениям: поток на соединение (blocking)
+ * против виртуального потока на соединение (virtual) и для сравнения циклы событий (nio).
+ * Сервер запускается в этом процессе, клиенты - неблокирующие каналы на одном Selector,
+ * чтобы потоки клиентов не смешивались с потоками сервера. Каждая пара клиентов заполняет
+ * комнату, замер идёт до получения GAME_START всеми клиентами. Отчёт: время, прирост потоков
+ * платформы, кучи и RSS процесса на соединение.
+ * Режим virtual пропускается, если JVM старше 21 (ConnectionThreads.isVirtualAvailable)
+ *
+ * java -cp target/benchmarks.jar game.bench.ConnectionScalingBenchmark --connections=5000 --modes=blocking,virtual,nio
+ */
+public class ConnectionScalingBenchmark {
+    private static final long START_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+    
+    public static void main(String[] args) throws Exception {
+        int connections = 2000;
+        String[] modes = {"blocking", "virtual", "nio"};
+        for (String arg : args) {
+            if (arg.startsWith("--connections=")) {
+                connections = Integer.parseInt(arg.substring("--connections=".length()));
+            } else if (arg.startsWith("--modes=")) {
+                modes = arg.substring("--modes=".length()).split(",");
+            } else {
+                System.err.println("Неизвестный аргумент: " + arg);
+                System.exit(2);
+            }
+        }
+        // Комнаты на двоих: нечётный клиент не дождался бы начала партии
+        connections += connections % 2;
+        
+        PrintStream report = System.out;
+        // Сервер печатает строку на каждое подключение, на время замеров глушим вывод
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        
+        report.printf("Соединений: %d, Java %s%n", connections, System.getProperty("java.version"));
+        report.printf("%-9s %10s %12s %10s %14s %14s%n", "режим", "время, мс", "соед./с", "потоков +", "куча, КБ/соед.", "RSS, КБ/соед.");
+        for (String mode : modes) {
+            if (mode.equalsIgnoreCase("virtual") && !ConnectionThreads.isVirtualAvailable()) {
+                report.printf("%-9s пропущен: виртуальные потоки доступны с Java 21%n", mode);
+                continue;
+            }
+            measure(mode, connections, report);
+        }
+        System.exit(0);
+    }
+    
+    private static void measure(String mode, int connections, PrintStream report) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        settle();
+        int threadsBefore = threads.getThreadCount();
+        long heapBefore = usedHeap();
+        long rssBefore = residentSetSize();
+        
+        GameServer server = new GameServer(ServerConfig.parse(new String[]{
+            "--port=0", "--transport=" + mode, "--rooms=0", "--capacity=2"
+        }));
+        if (mode.equalsIgnoreCase("nio")) {
+            server.start();
+        } else {
+            Thread accept = new Thread(server::start, "blocking-accept");
+            accept.setDaemon(true);
+            accept.start();
+        }
+        
+        List<SocketChannel> channels = new ArrayList<>(connections);
+        Selector selector = Selector.open();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        long start = System.nanoTime();
+        int started;
+        try {
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ);
+                channels.add(channel);
+            }
+            started = awaitGameStart(selector, connections);
+            long elapsedNanos = System.nanoTime() - start;
+            
+            // Замер памяти, пока все соединения живы
+            System.gc();
+            int threadsGrowth = threads.getThreadCount() - threadsBefore;
+            double heapPerConnection = (usedHeap() - heapBefore) / 1024.0 / connections;
+            long rssAfter = residentSetSize();
+            String rssPerConnection = rssBefore < 0 || rssAfter < 0
+                ? "н/д" : String.format("%.1f", (rssAfter - rssBefore) / 1024.0 / connections);
+            
+            report.printf("%-9s %10.0f %12.0f %10d %14.1f %14s%s%n", mode, elapsedNanos / 1e6,
+                started / (elapsedNanos / 1e9), threadsGrowth, heapPerConnection, rssPerConnection,
+                started < connections ? "  (начали игру только " + started + ")" : "");
+        } finally {
+            for (SocketChannel channel : channels) {
+                channel.close();
+            }
+            selector.close();
+            server.stop();
+        }
+    }
+    
+    /**
+     * Читает со всех каналов, пока каждый не получит первую строку (GAME_START) или не выйдет время
+     * @return сколько клиентов получили начало игры
+     */
+    private static int awaitGameStart(Selector selector, int connections) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        int started = 0;
+        long deadline = System.nanoTime() + START_TIMEOUT_NANOS;
+        while (started < connections && System.nanoTime() < deadline) {
+            selector.select(100);
+            for (SelectionKey key : selector.selectedKeys()) {
+                SocketChannel channel = (SocketChannel) key.channel();
+                buffer.clear();
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    key.cancel();
+                    continue;
+                }
+                for (int i = 0; i < buffer.position(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        // Дальнейшие сообщения этому клиенту не нужны
+                        key.cancel();
+                        started++;
+                        break;
+                    }
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+        return started;
+    }
+    
+    private static void settle() throws InterruptedException {
+        System.gc();
+        TimeUnit.MILLISECONDS.sleep(500);
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * Резидентная память процесса из /proc/self/status (только Linux), -1 если недоступна
+     */
+    private static long residentSetSize() {
+        Path status = Paths.get("/proc/self/status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Не Linux
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,118 @@
+package game.bench;
+
+import game.model.Direction;
+import game.model.Maze;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * canMove с направлением-перечислением против прежнего варианта со switch по строке
+ * Результат - ходов в секунду; набор клеток и направлений одинаковый для обоих вариантов
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectionBenchmark {
+    private static final int MOVES = 1024;
+    
+    private Maze maze;
+    private int[] xs;
+    private int[] ys;
+    private Direction[] directions;
+    private String[] names;
+    
+    @Setup
+    public void setUp() {
+        maze = new Maze(40, 50, 42L);
+        xs = new int[MOVES];
+        ys = new int[MOVES];
+        directions = new Direction[MOVES];
+        names = new String[MOVES];
+        Random random = new Random(7);
+        Direction[] all = Direction.values();
+        for (int i = 0; i < MOVES; i++) {
+            xs[i] = random.nextInt(maze.getWidth());
+            ys[i] = random.nextInt(maze.getHeight());
+            directions[i] = all[random.nextInt(all.length)];
+            // Новый объект строки, как после разбора сообщения из сети
+            names[i] = new String(directions[i].getWireName());
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int enumCanMove() {
+        int allowed = 0;
+        for (int i = 0; i < MOVES; i++) {
+            if (maze.canMove(xs[i], ys[i], directions[i])) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int stringCanMove() {
+        int allowed = 0;
+        for (int i = 0; i < MOVES; i++) {
+            if (legacyCanMove(maze, xs[i], ys[i], names[i])) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+    
+    /**
+     * Прежняя реализация Maze.canMove со строковым направлением
+     */
+    static boolean legacyCanMove(Maze maze, int x, int y, String direction) {
+        int newX = x;
+        int newY = y;
+        
+        switch (direction) {
+            case "ВВЕРХ":
+                newY--;
+                break;
+            case "ВНИЗ":
+                newY++;
+                break;
+            case "ВЛЕВО":
+                newX--;
+                break;
+            case "ВПРАВО":
+                newX++;
+                break;
+        }
+        
+        if (newX < 0 || newX >= maze.getWidth() || newY < 0 || newY >= maze.getHeight()) {
+            return false;
+        }
+        
+        return !maze.isWall(newX, newY);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(DirectionBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
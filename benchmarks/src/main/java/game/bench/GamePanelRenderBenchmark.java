@@ -0,0 +1,136 @@
+package game.bench;
+
+import game.model.Direction;
+import game.model.GameState;
+import game.model.Maze;
+import game.model.Player;
+import game.ui.GamePanel;
+import game.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кадр окна игры в зависимости от радиуса видимости (микросекунд на кадр, с -prof gc - байт на кадр)
+ * cells - прежняя отрисовка: каждая видимая клетка заново с новыми Color, только слой лабиринта;
+ * tiles - GamePanel целиком (лабиринт из готовых кусков MazeTiles, выход, игрок и кольцо видимости).
+ * Игрок между кадрами сдвигается на клетку, чтобы вид ездил по лабиринту и задевал новые куски.
+ * Рисование идёт в BufferedImage без окна (java.awt.headless)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GamePanelRenderBenchmark {
+    private static final int MAZE_SIZE = 201;
+    private static final int SWEEP = 40;
+    
+    @Param({"cells", "tiles"})
+    String renderer;
+    
+    @Param({"5", "15", "50"})
+    int radius;
+    
+    private Maze maze;
+    private Player player;
+    private GamePanel panel;
+    private BufferedImage frame;
+    private Graphics2D graphics;
+    private int startX;
+    private int step;
+    
+    @Setup
+    public void setUp() {
+        maze = BenchSupport.quietly(() -> new Maze(MAZE_SIZE, MAZE_SIZE, 42L));
+        GameState gameState = new GameState();
+        gameState.initialize(maze, MAZE_SIZE - 2, MAZE_SIZE - 2);
+        startX = MAZE_SIZE / 2 - SWEEP / 2;
+        player = new Player(0, startX, MAZE_SIZE / 2);
+        gameState.addPlayer(player);
+        
+        panel = new GamePanel();
+        panel.setSize(Constants.GAME_PANEL_WIDTH, Constants.GAME_PANEL_HEIGHT);
+        panel.setVisibilityRadius(radius);
+        panel.setGameState(gameState, player.getId());
+        
+        frame = new BufferedImage(Constants.GAME_PANEL_WIDTH, Constants.GAME_PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = frame.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+    
+    @Benchmark
+    public BufferedImage frame() {
+        step = (step + 1) % SWEEP;
+        player.move(startX + step, MAZE_SIZE / 2, Direction.RIGHT);
+        if (renderer.equals("tiles")) {
+            panel.paint(graphics);
+        } else {
+            paintCells();
+        }
+        return frame;
+    }
+    
+    /**
+     * Слой лабиринта так, как GamePanel рисовал его до MazeTiles
+     */
+    private void paintCells() {
+        int cellSize = Constants.CELL_SIZE;
+        int playerX = player.getX();
+        int playerY = player.getY();
+        int viewOffsetX = Constants.GAME_PANEL_WIDTH / 2 - playerX * cellSize - cellSize / 2;
+        int viewOffsetY = Constants.GAME_PANEL_HEIGHT / 2 - playerY * cellSize - cellSize / 2;
+        int startX = Math.max(0, playerX - radius);
+        int endX = Math.min(maze.getWidth(), playerX + radius + 1);
+        int startY = Math.max(0, playerY - radius);
+        int endY = Math.min(maze.getHeight(), playerY + radius + 1);
+        
+        graphics.setColor(new Color(30, 30, 30));
+        graphics.fillRect(0, 0, Constants.GAME_PANEL_WIDTH, Constants.GAME_PANEL_HEIGHT);
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                int screenX = x * cellSize + viewOffsetX;
+                int screenY = y * cellSize + viewOffsetY;
+                if (maze.isWall(x, y)) {
+                    graphics.setColor(new Color(100, 100, 150));
+                    graphics.fillRect(screenX, screenY, cellSize, cellSize);
+                    graphics.setColor(new Color(80, 80, 120));
+                    graphics.drawRect(screenX, screenY, cellSize, cellSize);
+                } else {
+                    graphics.setColor(new Color(240, 240, 240));
+                    graphics.fillRect(screenX, screenY, cellSize, cellSize);
+                    graphics.setColor(new Color(200, 200, 200));
+                    graphics.drawRect(screenX, screenY, cellSize, cellSize);
+                }
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(GamePanelRenderBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package game.bench;
+
+import game.model.GameState;
+import game.model.Maze;
+import game.model.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameState.checkWin, который комната вызывает после каждого применённого хода
+ * miss - обычный случай (игрок не на выходе), hit - игрок на выходе после окончания партии
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+    private static final int CHECKS = 1024;
+    
+    private GameState gameState;
+    private int exitX;
+    private int exitY;
+    private int[] xs;
+    private int[] ys;
+    
+    @Setup
+    public void setUp() {
+        Maze maze = BenchSupport.quietly(() -> new Maze(40, 50, 42L));
+        int[] exit = maze.getFixedExitPosition();
+        exitX = exit[0];
+        exitY = exit[1];
+        gameState = new GameState();
+        gameState.addPlayer(new Player(1, 0, 0));
+        gameState.initialize(maze, exitX, exitY);
+        
+        xs = new int[CHECKS];
+        ys = new int[CHECKS];
+        Random random = new Random(7);
+        for (int i = 0; i < CHECKS; i++) {
+            do {
+                xs[i] = random.nextInt(maze.getWidth());
+                ys[i] = random.nextInt(maze.getHeight());
+            } while (xs[i] == exitX && ys[i] == exitY);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CHECKS)
+    public int checkWinMiss() {
+        int wins = 0;
+        for (int i = 0; i < CHECKS; i++) {
+            if (gameState.checkWin(1, xs[i], ys[i])) {
+                wins++;
+            }
+        }
+        return wins;
+    }
+    
+    @Benchmark
+    public boolean checkWinHit() {
+        return gameState.checkWin(1, exitX, exitY);
+    }
+}
@@ -0,0 +1,123 @@
+package game.bench;
+
+import game.model.Direction;
+import game.model.ExitPlacement;
+import game.model.Maze;
+import game.model.Player;
+import game.server.GameRoom;
+import game.server.InputLimits;
+import game.server.InputOverflow;
+import game.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Один клиент комнаты шлёт flood ходов за тик, остальные по одному
+ * limited - ограничения по умолчанию (InputLimits.defaults), unlimited - прежнее поведение:
+ * все пришедшие ходы применяются на ближайшем тике, и тик комнаты (а с ним задержка
+ * честных игроков и всех комнат шарда) растёт вместе с потоком ходов одного клиента.
+ * Без лимита флудер проходит flood клеток за тик, с лимитом - не больше MOVE_BURST, остальное отбрасывается
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputFloodBenchmark {
+    private static final int PLAYERS = 4;
+    
+    @Param({"limited", "unlimited"})
+    String limits;
+    
+    @Param({"1000"})
+    int flood;
+    
+    private GameRoom room;
+    private NullConnection[] connections;
+    private Direction[][] shuttle;
+    private boolean forwardRound;
+    
+    @Setup
+    public void setUp() {
+        InputLimits inputLimits = limits.equals("limited")
+            ? InputLimits.defaults(Constants.TICK_RATE)
+            : InputLimits.perSecond(Integer.MAX_VALUE / 2, Constants.TICK_RATE, Integer.MAX_VALUE / 2, flood * 2,
+                InputOverflow.DROP_NEWEST);
+        // Комната исполняет задачи в вызывающем потоке: бенчмарк сам играет роль шарда
+        room = new GameRoom(1, PLAYERS, Constants.MAZE_WIDTH, Constants.MAZE_HEIGHT, ExitPlacement.MANHATTAN,
+            inputLimits, Runnable::run);
+        connections = new NullConnection[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            NullConnection connection = new NullConnection();
+            room.reserve(connection);
+            connections[i] = BenchSupport.quietly(() -> {
+                room.join(connection);
+                return connection;
+            });
+        }
+        
+        // Каждый игрок ходит туда-обратно через открытый проход, чтобы каждый ход что-то менял
+        Maze maze = room.getGameState().getMaze();
+        shuttle = new Direction[PLAYERS][];
+        for (int i = 0; i < PLAYERS; i++) {
+            Player player = room.getGameState().getPlayer(connections[i].getPlayerId());
+            for (Direction direction : Direction.values()) {
+                if (maze.canMove(player.getX(), player.getY(), direction)) {
+                    shuttle[i] = new Direction[]{direction, opposite(direction)};
+                    break;
+                }
+            }
+            if (shuttle[i] == null) {
+                throw new IllegalStateException("Игрок заперт в стартовой клетке");
+            }
+        }
+    }
+    
+    @Benchmark
+    public long floodedTick() {
+        NullConnection flooder = connections[0];
+        for (int i = 0; i < flood; i++) {
+            room.handlePlayerMove(flooder, flooder.getPlayerId(), shuttle[0][i & 1]);
+        }
+        forwardRound = !forwardRound;
+        for (int p = 1; p < PLAYERS; p++) {
+            room.handlePlayerMove(connections[p], connections[p].getPlayerId(), shuttle[p][forwardRound ? 0 : 1]);
+        }
+        room.tick();
+        return room.getDroppedMoves();
+    }
+    
+    private static Direction opposite(Direction direction) {
+        switch (direction) {
+            case UP:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.UP;
+            case LEFT:
+                return Direction.RIGHT;
+            default:
+                return Direction.LEFT;
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(InputFloodBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
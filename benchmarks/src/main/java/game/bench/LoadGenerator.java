@@ -0,0 +1,378 @@
+package game.bench;
+
+import game.client.ClientMetrics;
+import game.client.GameClient;
+import game.metrics.Histogram;
+import game.metrics.MetricsRegistry;
+import game.model.Direction;
+import game.model.Maze;
+import game.model.PathField;
+import game.protocol.WireFormat;
+import game.server.GameServer;
+import game.server.ServerConfig;
+import game.utils.ConnectionThreads;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный генератор: тысячи ботов по протоколу GameClient против сервера на loopback
+ * Каждый бот держит один ход в полёте: отправляет ход, ждёт STATE_UPDATE со своей новой позицией
+ * и только потом делает следующий. Задержка "ход - рассылка" - время между отправкой хода
+ * и получением обновления, то есть включает ожидание ближайшего тика комнаты.
+ * Боты знают лабиринт и не ходят в стены и на выход (иначе партия закончится):
+ * random - случайное блуждание без разворотов, path - кратчайший путь к случайной клетке.
+ * Если --host не задан, сервер запускается в этом же процессе, и тогда по ThreadMXBean
+ * считается процессорное время его потоков на соединение.
+ * --metrics-port и --metrics-log передаются встроенному серверу (ServerConfig), а --client-metrics=true
+ * считает трафик всех ботов (ClientMetrics); в конце отчёта печатаются итоги метрик.
+ *
+ * java -cp target/benchmarks.jar game.bench.LoadGenerator --bots=1000 --strategy=path --format=binary
+ */
+public class LoadGenerator {
+    private static final long MOVE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(2);
+    /** Префиксы имён потоков сервера: шарды комнат, циклы событий NIO и обработчики клиентов */
+    private static final String[] SERVER_THREADS = {"room-shard-", "nio-", "client-handler-", "blocking-accept"};
+    
+    private final Histogram latency = new Histogram();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final AtomicInteger gamesStarted = new AtomicInteger();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "load-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Bot> bots = new ArrayList<>();
+    private final MetricsRegistry clientRegistry;
+    private final ClientMetrics clientMetrics;
+    private volatile boolean measuring;
+    
+    private enum Strategy {
+        RANDOM, PATH
+    }
+    
+    private LoadGenerator(boolean withClientMetrics) {
+        clientRegistry = withClientMetrics ? new MetricsRegistry() : null;
+        clientMetrics = withClientMetrics ? new ClientMetrics(clientRegistry) : null;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int botCount = Integer.parseInt(options.getOrDefault("bots", "200"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "20"));
+        long thinkMillis = Long.parseLong(options.getOrDefault("think-ms", "0"));
+        Strategy strategy = Strategy.valueOf(options.getOrDefault("strategy", "random").toUpperCase());
+        WireFormat format = WireFormat.valueOf(options.getOrDefault("format", "text").toUpperCase());
+        String host = options.get("host");
+        
+        PrintStream report = System.out;
+        // Клиенты и комнаты печатают строку на каждое подключение и партию, на время замера глушим вывод
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        
+        GameServer server = null;
+        int port;
+        if (host == null) {
+            host = "localhost";
+            server = new GameServer(ServerConfig.parse(new String[]{
+                "--port=0",
+                "--transport=" + options.getOrDefault("transport", "nio"),
+                "--maze=" + options.getOrDefault("maze", "40x50"),
+                "--tick-rate=" + options.getOrDefault("tick-rate", "20"),
+                "--tcp-nodelay=" + options.getOrDefault("tcp-nodelay", "true"),
+                "--metrics-port=" + options.getOrDefault("metrics-port", "0"),
+                "--metrics-log=" + options.getOrDefault("metrics-log", "0")
+            }));
+            if (options.getOrDefault("transport", "nio").equalsIgnoreCase("nio")) {
+                server.start();
+            } else {
+                new Thread(server::start, "blocking-accept").start();
+            }
+            port = server.getPort();
+        } else {
+            port = Integer.parseInt(options.getOrDefault("port", "12345"));
+        }
+        
+        LoadGenerator generator = new LoadGenerator(Boolean.parseBoolean(options.getOrDefault("client-metrics", "false")));
+        report.printf("Боты: %d, стратегия %s, формат %s, сервер %s:%d%s%n", botCount, strategy, format, host, port,
+            server != null ? " (в этом процессе)" : "");
+        boolean virtualClients = options.getOrDefault("client-threads", "platform").equalsIgnoreCase("virtual");
+        generator.connect(host, port, botCount, strategy, format, thinkMillis,
+            ConnectionThreads.select(virtualClients, true));
+        
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        generator.latency.reset();
+        generator.moves.reset();
+        generator.timeouts.reset();
+        Map<Long, Long> cpuBefore = serverThreadCpu();
+        long start = System.nanoTime();
+        generator.measuring = true;
+        
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        
+        generator.measuring = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long serverCpuNanos = server != null ? cpuDelta(cpuBefore, serverThreadCpu()) : -1;
+        generator.report(report, botCount, seconds, serverCpuNanos);
+        if (server != null && server.getMetricsRegistry() != null) {
+            report.println("Метрики сервера: " + server.getMetricsRegistry().summary());
+        }
+        
+        generator.stop();
+        if (server != null) {
+            server.stop();
+        }
+        System.exit(0);
+    }
+    
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида --ключ=значение: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+    
+    /**
+     * Подключает ботов пачками, чтобы не переполнить очередь приёма сокета сервера
+     */
+    private void connect(String host, int port, int count, Strategy strategy, WireFormat format, long thinkMillis,
+                         ThreadFactory clientThreads) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            Bot bot = new Bot(i, strategy, thinkMillis);
+            bot.client = new GameClient(host, port, bot, format);
+            bot.client.setThreadFactory(clientThreads);
+            bot.client.setMetrics(clientMetrics);
+            bots.add(bot);
+            bot.client.start();
+            if (i % 50 == 49) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+        }
+        scheduler.scheduleWithFixedDelay(this::checkTimeouts, 200, 200, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Ход без ответа дольше MOVE_TIMEOUT_NANOS считаем потерянным и делаем следующий
+     */
+    private void checkTimeouts() {
+        long now = System.nanoTime();
+        for (Bot bot : bots) {
+            long sentAt = bot.sentAt;
+            if (sentAt != 0 && now - sentAt > MOVE_TIMEOUT_NANOS) {
+                timeouts.increment();
+                bot.sendNextMove();
+            }
+        }
+    }
+    
+    private void report(PrintStream out, int botCount, double seconds, long serverCpuNanos) {
+        long total = moves.sum();
+        out.printf("Партий начато: %d из %d%n", gamesStarted.get(), botCount / 2);
+        out.printf("Ходов: %d за %.1f с, %.0f ходов/с, потеряно (нет ответа за %d с): %d%n",
+            total, seconds, total / seconds, TimeUnit.NANOSECONDS.toSeconds(MOVE_TIMEOUT_NANOS), timeouts.sum());
+        out.printf("Задержка ход - рассылка, мс: p50 %.2f, p99 %.2f, p999 %.2f, max %.2f%n",
+            latency.percentile(0.5) / 1000.0, latency.percentile(0.99) / 1000.0,
+            latency.percentile(0.999) / 1000.0, latency.percentile(1.0) / 1000.0);
+        if (serverCpuNanos >= 0) {
+            double cores = serverCpuNanos / 1e9 / seconds;
+            out.printf("ЦП сервера: %.2f ядра, %.1f мкс ЦП в секунду на соединение, %.1f мкс ЦП на ход%n",
+                cores, serverCpuNanos / 1e3 / seconds / botCount, total > 0 ? serverCpuNanos / 1e3 / total : 0.0);
+        }
+        if (clientRegistry != null) {
+            out.println("Метрики ботов: " + clientRegistry.summary());
+        }
+    }
+    
+    private void stop() {
+        scheduler.shutdownNow();
+        for (Bot bot : bots) {
+            bot.client.stopClient();
+        }
+    }
+    
+    /**
+     * Процессорное время потоков сервера по их ID
+     */
+    private static Map<Long, Long> serverThreadCpu() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> cpu = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && isServerThread(info.getThreadName())) {
+                long nanos = threads.getThreadCpuTime(info.getThreadId());
+                if (nanos >= 0) {
+                    cpu.put(info.getThreadId(), nanos);
+                }
+            }
+        }
+        return cpu;
+    }
+    
+    private static boolean isServerThread(String name) {
+        for (String prefix : SERVER_THREADS) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Потоки, появившиеся за время замера, учитываются целиком, завершившиеся - не учитываются
+     */
+    private static long cpuDelta(Map<Long, Long> before, Map<Long, Long> after) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : after.entrySet()) {
+            total += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+        }
+        return total;
+    }
+    
+    /**
+     * Бот: слушает свой GameClient и делает следующий ход после подтверждения предыдущего
+     * Колбэки приходят в потоке чтения клиента, там же отправляется следующий ход
+     */
+    private final class Bot implements GameClient.ClientMessageListener {
+        private final Strategy strategy;
+        private final long thinkMillis;
+        private final Random random;
+        private GameClient client;
+        private Maze maze;
+        private int playerId;
+        private int exitX;
+        private int exitY;
+        private int x;
+        private int y;
+        private Direction last;
+        private PathField path;
+        private volatile long sentAt;
+        private volatile boolean finished;
+        
+        Bot(int index, Strategy strategy, long thinkMillis) {
+            this.strategy = strategy;
+            this.thinkMillis = thinkMillis;
+            this.random = new Random(index);
+        }
+        
+        @Override
+        public void onGameStart(int pid, long mazeSeed, int mazeWidth, int mazeHeight,
+                                int startX, int startY, int exitX, int exitY) {
+            this.maze = client.getGameState().getMaze();
+            this.playerId = pid;
+            this.exitX = exitX;
+            this.exitY = exitY;
+            this.x = startX;
+            this.y = startY;
+            gamesStarted.incrementAndGet();
+            sendNextMove();
+        }
+        
+        @Override
+        public synchronized void onPositionUpdate(int pid, int newX, int newY, Direction direction) {
+            if (pid != playerId || finished) {
+                return;
+            }
+            x = newX;
+            y = newY;
+            long sent = sentAt;
+            if (sent != 0) {
+                sentAt = 0;
+                if (measuring) {
+                    latency.record((System.nanoTime() - sent) / 1000);
+                    moves.increment();
+                }
+            }
+            if (thinkMillis > 0) {
+                scheduler.schedule(this::sendNextMove, thinkMillis, TimeUnit.MILLISECONDS);
+            } else {
+                sendNextMove();
+            }
+        }
+        
+        @Override
+        public void onGameEnd(int winnerId, long time) {
+            finished = true;
+            sentAt = 0;
+        }
+        
+        synchronized void sendNextMove() {
+            if (finished || maze == null) {
+                return;
+            }
+            Direction direction = strategy == Strategy.PATH ? pathMove() : randomMove();
+            if (direction == null) {
+                return;
+            }
+            last = direction;
+            sentAt = System.nanoTime();
+            client.sendMove(direction);
+        }
+        
+        private boolean allowed(Direction direction) {
+            return maze.canMove(x, y, direction)
+                && !(x + direction.getDx() == exitX && y + direction.getDy() == exitY);
+        }
+        
+        /**
+         * Случайное направление без разворота назад, если есть другой выход из клетки
+         */
+        private Direction randomMove() {
+            Direction[] all = Direction.values();
+            Direction back = null;
+            int offset = random.nextInt(all.length);
+            for (int i = 0; i < all.length; i++) {
+                Direction direction = all[(offset + i) % all.length];
+                if (!allowed(direction)) {
+                    continue;
+                }
+                if (last != null && direction.getDx() == -last.getDx() && direction.getDy() == -last.getDy()) {
+                    back = direction;
+                    continue;
+                }
+                return direction;
+            }
+            return back;
+        }
+        
+        /**
+         * Следующий шаг кратчайшего пути к случайной цели; на месте выбирается новая цель
+         */
+        private Direction pathMove() {
+            for (int attempt = 0; attempt < 16; attempt++) {
+                if (path != null && path.distance(x, y) > 0) {
+                    Direction step = path.nextStep(x, y);
+                    if (step != null && allowed(step)) {
+                        return step;
+                    }
+                }
+                int targetX = random.nextInt(maze.getWidth());
+                int targetY = random.nextInt(maze.getHeight());
+                path = maze.isWall(targetX, targetY) ? null : new PathField(maze, targetX, targetY);
+            }
+            return randomMove();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package game.bench;
+
+import game.model.Maze;
+import game.model.MazeGenerator;
+import game.model.MazeGeneratorFactory;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Время и пиковая память генерации больших лабиринтов
+ * Построчная генерация Maze (сразу в битовую карту) против прежнего пути через boolean[height][width].
+ * Пик - сумма пиковых объёмов пулов кучи сверх занятого до генерации, поэтому это оценка сверху.
+ * Запуск с ограниченной кучей показывает, что 10000x10000 помещается без промежуточного массива:
+ * java -Xmx64m -cp target/benchmarks.jar game.bench.MazeGenerationBenchmark
+ */
+public class MazeGenerationBenchmark {
+    private static final int[] SIZES = {1000, 5000, 10000};
+    private static final long[] SEEDS = {1L, 2L, 42L};
+    private static final int MB = 1024 * 1024;
+    
+    public static void main(String[] args) {
+        PrintStream report = System.out;
+        // Maze печатает строку о генерации на каждый экземпляр, на время замеров глушим вывод
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        
+        report.printf("%-12s %-10s %12s %14s %14s%n",
+            "размер", "генератор", "время, мс", "пик Maze, МБ", "пик boolean[][], МБ");
+        for (int size : SIZES) {
+            for (long seed : SEEDS) {
+                MazeGenerator generator = MazeGeneratorFactory.createGenerator(seed);
+                
+                long baseline = prepare();
+                long start = System.nanoTime();
+                Maze maze = new Maze(size, size, seed);
+                long elapsed = System.nanoTime() - start;
+                long streamingPeak = peakHeap() - baseline;
+                maze = null;
+                
+                String legacyPeak;
+                baseline = prepare();
+                try {
+                    boolean[][] gameCells = generator.generate(size, size);
+                    legacyPeak = String.valueOf((peakHeap() - baseline) / MB);
+                    gameCells = null;
+                } catch (OutOfMemoryError e) {
+                    legacyPeak = "нет памяти";
+                }
+                
+                report.printf("%-12s %-10s %12d %14d %14s%n", size + "x" + size, generator.getName(),
+                    elapsed / 1_000_000, streamingPeak / MB, legacyPeak);
+            }
+        }
+    }
+    
+    /**
+     * Собирает мусор и сбрасывает пики пулов кучи
+     * @return занятая куча перед замером
+     */
+    private static long prepare() {
+        System.gc();
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+    
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
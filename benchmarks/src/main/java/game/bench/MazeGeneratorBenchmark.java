@@ -0,0 +1,106 @@
+package game.bench;
+
+import game.model.Maze;
+import game.model.MazeGenerator;
+import game.model.MazeGeneratorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация лабиринта: выбор генератора фабрикой по seed, построчная генерация каждым
+ * генератором, прежний путь через boolean[][] и полное создание Maze (генерация и упаковка в биты)
+ * Размеры - комната по умолчанию, средний и большой лабиринт
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MazeGeneratorBenchmark {
+    
+    /**
+     * Генератор (0 = Сетка, 1 = Открытый, 2 = Пути, как в MazeGeneratorFactory) и размер лабиринта
+     */
+    @State(Scope.Thread)
+    public static class Generation {
+        @Param({"0", "1", "2"})
+        public int generator;
+        
+        @Param({"40x50", "200x200", "1000x1000"})
+        public String size;
+        
+        int width;
+        int height;
+        long seed;
+        MazeGenerator instance;
+        boolean[] row;
+        
+        @Setup
+        public void setUp() {
+            int[] dimensions = BenchSupport.size(size);
+            width = dimensions[0];
+            height = dimensions[1];
+            instance = MazeGeneratorFactory.createGenerator(generator);
+            row = new boolean[width];
+            // Maze выбирает генератор по seed, подбираем seed, который даёт нужный генератор
+            seed = 0;
+            while (new Random(seed).nextInt(3) != generator) {
+                seed++;
+            }
+        }
+    }
+    
+    /**
+     * Набор seed для фабрики, чтобы не мерить один и тот же путь ветвления
+     */
+    @State(Scope.Thread)
+    public static class Seeds {
+        final long[] values = new long[64];
+        int next;
+        
+        @Setup
+        public void setUp() {
+            Random random = new Random(7);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextLong();
+            }
+        }
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public MazeGenerator createGenerator(Seeds seeds) {
+        seeds.next = (seeds.next + 1) & (seeds.values.length - 1);
+        return MazeGeneratorFactory.createGenerator(seeds.values[seeds.next]);
+    }
+    
+    @Benchmark
+    public boolean[] generateRows(Generation state) {
+        for (int y = 0; y < state.height; y++) {
+            state.instance.generateRow(state.width, state.height, y, state.row);
+        }
+        return state.row;
+    }
+    
+    @Benchmark
+    public boolean[][] generateGrid(Generation state) {
+        return state.instance.generate(state.width, state.height);
+    }
+    
+    @Benchmark
+    public Maze newMaze(Generation state) {
+        return BenchSupport.quietly(() -> new Maze(state.width, state.height, state.seed));
+    }
+}
@@ -0,0 +1,80 @@
+package game.bench;
+
+import game.model.Maze;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Сколько памяти занимает лабиринт одной комнаты
+ * Сравнивает битовую карту Maze с прежним форматом boolean[height * 2 + 1][width * 2 + 1].
+ * Объём измеряется по занятой куче после сборки мусора, поэтому запускать с запасом памяти:
+ * java -Xmx2g -cp target/benchmarks.jar game.bench.MazeMemoryBenchmark
+ */
+public class MazeMemoryBenchmark {
+    private static final int[][] SIZES = {{40, 50}, {1000, 1000}, {10000, 10000}};
+    
+    public static void main(String[] args) {
+        PrintStream report = System.out;
+        // Maze печатает строку о генерации на каждый экземпляр, на время замеров глушим вывод
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        
+        report.printf("%-12s %16s %16s %8s%n", "размер", "bitset, байт", "boolean[][], байт", "выигрыш");
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            int copies = copiesFor(width, height);
+            
+            long packed = measure(copies, () -> new Maze(width, height, 42L));
+            long legacy = measure(copies, () -> new boolean[height * 2 + 1][width * 2 + 1]);
+            
+            report.printf("%-12s %16d %16d %7.1fx%n",
+                width + "x" + height, packed, legacy, (double) legacy / packed);
+        }
+    }
+    
+    /**
+     * Мелкие лабиринты создаём пачкой, чтобы погрешность измерения кучи была незаметна
+     */
+    private static int copiesFor(int width, int height) {
+        long cells = (long) width * height;
+        return (int) Math.max(1, Math.min(200, 10_000_000L / cells));
+    }
+    
+    /**
+     * Средний объём одного объекта: занятая куча с живыми копиями минус куча после их освобождения
+     */
+    private static long measure(int copies, Supplier<Object> factory) {
+        Object[] keep = new Object[copies];
+        for (int i = 0; i < copies; i++) {
+            keep[i] = factory.get();
+        }
+        long withCopies = usedHeap();
+        Arrays.fill(keep, null);
+        long without = usedHeap();
+        return (withCopies - without) / copies;
+    }
+    
+    /**
+     * Занятая куча после сборки мусора: собираем, пока объём перестаёт уменьшаться
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                return used;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,87 @@
+package game.bench;
+
+import game.model.Direction;
+import game.model.Maze;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы к готовому лабиринту: isWall и canMove по случайным клеткам (наносекунд на вызов)
+ * и выбор выхода getFixedExitPosition, который перебирает все клетки при создании комнаты
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MazeQueryBenchmark {
+    private static final int QUERIES = 1024;
+    
+    @Param({"40x50", "1000x1000"})
+    public String size;
+    
+    private Maze maze;
+    private int[] xs;
+    private int[] ys;
+    private Direction[] directions;
+    
+    @Setup
+    public void setUp() {
+        int[] dimensions = BenchSupport.size(size);
+        maze = BenchSupport.quietly(() -> new Maze(dimensions[0], dimensions[1], 42L));
+        xs = new int[QUERIES];
+        ys = new int[QUERIES];
+        directions = new Direction[QUERIES];
+        Random random = new Random(7);
+        Direction[] all = Direction.values();
+        for (int i = 0; i < QUERIES; i++) {
+            xs[i] = random.nextInt(maze.getWidth());
+            ys[i] = random.nextInt(maze.getHeight());
+            directions[i] = all[random.nextInt(all.length)];
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int isWall() {
+        int walls = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            if (maze.isWall(xs[i], ys[i])) {
+                walls++;
+            }
+        }
+        return walls;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int canMove() {
+        int allowed = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            if (maze.canMove(xs[i], ys[i], directions[i])) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int[] getFixedExitPosition() {
+        return maze.getFixedExitPosition();
+    }
+}
@@ -0,0 +1,377 @@
+package game.bench;
+
+import game.metrics.MetricsRegistry;
+import game.model.Direction;
+import game.model.Maze;
+import game.model.Player;
+import game.protocol.BinaryCodec;
+import game.protocol.InPlaceDecoder;
+import game.protocol.InputAck;
+import game.protocol.Message;
+import game.protocol.MessageType;
+import game.protocol.Snapshot;
+import game.protocol.WireFormat;
+import game.server.ClientConnection;
+import game.server.GameRoom;
+import game.server.ServerMetrics;
+import game.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Давление на сборщик мусора на пути хода: разбор PLAYER_MOVE и STATE_ACK в буфере чтения,
+ * проверка и применение хода на тике комнаты, кодирование STATE_UPDATE в буфер записи -
+ * те же вызовы, что делает NioConnection, только без сокета.
+ * Запускать с профилировщиком GC: gc.alloc.rate.norm - байт на ход, в установившемся режиме 0.
+ * predictedMove - ход клиента с предсказанием: номер хода в PLAYER_MOVE и INPUT_ACK в ответ.
+ * legacyMove - для сравнения прежний путь через строки и Message.
+ * metrics=true - то же с метриками комнаты (ServerMetrics): время тика, хода, рассылки и круга до клиента.
+ * main() запускает бенчмарк с -prof gc и завершается с кодом 1, если move или predictedMove выделяет память
+ *
+ * java -cp target/benchmarks.jar game.bench.MoveAllocationBenchmark
+ * java -jar target/benchmarks.jar MoveAllocationBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveAllocationBenchmark {
+    /** Сколько байт на ход считать погрешностью профилировщика, а не выделением */
+    static final double ALLOCATION_TOLERANCE = 1.0;
+    
+    @Param({"BINARY", "TEXT"})
+    WireFormat format;
+    
+    @Param({"false", "true"})
+    boolean metrics;
+    
+    private GameRoom room;
+    private BufferConnection mover;
+    private InPlaceDecoder decoder;
+    private ByteBuffer readBuffer;
+    private byte[] forward;
+    private byte[] back;
+    private Direction forwardDirection;
+    private boolean forwardMove;
+    private int sequence;
+    
+    /**
+     * Соединение, которое кодирует обновления в свой буфер так же, как NioConnection
+     */
+    static final class BufferConnection implements ClientConnection {
+        private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(4096);
+        private final WireFormat format;
+        private int playerId;
+        private GameRoom room;
+        private long lastTick;
+        // Прежний путь: обновление через Message и отдельный массив байт на каждое сообщение
+        private boolean legacy;
+        
+        BufferConnection(WireFormat format) {
+            this.format = format;
+        }
+        
+        @Override
+        public int getPlayerId() {
+            return playerId;
+        }
+        
+        @Override
+        public GameRoom getRoom() {
+            return room;
+        }
+        
+        @Override
+        public void assignRoom(GameRoom room, int playerId) {
+            this.room = room;
+            this.playerId = playerId;
+        }
+        
+        @Override
+        public void sendMessage(Message message) {
+            byte[] bytes = format == WireFormat.BINARY
+                ? BinaryCodec.encode(message)
+                : message.toProtocolString().getBytes(StandardCharsets.UTF_8);
+            writeBuffer.clear();
+            writeBuffer.put(ByteBuffer.wrap(bytes));
+        }
+        
+        @Override
+        public void sendStateUpdate(Snapshot view, Snapshot baseline) {
+            if (legacy) {
+                sendMessage(view.deltaFrom(baseline));
+                lastTick = view.getTick();
+                return;
+            }
+            // Сокет "записал" всё, что было в буфере
+            writeBuffer.clear();
+            view.writeDelta(baseline, writeBuffer, format);
+            lastTick = view.getTick();
+        }
+        
+        @Override
+        public void sendInputAck(int sequence, int x, int y, Direction direction) {
+            writeBuffer.clear();
+            InputAck.write(writeBuffer, format, sequence, x, y, direction);
+        }
+        
+        @Override
+        public void stopHandler() {
+        }
+    }
+    
+    @Setup
+    public void setUp() {
+        // Комната исполняет задачи в вызывающем потоке: бенчмарк сам играет роль шарда
+        room = new GameRoom(1, Constants.ROOM_CAPACITY, Constants.MAZE_WIDTH, Constants.MAZE_HEIGHT, Runnable::run);
+        room.setMetrics(metrics ? new ServerMetrics(new MetricsRegistry(), 1) : null, 0);
+        BufferConnection[] connections = new BufferConnection[Constants.ROOM_CAPACITY];
+        for (int i = 0; i < connections.length; i++) {
+            BufferConnection connection = new BufferConnection(format);
+            room.reserve(connection);
+            // Последний join запускает партию и печатает об этом в консоль
+            connections[i] = BenchSupport.quietly(() -> {
+                room.join(connection);
+                return connection;
+            });
+        }
+        mover = connections[0];
+        decoder = new InPlaceDecoder();
+        readBuffer = ByteBuffer.allocate(256);
+        
+        // Игрок ходит туда-обратно через открытый проход, чтобы каждый тик было обновление
+        Player player = room.getGameState().getPlayer(mover.getPlayerId());
+        Maze maze = room.getGameState().getMaze();
+        Direction open = null;
+        for (Direction direction : Direction.values()) {
+            if (maze.canMove(player.getX(), player.getY(), direction)) {
+                open = direction;
+                break;
+            }
+        }
+        if (open == null) {
+            throw new IllegalStateException("Игрок заперт в стартовой клетке");
+        }
+        forwardDirection = open;
+        forward = encodeMove(mover.getPlayerId(), open);
+        back = encodeMove(mover.getPlayerId(), opposite(open));
+    }
+    
+    private byte[] encodeMove(int playerId, Direction direction) {
+        Message move = new Message(MessageType.PLAYER_MOVE, new String[]{String.valueOf(playerId), direction.getWireName()});
+        if (format == WireFormat.BINARY) {
+            return BinaryCodec.encode(move);
+        }
+        return move.toProtocolString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static Direction opposite(Direction direction) {
+        switch (direction) {
+            case UP:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.UP;
+            case LEFT:
+                return Direction.RIGHT;
+            default:
+                return Direction.LEFT;
+        }
+    }
+    
+    /**
+     * Один ход: клиент прислал ход и подтверждение прошлого обновления, комната сделала тик
+     */
+    @Benchmark
+    public long move() {
+        mover.legacy = false;
+        fillReadBuffer();
+        
+        // Так же, как NioConnection.processInput
+        while (readBuffer.hasRemaining()) {
+            int decoded = decoder.decode(readBuffer, format);
+            if (decoded == InPlaceDecoder.MOVE) {
+                room.handlePlayerMove(mover, decoder.getPlayerId(), decoder.getDirection());
+            } else if (decoded == InPlaceDecoder.ACK) {
+                room.acknowledge(mover, decoder.getTick());
+            } else {
+                throw new IllegalStateException("Сообщение не разобрано на месте");
+            }
+        }
+        room.tick();
+        return mover.lastTick;
+    }
+    
+    /**
+     * Ход клиента с предсказанием: ход с номером, комната подтверждает его INPUT_ACK до обновления
+     */
+    @Benchmark
+    public long predictedMove() {
+        mover.legacy = false;
+        readBuffer.clear();
+        Direction direction = forwardMove ? forwardDirection : opposite(forwardDirection);
+        forwardMove = !forwardMove;
+        writeNumberedMove(readBuffer, mover.getPlayerId(), direction, ++sequence);
+        writeAck(readBuffer, mover.lastTick);
+        readBuffer.flip();
+        
+        while (readBuffer.hasRemaining()) {
+            int decoded = decoder.decode(readBuffer, format);
+            if (decoded == InPlaceDecoder.MOVE) {
+                room.handlePlayerMove(mover, decoder.getPlayerId(), decoder.getDirection(), decoder.getSequence());
+            } else if (decoded == InPlaceDecoder.ACK) {
+                room.acknowledge(mover, decoder.getTick());
+            } else {
+                throw new IllegalStateException("Сообщение не разобрано на месте");
+            }
+        }
+        room.tick();
+        return mover.lastTick;
+    }
+    
+    /**
+     * Тот же ход прежним путём: строка или кадр разбираются в Message, обновление кодируется через Message
+     */
+    @Benchmark
+    public long legacyMove() {
+        mover.legacy = true;
+        fillReadBuffer();
+        
+        while (readBuffer.hasRemaining()) {
+            Message message = format == WireFormat.BINARY ? BinaryCodec.decode(readBuffer) : readLine(readBuffer);
+            room.handleMessage(mover, message);
+        }
+        room.tick();
+        return mover.lastTick;
+    }
+    
+    private void fillReadBuffer() {
+        readBuffer.clear();
+        readBuffer.put(forwardMove ? forward : back);
+        forwardMove = !forwardMove;
+        writeAck(readBuffer, mover.lastTick);
+        readBuffer.flip();
+    }
+    
+    private static Message readLine(ByteBuffer in) {
+        int end = in.position();
+        while (in.get(end) != '\n') {
+            end++;
+        }
+        byte[] bytes = new byte[end - in.position()];
+        in.get(bytes);
+        in.get();
+        return Message.fromProtocolString(new String(bytes, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * PLAYER_MOVE|playerId|direction|sequence в формате бенчмарка без выделения памяти
+     */
+    private void writeNumberedMove(ByteBuffer out, int playerId, Direction direction, int sequence) {
+        if (format == WireFormat.BINARY) {
+            int start = out.position();
+            out.put((byte) 0);
+            out.put((byte) MessageType.PLAYER_MOVE.ordinal());
+            BinaryCodec.writeVarInt(out, playerId);
+            out.put(direction.getCode());
+            BinaryCodec.writeVarInt(out, sequence);
+            out.put(start, (byte) (out.position() - start - 1));
+            return;
+        }
+        writeName(out, MessageType.PLAYER_MOVE);
+        out.put((byte) '|');
+        writeDecimal(out, playerId);
+        out.put((byte) '|');
+        direction.writeWireName(out);
+        out.put((byte) '|');
+        writeDecimal(out, sequence);
+        out.put((byte) '\n');
+    }
+    
+    /**
+     * STATE_ACK|tick в формате бенчмарка без выделения памяти
+     */
+    private void writeAck(ByteBuffer out, long tick) {
+        if (format == WireFormat.BINARY) {
+            int start = out.position();
+            out.put((byte) 0);
+            out.put((byte) MessageType.STATE_ACK.ordinal());
+            BinaryCodec.writeVarLong(out, tick);
+            out.put(start, (byte) (out.position() - start - 1));
+            return;
+        }
+        writeName(out, MessageType.STATE_ACK);
+        out.put((byte) '|');
+        writeDecimal(out, tick);
+        out.put((byte) '\n');
+    }
+    
+    private static void writeName(ByteBuffer out, MessageType type) {
+        for (int i = 0; i < type.name().length(); i++) {
+            out.put((byte) type.name().charAt(i));
+        }
+    }
+    
+    private static void writeDecimal(ByteBuffer out, long value) {
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        do {
+            out.put((byte) ('0' + value / divisor));
+            value %= divisor;
+            divisor /= 10;
+        } while (divisor > 0);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(MoveAllocationBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        Collection<RunResult> results = new Runner(options).run();
+        
+        boolean allocates = false;
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            if (!benchmark.endsWith(".move") && !benchmark.endsWith(".predictedMove")) {
+                continue;
+            }
+            double bytesPerMove = Double.NaN;
+            for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+                if (entry.getKey().endsWith("gc.alloc.rate.norm")) {
+                    bytesPerMove = entry.getValue().getScore();
+                }
+            }
+            boolean ok = bytesPerMove <= ALLOCATION_TOLERANCE;
+            allocates |= !ok;
+            System.out.printf("%s format=%s metrics=%s: %.3f байт на ход%s%n",
+                benchmark.substring(benchmark.lastIndexOf('.') + 1), result.getParams().getParam("format"),
+                result.getParams().getParam("metrics"), bytesPerMove, ok ? "" : "  ВЫДЕЛЯЕТ ПАМЯТЬ");
+        }
+        System.exit(allocates ? 1 : 0);
+    }
+}
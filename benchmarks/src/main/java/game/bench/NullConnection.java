@@ -0,0 +1,43 @@
+package game.bench;
+
+import game.protocol.Message;
+import game.server.ClientConnection;
+import game.server.GameRoom;
+
+/**
+ * Соединение без сокета для бенчмарков: только считает отправленные сообщения
+ */
+public class NullConnection implements ClientConnection {
+    private int playerId;
+    private GameRoom room;
+    private long sent;
+    
+    @Override
+    public int getPlayerId() {
+        return playerId;
+    }
+    
+    @Override
+    public GameRoom getRoom() {
+        return room;
+    }
+    
+    @Override
+    public void assignRoom(GameRoom room, int playerId) {
+        this.room = room;
+        this.playerId = playerId;
+    }
+    
+    @Override
+    public void sendMessage(Message message) {
+        sent++;
+    }
+    
+    @Override
+    public void stopHandler() {
+    }
+    
+    public long getSent() {
+        return sent;
+    }
+}
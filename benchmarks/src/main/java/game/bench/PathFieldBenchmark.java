@@ -0,0 +1,113 @@
+package game.bench;
+
+import game.model.Maze;
+import game.model.PathField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск пути до выхода: прежний BFS Maze.isReachableForCheck на каждый запрос
+ * против PathField - один BFS на лабиринт и дальше запросы за O(1)
+ * Результат - микросекунд на операцию; клетки запросов достижимы из выхода и не совпадают с ним,
+ * поэтому прежний BFS каждый раз доходит до цели
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathFieldBenchmark {
+    private static final int QUERIES = 1024;
+    
+    @Param({"100", "1000"})
+    public int size;
+    
+    private Maze maze;
+    private boolean[][] gameCells;
+    private PathField field;
+    private int exitX;
+    private int exitY;
+    private int[] xs;
+    private int[] ys;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        try {
+            maze = new Maze(size, size, 42L);
+        } finally {
+            System.setOut(out);
+        }
+        int[] exit = maze.getFixedExitPosition();
+        exitX = exit[0];
+        exitY = exit[1];
+        gameCells = maze.convertToGameCellsForCheck();
+        field = new PathField(maze, exitX, exitY);
+        
+        xs = new int[QUERIES];
+        ys = new int[QUERIES];
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; ) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            if (field.distance(x, y) > 0) {
+                xs[i] = x;
+                ys[i] = y;
+                i++;
+            }
+        }
+    }
+    
+    private int nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+    
+    @Benchmark
+    public boolean legacyBfsQuery() {
+        int i = nextQuery();
+        return maze.isReachableForCheck(gameCells, xs[i], ys[i], exitX, exitY);
+    }
+    
+    @Benchmark
+    public PathField buildField() {
+        return new PathField(maze, exitX, exitY);
+    }
+    
+    @Benchmark
+    public int fieldQuery() {
+        int i = nextQuery();
+        return field.distance(xs[i], ys[i]) + field.nextStep(xs[i], ys[i]).ordinal();
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PathFieldBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
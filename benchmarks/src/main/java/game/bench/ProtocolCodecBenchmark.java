@@ -0,0 +1,93 @@
+package game.bench;
+
+import game.model.Direction;
+import game.protocol.BinaryCodec;
+import game.protocol.Message;
+import game.protocol.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость кодирования/разбора PLAYER_POSITION в текстовом и бинарном формате
+ * Размер сообщения в байтах печатает main() перед запуском JMH
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolCodecBenchmark {
+    private Message position;
+    private byte[] textBytes;
+    private ByteBuffer binaryFrame;
+    private ByteBuffer out;
+    
+    @Setup
+    public void setUp() {
+        position = samplePosition();
+        textBytes = position.toProtocolString().getBytes(StandardCharsets.UTF_8);
+        binaryFrame = ByteBuffer.wrap(BinaryCodec.encode(position));
+        out = ByteBuffer.allocate(256);
+    }
+    
+    static Message samplePosition() {
+        return new Message(MessageType.PLAYER_POSITION, new String[]{"2", "13", "7", Direction.RIGHT.getWireName()});
+    }
+    
+    @Benchmark
+    public byte[] textEncode() {
+        return position.toProtocolString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public Message textDecode() {
+        return Message.fromProtocolString(new String(textBytes, StandardCharsets.UTF_8));
+    }
+    
+    @Benchmark
+    public ByteBuffer binaryEncode() {
+        out.clear();
+        BinaryCodec.encode(position, out);
+        return out;
+    }
+    
+    @Benchmark
+    public ByteBuffer binaryEncodeTyped() {
+        out.clear();
+        BinaryCodec.encodePlayerPosition(out, 2, 13, 7, Direction.RIGHT);
+        return out;
+    }
+    
+    @Benchmark
+    public Message binaryDecode() {
+        binaryFrame.rewind();
+        return BinaryCodec.decode(binaryFrame);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        Message message = samplePosition();
+        System.out.println("PLAYER_POSITION, байт на сообщение: текст = "
+            + message.toProtocolString().getBytes(StandardCharsets.UTF_8).length
+            + ", бинарный = " + BinaryCodec.encode(message).length);
+        
+        new Runner(new OptionsBuilder()
+            .include(ProtocolCodecBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,142 @@
+package game.bench;
+
+import game.model.Direction;
+import game.model.GameState;
+import game.model.Maze;
+import game.model.Player;
+import game.ui.GamePanel;
+import game.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кадр окна игры с другими игроками в зоне видимости (микросекунд на кадр, с -prof gc - байт на кадр)
+ * Каждый другой игрок ходит туда-обратно через открытый проход, позиции приходят раз в тик
+ * (каждый третий кадр при 60 кадрах и 20 тиках в секунду), между ними GamePanel сглаживает движение.
+ * Байт на кадр не должны расти с числом игроков. Рисование идёт в BufferedImage без окна (java.awt.headless)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RemotePlayersRenderBenchmark {
+    private static final int MAZE_SIZE = 201;
+    private static final int RADIUS = 10;
+    private static final int FRAMES_PER_TICK = 3;
+    
+    @Param({"0", "16", "64"})
+    int players;
+    
+    private GamePanel panel;
+    private BufferedImage frame;
+    private Graphics2D graphics;
+    private int[] remoteX;
+    private int[] remoteY;
+    private Direction[] remoteDirection;
+    private boolean forward;
+    private int frames;
+    
+    @Setup
+    public void setUp() {
+        Maze maze = BenchSupport.quietly(() -> new Maze(MAZE_SIZE, MAZE_SIZE, 42L));
+        GameState gameState = new GameState();
+        gameState.initialize(maze, MAZE_SIZE - 2, MAZE_SIZE - 2);
+        int center = MAZE_SIZE / 2;
+        Player player = new Player(0, center, center);
+        gameState.addPlayer(player);
+        
+        panel = new GamePanel();
+        panel.setSize(Constants.GAME_PANEL_WIDTH, Constants.GAME_PANEL_HEIGHT);
+        panel.setVisibilityRadius(RADIUS);
+        panel.setGameState(gameState, player.getId());
+        
+        // Другие игроки в проходах вокруг своего, каждый с открытым направлением для челнока
+        Random random = new Random(7);
+        remoteX = new int[players];
+        remoteY = new int[players];
+        remoteDirection = new Direction[players];
+        for (int i = 0; i < players; i++) {
+            while (remoteDirection[i] == null) {
+                int x = center - RADIUS + random.nextInt(2 * RADIUS);
+                int y = center - RADIUS + random.nextInt(2 * RADIUS);
+                if (maze.isWall(x, y)) {
+                    continue;
+                }
+                for (Direction direction : Direction.values()) {
+                    if (maze.canMove(x, y, direction)) {
+                        remoteX[i] = x;
+                        remoteY[i] = y;
+                        remoteDirection[i] = direction;
+                        break;
+                    }
+                }
+            }
+            panel.remotePlayerMoved(i + 1, System.currentTimeMillis(), remoteX[i], remoteY[i], remoteDirection[i]);
+        }
+        
+        frame = new BufferedImage(Constants.GAME_PANEL_WIDTH, Constants.GAME_PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = frame.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+    
+    @Benchmark
+    public BufferedImage frame() {
+        if (++frames % FRAMES_PER_TICK == 0) {
+            // Тик сервера: каждый игрок шагает вперёд или обратно
+            forward = !forward;
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < players; i++) {
+                Direction direction = forward ? remoteDirection[i] : opposite(remoteDirection[i]);
+                int x = forward ? remoteX[i] + direction.getDx() : remoteX[i];
+                int y = forward ? remoteY[i] + direction.getDy() : remoteY[i];
+                panel.remotePlayerMoved(i + 1, now, x, y, direction);
+            }
+        }
+        panel.paint(graphics);
+        return frame;
+    }
+    
+    private static Direction opposite(Direction direction) {
+        switch (direction) {
+            case UP:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.UP;
+            case LEFT:
+                return Direction.RIGHT;
+            default:
+                return Direction.LEFT;
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(RemotePlayersRenderBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,152 @@
+package game.bench;
+
+import game.model.ExitPlacement;
+import game.model.ExitSelector;
+import game.model.Maze;
+import game.model.MazeCache;
+import game.server.GameRoom;
+import game.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка создания комнаты на больших лабиринтах и её часть - выбор выхода
+ * legacyExit - прежний перебор всех клеток со списком int[] на каждую подходящую,
+ * manhattanExit и pathExit - ExitSelector, createRoom - от new GameRoom до начала партии
+ * (генерация лабиринта, выбор выхода, поле расстояний, сетка видимости).
+ * generateMaze и cachedMaze - лабиринт заново и из MazeCache при повторном seed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomCreationBenchmark {
+    
+    /**
+     * Готовый лабиринт для выбора выхода
+     */
+    @State(Scope.Thread)
+    public static class Sized {
+        @Param({"200x200", "1000x1000", "2000x2000"})
+        public String size;
+        
+        Maze maze;
+        MazeCache cache;
+        
+        @Setup
+        public void setUp() {
+            int[] dimensions = BenchSupport.size(size);
+            maze = BenchSupport.quietly(() -> new Maze(dimensions[0], dimensions[1], 42L));
+            cache = new MazeCache(Constants.MAZE_CACHE_SIZE);
+            BenchSupport.quietly(() -> cache.get(dimensions[0], dimensions[1], 42L));
+        }
+    }
+    
+    /**
+     * Параметры новой комнаты
+     */
+    @State(Scope.Thread)
+    public static class RoomParams {
+        @Param({"200x200", "1000x1000", "2000x2000"})
+        public String size;
+        
+        @Param({"MANHATTAN", "PATH"})
+        public ExitPlacement placement;
+        
+        int width;
+        int height;
+        int nextId;
+        
+        @Setup
+        public void setUp() {
+            int[] dimensions = BenchSupport.size(size);
+            width = dimensions[0];
+            height = dimensions[1];
+        }
+    }
+    
+    @Benchmark
+    public Maze generateMaze(Sized state) {
+        return BenchSupport.quietly(() -> new Maze(state.maze.getWidth(), state.maze.getHeight(), 42L));
+    }
+    
+    @Benchmark
+    public Maze cachedMaze(Sized state) {
+        return state.cache.get(state.maze.getWidth(), state.maze.getHeight(), 42L);
+    }
+    
+    @Benchmark
+    public int[] legacyExit(Sized state) {
+        return legacyExitPosition(state.maze);
+    }
+    
+    @Benchmark
+    public int[] manhattanExit(Sized state) {
+        return new ExitSelector(state.maze).select(ExitPlacement.MANHATTAN);
+    }
+    
+    @Benchmark
+    public int[] pathExit(Sized state) {
+        return new ExitSelector(state.maze).select(ExitPlacement.PATH);
+    }
+    
+    /**
+     * Комната заполняется двумя игроками, второй join запускает партию в вызывающем потоке
+     */
+    @Benchmark
+    public GameRoom createRoom(RoomParams params) {
+        GameRoom room = new GameRoom(params.nextId++, 2, params.width, params.height, params.placement, Runnable::run);
+        return BenchSupport.quietly(() -> {
+            for (int i = 0; i < 2; i++) {
+                NullConnection connection = new NullConnection();
+                room.reserve(connection);
+                room.join(connection);
+            }
+            return room;
+        });
+    }
+    
+    /**
+     * Прежний Maze.getFixedExitPosition без запасного поиска по спирали (подходящие клетки есть всегда)
+     */
+    static int[] legacyExitPosition(Maze maze) {
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+        Random random = new Random(maze.getSeed());
+        List<int[]> validPositions = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int dist1 = x + y;
+                int dist2 = (width - 1 - x) + (height - 1 - y);
+                if (dist1 >= 10 && dist2 >= 10 && !maze.isWall(x, y)) {
+                    validPositions.add(new int[]{x, y});
+                }
+            }
+        }
+        return validPositions.get(random.nextInt(validPositions.size()));
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(RoomCreationBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
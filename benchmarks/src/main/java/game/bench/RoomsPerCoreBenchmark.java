@@ -0,0 +1,110 @@
+package game.bench;
+
+import game.model.Direction;
+import game.protocol.Message;
+import game.protocol.MessageType;
+import game.server.GameRoom;
+import game.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сколько комнат помещается на одно ядро при фиксированном бюджете тика
+ * Один вызов - ход каждого игрока и тик каждой комнаты в одном потоке (одно ядро),
+ * main() пересчитывает результат в число комнат на ядро для бюджета TICK_BUDGET_MS
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomsPerCoreBenchmark {
+    /** Бюджет одного тика: 20 тиков в секунду */
+    static final double TICK_BUDGET_MS = 50.0;
+    
+    @Param({"100", "1000"})
+    int rooms;
+    
+    private GameRoom[] roomArray;
+    private NullConnection[][] connections;
+    private Message[][] forward;
+    private Message[][] back;
+    private boolean forwardRound;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        roomArray = new GameRoom[rooms];
+        connections = new NullConnection[rooms][Constants.ROOM_CAPACITY];
+        for (int i = 0; i < rooms; i++) {
+            // Комната исполняет задачи в вызывающем потоке: бенчмарк сам играет роль шарда
+            GameRoom room = new GameRoom(i, Constants.ROOM_CAPACITY, Constants.MAZE_WIDTH, Constants.MAZE_HEIGHT, Runnable::run);
+            for (int p = 0; p < Constants.ROOM_CAPACITY; p++) {
+                NullConnection connection = new NullConnection();
+                room.reserve(connection);
+                room.join(connection);
+                connections[i][p] = connection;
+            }
+            roomArray[i] = room;
+        }
+        
+        // Игроки ходят туда-обратно, чтобы не дойти до выхода
+        forward = new Message[Constants.ROOM_CAPACITY][];
+        back = new Message[Constants.ROOM_CAPACITY][];
+        for (int p = 0; p < Constants.ROOM_CAPACITY; p++) {
+            String pid = String.valueOf(p + 1);
+            boolean topLeft = p % 2 == 0;
+            forward[p] = new Message[]{new Message(MessageType.PLAYER_MOVE, new String[]{pid, (topLeft ? Direction.RIGHT : Direction.UP).getWireName()})};
+            back[p] = new Message[]{new Message(MessageType.PLAYER_MOVE, new String[]{pid, (topLeft ? Direction.LEFT : Direction.DOWN).getWireName()})};
+        }
+    }
+    
+    @Benchmark
+    public void moveRound(Blackhole bh) {
+        Message[][] moves = forwardRound ? forward : back;
+        forwardRound = !forwardRound;
+        for (int i = 0; i < roomArray.length; i++) {
+            GameRoom room = roomArray[i];
+            NullConnection[] roomConnections = connections[i];
+            for (int p = 0; p < roomConnections.length; p++) {
+                room.handleMessage(roomConnections[p], moves[p][0]);
+            }
+            room.tick();
+        }
+        bh.consume(roomArray[0].getGameState());
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(RoomsPerCoreBenchmark.class.getSimpleName())
+            .build();
+        Collection<RunResult> results = new Runner(options).run();
+        
+        for (RunResult result : results) {
+            int roomCount = Integer.parseInt(result.getParams().getParam("rooms"));
+            double roundMicros = result.getPrimaryResult().getScore();
+            double perRoomMs = roundMicros / 1000.0 / roomCount;
+            System.out.printf("rooms=%d: %.3f мкс на комнату, комнат на ядро при тике %.0f мс: %.0f%n",
+                roomCount, perRoomMs * 1000.0, TICK_BUDGET_MS, TICK_BUDGET_MS / perRoomMs);
+        }
+    }
+}
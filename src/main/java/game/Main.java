@@ -1,11 +1,19 @@
 package game;
 
+import game.server.DedicatedServer;
 import game.ui.GameWindow;
 
 import javax.swing.*;
+import java.util.Arrays;
 
 public class Main {
     public static void main(String[] args) {
+        // Выделенный сервер без окна: java -jar game.jar --headless --port=12345 ...
+        if (args.length > 0 && args[0].equals("--headless")) {
+            DedicatedServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
@@ -0,0 +1,57 @@
+package game.client;
+
+import game.metrics.Histogram;
+import game.metrics.MessageCounters;
+import game.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики клиента: трафик, круг до сервера по подтверждению хода и поправки предсказания
+ * Круг считается от отправки хода с номером до INPUT_ACK с тем же номером, поэтому он есть
+ * только с предсказанием (setPrediction). Несколько клиентов (ботов) могут делить одни метрики.
+ * Время - в наносекундах
+ */
+public final class ClientMetrics {
+    private static final String PREFIX = "client_";
+    
+    final MessageCounters traffic;
+    final Histogram inputAckRttNanos;
+    final LongAdder corrections;
+    
+    public ClientMetrics(MetricsRegistry registry) {
+        traffic = new MessageCounters(registry, PREFIX);
+        inputAckRttNanos = registry.histogram(PREFIX + "input_ack_rtt_nanos",
+            "Круг до сервера: от отправки хода до его INPUT_ACK, нс");
+        corrections = registry.counter(PREFIX + "prediction_corrections_total",
+            "Подтверждения ходов, после которых предсказанная позиция поправлена");
+    }
+    
+    /**
+     * Время отправки последних ходов одного клиента: ячейка sequence % размер
+     * Ход пишет поток окна, подтверждение читает поток чтения
+     */
+    static final class SentMoves {
+        private final int[] sequences;
+        private final long[] sentNanos;
+        
+        SentMoves(int capacity) {
+            this.sequences = new int[capacity];
+            this.sentNanos = new long[capacity];
+        }
+        
+        synchronized void sent(int sequence, long nanos) {
+            int slot = sequence % sequences.length;
+            sequences[slot] = sequence;
+            sentNanos[slot] = nanos;
+        }
+        
+        /**
+         * @return время отправки хода или -1, если его уже вытеснили более новые
+         */
+        synchronized long sentAt(int sequence) {
+            int slot = sequence % sequences.length;
+            return sequence > 0 && sequences[slot] == sequence ? sentNanos[slot] : -1;
+        }
+    }
+}
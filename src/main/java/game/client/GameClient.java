@@ -1,60 +1,162 @@
 package game.client;
 
+import game.metrics.CountingInputStream;
+import game.metrics.CountingOutputStream;
+import game.model.Direction;
 import game.model.GameState;
 import game.model.Maze;
+import game.model.MazeCache;
 import game.model.Player;
 import game.protocol.Message;
 import game.protocol.MessageType;
 import game.protocol.ProtocolParser;
+import game.protocol.Snapshot;
+import game.protocol.SnapshotHistory;
+import game.protocol.WireFormat;
+import game.utils.ConnectionThreads;
 import game.utils.Constants;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class GameClient extends Thread {
+/**
+ * Клиент: блокирующий цикл чтения в своём потоке - обычном или виртуальном (setThreadFactory)
+ * Запись под ReentrantLock, а не synchronized, чтобы виртуальный поток не держал поток-носитель.
+ * С предсказанием (setPrediction) свой ход применяется сразу, а не после ответа сервера (MovePrediction).
+ * С метриками (setMetrics) считаются сообщения, байты и круг до сервера по подтверждению хода
+ */
+public class GameClient implements Runnable {
     private String host;
     private int port;
     private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private OutputStream out;
+    private InputStream in;
+    private WireFormat preferredFormat;
+    private volatile WireFormat readFormat = WireFormat.TEXT;
+    private WireFormat writeFormat = WireFormat.TEXT;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private ThreadFactory threadFactory = ConnectionThreads.platform(false);
     private GameState gameState;
+    private final SnapshotHistory snapshots = new SnapshotHistory(Constants.SNAPSHOT_HISTORY);
+    private Snapshot visible = Snapshot.EMPTY;
     private ClientMessageListener listener;
-    private boolean running;
-    private int playerId;
+    private volatile boolean running;
+    private volatile int playerId;
+    // null - предсказание выключено, свой игрок двигается только по сообщениям сервера
+    private volatile MovePrediction prediction;
+    // null - метрики выключены
+    private ClientMetrics metrics;
+    private ClientMetrics.SentMoves sentMoves;
     
     public interface ClientMessageListener {
-        void onGameStart(int playerId, long mazeSeed, int startX, int startY, int exitX, int exitY);
-        void onPositionUpdate(int playerId, int x, int y, String direction);
+        void onGameStart(int playerId, long mazeSeed, int mazeWidth, int mazeHeight, int startX, int startY, int exitX, int exitY);
+        void onPositionUpdate(int playerId, int x, int y, Direction direction);
         void onGameEnd(int winnerId, long time);
+        
+        /**
+         * Другой игрок вошёл в зону видимости
+         */
+        default void onPlayerEnter(int playerId, int x, int y, Direction direction) {
+        }
+        
+        /**
+         * Другой игрок вышел из зоны видимости
+         */
+        default void onPlayerLeave(int playerId) {
+        }
     }
     
     public GameClient(String host, int port, ClientMessageListener listener) {
+        this(host, port, listener, WireFormat.TEXT);
+    }
+    
+    /**
+     * @param preferredFormat формат, который клиент запросит у сервера после подключения
+     */
+    public GameClient(String host, int port, ClientMessageListener listener, WireFormat preferredFormat) {
         this.host = host;
         this.port = port;
         this.listener = listener;
+        this.preferredFormat = preferredFormat;
         this.running = false;
         this.gameState = new GameState();
     }
     
+    /**
+     * Поток для цикла чтения; задаётся до start()
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+    
+    /**
+     * Предсказание своих ходов: ход виден сразу, без круга до сервера и обратно
+     * Сервер без поддержки INPUT_ACK просто не подтверждает ходы, и позиция идёт по его обновлениям
+     */
+    public void setPrediction(boolean enabled) {
+        prediction = enabled ? new MovePrediction(Constants.PREDICTED_MOVES) : null;
+    }
+    
+    /**
+     * Метрики клиента; задаются до start(), null - без метрик
+     */
+    public void setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+        this.sentMoves = metrics != null ? new ClientMetrics.SentMoves(Constants.PREDICTED_MOVES) : null;
+    }
+    
+    /**
+     * Подключается к серверу и читает сообщения в потоке из фабрики
+     */
+    public void start() {
+        Thread thread = threadFactory.newThread(this);
+        thread.setName("game-client-" + host + ":" + port);
+        thread.start();
+    }
+    
     @Override
     public void run() {
         try {
             socket = new Socket(host, port);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            OutputStream socketOut = socket.getOutputStream();
+            InputStream socketIn = socket.getInputStream();
+            if (metrics != null) {
+                socketOut = new CountingOutputStream(socketOut, metrics.traffic.getBytesSent());
+                socketIn = new CountingInputStream(socketIn, metrics.traffic.getBytesReceived());
+            }
+            out = new BufferedOutputStream(socketOut);
+            in = new BufferedInputStream(socketIn);
             running = true;
             
             System.out.println("Подключено к серверу: " + host + ":" + port);
             
+            if (preferredFormat != WireFormat.TEXT) {
+                // Сервер читает в новом формате сразу после запроса, поэтому пишем в нём тоже сразу;
+                // читать в новом формате начинаем после подтверждения
+                writeLock.lock();
+                try {
+                    send(ProtocolParser.formatAck(preferredFormat));
+                    writeFormat = preferredFormat;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            
             // Обрабатываем сообщения от сервера
             while (running) {
-                Message message = ProtocolParser.receiveMessage(in);
+                Message message = ProtocolParser.receiveMessage(in, readFormat);
                 if (message == null) {
                     break;
                 }
+                if (metrics != null) {
+                    metrics.traffic.received(message.getType());
+                }
                 
                 handleMessage(message);
             }
@@ -76,9 +178,21 @@ public class GameClient extends Thread {
             case PLAYER_POSITION:
                 handlePositionUpdate(message);
                 break;
+            case STATE_UPDATE:
+                handleStateUpdate(message);
+                break;
+            case INPUT_ACK:
+                handleInputAck(message);
+                break;
             case GAME_END:
                 handleGameEnd(message);
                 break;
+            case PROTOCOL:
+                WireFormat format = ProtocolParser.requestedFormat(message);
+                if (format != null) {
+                    readFormat = format;
+                }
+                break;
         }
     }
     
@@ -95,18 +209,25 @@ public class GameClient extends Thread {
             int startY = Integer.parseInt(data[3]);
             int exitX = Integer.parseInt(data[4]);
             int exitY = Integer.parseInt(data[5]);
+            // Старый сервер не передаёт размер лабиринта
+            int mazeWidth = data.length > 7 ? Integer.parseInt(data[6]) : Constants.MAZE_WIDTH;
+            int mazeHeight = data.length > 7 ? Integer.parseInt(data[7]) : Constants.MAZE_HEIGHT;
             
             this.playerId = pid;
+            MovePrediction current = prediction;
+            if (current != null) {
+                current.reset();
+            }
             
-            // Инициализируем состояние игры
-            Maze maze = new Maze(Constants.MAZE_WIDTH, Constants.MAZE_HEIGHT, seed);
+            // Инициализируем состояние игры; GameWindow возьмёт тот же лабиринт из кэша
+            Maze maze = MazeCache.shared().get(mazeWidth, mazeHeight, seed);
             gameState.initialize(maze, exitX, exitY);
             
             Player player = new Player(pid, startX, startY);
             gameState.addPlayer(player);
             
             if (listener != null) {
-                listener.onGameStart(pid, seed, startX, startY, exitX, exitY);
+                listener.onGameStart(pid, seed, mazeWidth, mazeHeight, startX, startY, exitX, exitY);
             }
         } catch (NumberFormatException e) {
             System.err.println("Неверные данные начала игры: " + e.getMessage());
@@ -123,19 +244,144 @@ public class GameClient extends Thread {
             int pid = Integer.parseInt(data[0]);
             int x = Integer.parseInt(data[1]);
             int y = Integer.parseInt(data[2]);
-            String direction = data[3];
-            
-            Player player = gameState.getPlayer(pid);
-            if (player != null) {
-                player.setPosition(x, y);
-                player.setDirection(direction);
-                
+            Direction direction = Direction.fromWireName(data[3]);
+            if (direction == null) {
+                System.err.println("Неизвестное направление в позиции: " + data[3]);
+                return;
+            }
+            if (!isPredicted(pid)) {
+                applyPosition(pid, x, y, direction);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Неверные данные позиции: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Обновление за тик сервера: разница с подтверждённым снимком зоны видимости
+     * Восстанавливаем снимок, сравниваем с предыдущим (вход, выход, движение) и подтверждаем получение
+     */
+    private void handleStateUpdate(Message message) {
+        Snapshot snapshot;
+        try {
+            Snapshot baseline = snapshots.get(Snapshot.baseTickOf(message));
+            if (baseline == null) {
+                System.err.println("Нет базового снимка для обновления состояния");
+                return;
+            }
+            snapshot = Snapshot.applyDelta(baseline, message);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Неверное обновление состояния: " + e.getMessage());
+            return;
+        }
+        snapshots.put(snapshot);
+        
+        for (int i = 0; i < visible.size(); i++) {
+            int pid = visible.getPlayerId(i);
+            if (snapshot.indexOf(pid) < 0 && pid != playerId) {
+                gameState.removePlayer(pid);
                 if (listener != null) {
-                    listener.onPositionUpdate(pid, x, y, direction);
+                    listener.onPlayerLeave(pid);
                 }
             }
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            int pid = snapshot.getPlayerId(i);
+            int x = snapshot.getX(i);
+            int y = snapshot.getY(i);
+            Direction direction = snapshot.getDirection(i);
+            if (gameState.getPlayer(pid) == null) {
+                Player player = new Player(pid, x, y);
+                player.move(x, y, direction);
+                gameState.addPlayer(player);
+                if (listener != null) {
+                    listener.onPlayerEnter(pid, x, y, direction);
+                }
+            } else if (!isPredicted(pid)
+                && (visible.indexOf(pid) < 0 || !samePosition(visible, visible.indexOf(pid), x, y, direction))) {
+                applyPosition(pid, x, y, direction);
+            }
+        }
+        visible = snapshot;
+        
+        send(new Message(MessageType.STATE_ACK, new String[]{String.valueOf(snapshot.getTick())}));
+    }
+    
+    /**
+     * Свою позицию при подтверждаемом предсказании ведёт INPUT_ACK: снимок не знает о ходах,
+     * которые ещё в пути к серверу, и откатывал бы игрока назад
+     */
+    private boolean isPredicted(int pid) {
+        MovePrediction current = prediction;
+        return pid == playerId && current != null && current.isAcknowledged();
+    }
+    
+    /**
+     * Сервер учёл ходы до номера из сообщения: ставим игрока в его позицию и повторяем остальные ходы
+     */
+    private void handleInputAck(Message message) {
+        MovePrediction current = prediction;
+        String[] data = message.getData();
+        if (current == null || data.length < 4) {
+            return;
+        }
+        
+        try {
+            int sequence = Integer.parseInt(data[0]);
+            int x = Integer.parseInt(data[1]);
+            int y = Integer.parseInt(data[2]);
+            Direction direction = Direction.fromWireName(data[3]);
+            if (direction == null) {
+                System.err.println("Неизвестное направление в подтверждении ходов: " + data[3]);
+                return;
+            }
+            Player player = gameState.getPlayer(playerId);
+            if (player == null || gameState.getMaze() == null) {
+                return;
+            }
+            long before = player.getState();
+            current.reconcile(gameState.getMaze(), player, sequence, x, y, direction);
+            if (metrics != null) {
+                recordInputAck(sequence, player.getState() != before);
+            }
+            notifyIfMoved(player, before);
         } catch (NumberFormatException e) {
-            System.err.println("Неверные данные позиции: " + e.getMessage());
+            System.err.println("Неверные данные подтверждения ходов: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * @param corrected позиция после сверки отличается от предсказанной
+     */
+    private void recordInputAck(int sequence, boolean corrected) {
+        long sentAt = sentMoves.sentAt(sequence);
+        if (sentAt >= 0) {
+            metrics.inputAckRttNanos.record(System.nanoTime() - sentAt);
+        }
+        if (corrected) {
+            metrics.corrections.increment();
+        }
+    }
+    
+    private void notifyIfMoved(Player player, long before) {
+        long state = player.getState();
+        if (state != before && listener != null) {
+            listener.onPositionUpdate(player.getId(), Player.xOf(state), Player.yOf(state), Player.directionOf(state));
+        }
+    }
+    
+    private static boolean samePosition(Snapshot snapshot, int index, int x, int y, Direction direction) {
+        return snapshot.getX(index) == x && snapshot.getY(index) == y && snapshot.getDirection(index) == direction;
+    }
+    
+    private void applyPosition(int pid, int x, int y, Direction direction) {
+        Player player = gameState.getPlayer(pid);
+        if (player != null) {
+            player.move(x, y, direction);
+            
+            if (listener != null) {
+                listener.onPositionUpdate(pid, x, y, direction);
+            }
         }
     }
     
@@ -157,22 +403,62 @@ public class GameClient extends Thread {
         }
     }
     
-    public void sendMove(String direction) {
+    public void sendMove(Direction direction) {
         if (out != null && running) {
+            MovePrediction current = prediction;
+            Player player = gameState.getPlayer(playerId);
+            if (current != null && player != null && gameState.isGameStarted()
+                && !gameState.isGameEnded() && !player.isFinished()) {
+                // Ход виден сразу, сервер подтвердит его по номеру
+                long before = player.getState();
+                int sequence = current.predict(gameState.getMaze(), player, direction);
+                if (metrics != null) {
+                    sentMoves.sent(sequence, System.nanoTime());
+                }
+                notifyIfMoved(player, before);
+                send(new Message(MessageType.PLAYER_MOVE, new String[]{
+                    String.valueOf(playerId),
+                    direction.getWireName(),
+                    String.valueOf(sequence)
+                }));
+                return;
+            }
             String[] data = {
                 String.valueOf(playerId),
-                direction
+                direction.getWireName()
             };
             Message msg = new Message(MessageType.PLAYER_MOVE, data);
-            ProtocolParser.sendMessage(out, msg);
+            send(msg);
         }
     }
     
+    /**
+     * Сколько своих ходов ждут подтверждения сервера (0 без предсказания)
+     */
+    public int getPendingMoves() {
+        MovePrediction current = prediction;
+        return current != null ? current.getPending() : 0;
+    }
+    
     public void requestSync() {
         if (out != null && running) {
             String[] data = {String.valueOf(playerId)};
             Message msg = new Message(MessageType.SYNC_REQUEST, data);
-            ProtocolParser.sendMessage(out, msg);
+            send(msg);
+        }
+    }
+    
+    private void send(Message message) {
+        writeLock.lock();
+        try {
+            ProtocolParser.sendMessage(out, message, writeFormat);
+            if (metrics != null) {
+                metrics.traffic.sent(message.getType());
+            }
+        } catch (IOException e) {
+            System.err.println("Ошибка отправки: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
         }
     }
     
@@ -0,0 +1,96 @@
+package game.client;
+
+import game.model.Direction;
+import game.model.Maze;
+import game.model.Player;
+
+/**
+ * Предсказание своих ходов на клиенте
+ * Ход применяется к своему игроку сразу, по тому же Maze.canMove, что и на сервере, и хранится
+ * с номером до подтверждения. На INPUT_ACK подтверждённые ходы отбрасываются, игрок ставится
+ * в позицию сервера, а оставшиеся ходы повторяются поверх неё. Если сервер согласен, игрок не
+ * дёргается; если нет (ход отброшен лимитом ввода), позиция сходится к серверной на первом же
+ * подтверждении. Ход приходит из потока окна, подтверждение - из потока чтения
+ */
+final class MovePrediction {
+    private final int[] sequences;
+    private final Direction[] directions;
+    private int head;
+    private int size;
+    private int nextSequence = 1;
+    // Сервер подтверждает ходы: с этого момента свою позицию ведут только предсказание и INPUT_ACK
+    private boolean acknowledged;
+    
+    MovePrediction(int capacity) {
+        this.sequences = new int[capacity];
+        this.directions = new Direction[capacity];
+    }
+    
+    /**
+     * Применяет ход к игроку и запоминает его до подтверждения
+     * @return номер хода для PLAYER_MOVE
+     */
+    synchronized int predict(Maze maze, Player player, Direction direction) {
+        if (size == sequences.length) {
+            // Сервер давно не отвечает: самый старый ход повторить уже не получится
+            head = (head + 1) % sequences.length;
+            size--;
+        }
+        int sequence = nextSequence++;
+        int tail = (head + size) % sequences.length;
+        sequences[tail] = sequence;
+        directions[tail] = direction;
+        size++;
+        apply(maze, player, direction);
+        return sequence;
+    }
+    
+    /**
+     * Сверка с сервером: ходы до sequence включительно учтены, и игрок после них в x, y
+     */
+    synchronized void reconcile(Maze maze, Player player, int sequence, int x, int y, Direction direction) {
+        acknowledged = true;
+        while (size > 0 && sequences[head] <= sequence) {
+            directions[head] = null;
+            head = (head + 1) % sequences.length;
+            size--;
+        }
+        player.move(x, y, direction);
+        for (int i = 0; i < size; i++) {
+            apply(maze, player, directions[(head + i) % sequences.length]);
+        }
+    }
+    
+    /**
+     * Новая партия: неподтверждённые ходы относились к прошлой
+     */
+    synchronized void reset() {
+        for (int i = 0; i < sequences.length; i++) {
+            directions[i] = null;
+        }
+        head = 0;
+        size = 0;
+        acknowledged = false;
+    }
+    
+    synchronized boolean isAcknowledged() {
+        return acknowledged;
+    }
+    
+    /**
+     * Сколько ходов ещё ждут подтверждения
+     */
+    synchronized int getPending() {
+        return size;
+    }
+    
+    private static void apply(Maze maze, Player player, Direction direction) {
+        long state = player.getState();
+        int x = Player.xOf(state);
+        int y = Player.yOf(state);
+        // Сервер не меняет ни позицию, ни направление, если ход упирается в стену
+        if (maze.canMove(x, y, direction)) {
+            player.move(x + direction.getDx(), y + direction.getDy(), direction);
+        }
+    }
+}
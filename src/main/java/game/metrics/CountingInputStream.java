@@ -0,0 +1,44 @@
+package game.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Поток чтения, который прибавляет прочитанные байты к счётчику
+ * Ставится под BufferedInputStream, чтобы учёт шёл раз на чтение из сокета, а не на байт
+ */
+public final class CountingInputStream extends FilterInputStream {
+    private final LongAdder bytes;
+    
+    public CountingInputStream(InputStream in, LongAdder bytes) {
+        super(in);
+        this.bytes = bytes;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            bytes.increment();
+        }
+        return b;
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = in.read(buffer, offset, length);
+        if (read > 0) {
+            bytes.add(read);
+        }
+        return read;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        bytes.add(skipped);
+        return skipped;
+    }
+}
@@ -0,0 +1,32 @@
+package game.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Поток записи, который прибавляет записанные байты к счётчику
+ * Ставится под BufferedOutputStream, чтобы учёт шёл раз на запись в сокет, а не на байт.
+ * write(byte[], int, int) переопределён: FilterOutputStream писал бы массив по одному байту
+ */
+public final class CountingOutputStream extends FilterOutputStream {
+    private final LongAdder bytes;
+    
+    public CountingOutputStream(OutputStream out, LongAdder bytes) {
+        super(out);
+        this.bytes = bytes;
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytes.increment();
+    }
+    
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+        bytes.add(length);
+    }
+}
@@ -0,0 +1,100 @@
+package game.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасная гистограмма неотрицательных значений с относительной точностью около 1.5%
+ * Корзины лог-линейные, как в HdrHistogram: до 64 по одной на значение, дальше 64 корзины
+ * на каждую степень двойки до 2^MAX_EXPONENT. Запись - инкремент корзины и суммы
+ * без блокировок и выделений памяти, поэтому её можно делать на каждом ходе и тике.
+ * Процентили считаются по копии корзин при чтении и выделяют память только там
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 44;
+    
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        counts.incrementAndGet(indexOf(clamped));
+        sum.add(clamped);
+        max.accumulate(clamped);
+    }
+    
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+    
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+    
+    public long getSum() {
+        return sum.sum();
+    }
+    
+    /**
+     * Точный максимум записанных значений
+     */
+    public long getMax() {
+        return max.get();
+    }
+    
+    /**
+     * Значение, не меньше которого доля quantile всех записей (верхняя граница корзины)
+     * @return 0, если записей нет
+     */
+    public long percentile(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                // Верхняя граница корзины не больше настоящего максимума
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+    
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(value));
+        int sub = (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+    
+    private static long upperBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        int sub = index % SUB_COUNT;
+        return ((long) (SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,50 @@
+package game.metrics;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики JVM: паузы сборщика мусора и занятая куча
+ * Паузы приходят уведомлениями GarbageCollectorMXBean после каждой сборки, поэтому их запись
+ * ничего не стоит между сборками. Фоновые циклы параллельных сборщиков (G1 Concurrent GC,
+ * ZGC Cycles, Shenandoah Cycles) паузами не являются и не учитываются
+ */
+public final class JvmMetrics {
+    private JvmMetrics() {
+    }
+    
+    /**
+     * @param prefix начало имён метрик, например "server_"
+     */
+    public static void register(MetricsRegistry registry, String prefix) {
+        Histogram pauses = registry.histogram(prefix + "gc_pause_millis", "Паузы сборщика мусора, мс");
+        LongAdder pauseCount = registry.counter(prefix + "gc_pauses_total", "Паузы сборщика мусора");
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        registry.gauge(prefix + "heap_used_bytes", "Занятая куча, байт", () -> memory.getHeapMemoryUsage().getUsed());
+        
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter) || !isPausing(collector.getName())) {
+                continue;
+            }
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                pauses.record(info.getGcInfo().getDuration());
+                pauseCount.increment();
+            }, null, null);
+        }
+    }
+    
+    private static boolean isPausing(String collectorName) {
+        return !collectorName.contains("Concurrent") && !collectorName.contains("Cycles");
+    }
+}
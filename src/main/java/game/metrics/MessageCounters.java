@@ -0,0 +1,64 @@
+package game.metrics;
+
+import game.protocol.MessageType;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сообщения по типам и байты в обе стороны для одной стороны соединения (сервер или клиент)
+ * Счётчик типа берётся из массива по ordinal, поэтому учёт сообщения - один LongAdder.increment()
+ */
+public final class MessageCounters {
+    private static final MessageType[] TYPES = MessageType.values();
+    
+    private final LongAdder[] received = new LongAdder[TYPES.length];
+    private final LongAdder[] sent = new LongAdder[TYPES.length];
+    private final LongAdder bytesReceived;
+    private final LongAdder bytesSent;
+    
+    /**
+     * @param prefix начало имён метрик, например "server_"
+     */
+    public MessageCounters(MetricsRegistry registry, String prefix) {
+        for (MessageType type : TYPES) {
+            received[type.ordinal()] = registry.counter(prefix + "messages_in_total{type=\"" + type + "\"}",
+                "Принятые сообщения по типам");
+        }
+        for (MessageType type : TYPES) {
+            sent[type.ordinal()] = registry.counter(prefix + "messages_out_total{type=\"" + type + "\"}",
+                "Отправленные сообщения по типам");
+        }
+        bytesReceived = registry.counter(prefix + "bytes_in_total", "Принятые байты");
+        bytesSent = registry.counter(prefix + "bytes_out_total", "Отправленные байты");
+    }
+    
+    public void received(MessageType type) {
+        received[type.ordinal()].increment();
+    }
+    
+    public void sent(MessageType type) {
+        sent[type.ordinal()].increment();
+    }
+    
+    public void receivedBytes(long bytes) {
+        bytesReceived.add(bytes);
+    }
+    
+    public void sentBytes(long bytes) {
+        bytesSent.add(bytes);
+    }
+    
+    /**
+     * Счётчик принятых байтов - для CountingInputStream
+     */
+    public LongAdder getBytesReceived() {
+        return bytesReceived;
+    }
+    
+    /**
+     * Счётчик отправленных байтов - для CountingOutputStream
+     */
+    public LongAdder getBytesSent() {
+        return bytesSent;
+    }
+}
@@ -0,0 +1,109 @@
+package game.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вывод метрик наружу: страница GET /metrics на локальном адресе (текст Prometheus)
+ * и строка снимка в журнал раз в logPeriodSeconds. Оба работают в своих потоках-демонах
+ * и читают метрики только при запросе, поэтому не задерживают комнаты и соединения
+ */
+public final class MetricsExporter {
+    private final MetricsRegistry registry;
+    private final String title;
+    private HttpServer http;
+    private ExecutorService httpThread;
+    private ScheduledExecutorService logger;
+    
+    private MetricsExporter(MetricsRegistry registry, String title) {
+        this.registry = registry;
+        this.title = title;
+    }
+    
+    /**
+     * @param httpPort         порт страницы метрик на 127.0.0.1, 0 - без страницы
+     * @param logPeriodSeconds период снимка в журнал, 0 - без журнала
+     * @param title            чьи метрики, для строки журнала ("сервер", "клиент")
+     * @throws IOException если порт страницы занят
+     */
+    public static MetricsExporter start(MetricsRegistry registry, int httpPort, int logPeriodSeconds, String title)
+            throws IOException {
+        MetricsExporter exporter = new MetricsExporter(registry, title);
+        if (httpPort > 0) {
+            exporter.startHttp(httpPort);
+        }
+        if (logPeriodSeconds > 0) {
+            exporter.logger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            exporter.logger.scheduleAtFixedRate(exporter::log, logPeriodSeconds, logPeriodSeconds, TimeUnit.SECONDS);
+        }
+        return exporter;
+    }
+    
+    private void startHttp(int port) throws IOException {
+        // Только локальный адрес: метрики раскрывают нагрузку и не предназначены для игроков
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/metrics", exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = registry.render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        httpThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        http.setExecutor(httpThread);
+        http.start();
+        System.out.println("Метрики (" + title + "): http://127.0.0.1:" + getHttpPort() + "/metrics");
+    }
+    
+    private void log() {
+        try {
+            System.out.println("Метрики (" + title + "): " + registry.summary());
+        } catch (RuntimeException e) {
+            // Исключение отменило бы периодическую задачу, поэтому только сообщаем
+            System.err.println("Ошибка снимка метрик: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Порт страницы метрик или 0, если её нет
+     */
+    public int getHttpPort() {
+        return http != null ? http.getAddress().getPort() : 0;
+    }
+    
+    public void stop() {
+        if (http != null) {
+            http.stop(0);
+            httpThread.shutdownNow();
+        }
+        if (logger != null) {
+            logger.shutdownNow();
+        }
+    }
+}
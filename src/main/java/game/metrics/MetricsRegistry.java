@@ -0,0 +1,135 @@
+package game.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Набор именованных метрик: счётчики (LongAdder), показатели (LongSupplier) и гистограммы
+ * Метрики регистрируются один раз при запуске, а код сервера и клиента держит ссылки на сами
+ * счётчики и гистограммы, поэтому запись не ищет метрику по имени и не выделяет памяти.
+ * Чтение (render, summary) обходит все метрики и может идти из любого потока.
+ * Имя может содержать метки в фигурных скобках: messages_in_total{type="PLAYER_MOVE"};
+ * у гистограммы они повторяются в каждой её строке рядом с quantile
+ */
+public final class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+    
+    private static final class Metric {
+        final String name;
+        final String help;
+        final LongAdder counter;
+        final LongSupplier gauge;
+        final Histogram histogram;
+        
+        Metric(String name, String help, LongAdder counter, LongSupplier gauge, Histogram histogram) {
+            this.name = name;
+            this.help = help;
+            this.counter = counter;
+            this.gauge = gauge;
+            this.histogram = histogram;
+        }
+    }
+    
+    /**
+     * Счётчик, который только растёт (сообщения, байты, отброшенные ходы)
+     */
+    public LongAdder counter(String name, String help) {
+        LongAdder counter = new LongAdder();
+        metrics.add(new Metric(name, help, counter, null, null));
+        return counter;
+    }
+    
+    /**
+     * Текущее значение, которое считается при чтении (число комнат, занятая память)
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        metrics.add(new Metric(name, help, null, value, null));
+    }
+    
+    /**
+     * Распределение значений (время, размер очереди); единица измерения - в имени
+     */
+    public Histogram histogram(String name, String help) {
+        Histogram histogram = new Histogram();
+        metrics.add(new Metric(name, help, null, null, histogram));
+        return histogram;
+    }
+    
+    /**
+     * Все метрики в текстовом формате Prometheus: строка "имя значение" на метрику,
+     * у гистограмм - процентили (quantile), число записей, сумма и максимум
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(4096);
+        String described = null;
+        for (Metric metric : metrics) {
+            String base = baseName(metric.name);
+            if (!base.equals(described)) {
+                // Метрики с одним именем и разными метками описываются один раз
+                described = base;
+                out.append("# HELP ").append(base).append(' ').append(metric.help).append('\n');
+                out.append("# TYPE ").append(base).append(' ')
+                    .append(metric.counter != null ? "counter" : metric.gauge != null ? "gauge" : "summary").append('\n');
+            }
+            if (metric.histogram == null) {
+                out.append(metric.name).append(' ').append(valueOf(metric)).append('\n');
+                continue;
+            }
+            Histogram histogram = metric.histogram;
+            String labels = metric.name.substring(base.length());
+            String labelPrefix = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+            for (double quantile : QUANTILES) {
+                out.append(base).append(labelPrefix).append("quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.percentile(quantile)).append('\n');
+            }
+            out.append(base).append("_count").append(labels).append(' ').append(histogram.getCount()).append('\n');
+            out.append(base).append("_sum").append(labels).append(' ').append(histogram.getSum()).append('\n');
+            out.append(base).append("_max").append(labels).append(' ').append(histogram.getMax()).append('\n');
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Краткий снимок для журнала в одну строку: ненулевые счётчики и показатели,
+     * у непустых гистограмм - число записей, p50, p99 и максимум
+     */
+    public String summary() {
+        StringBuilder out = new StringBuilder(1024);
+        for (Metric metric : metrics) {
+            if (metric.histogram != null) {
+                Histogram histogram = metric.histogram;
+                long count = histogram.getCount();
+                if (count == 0) {
+                    continue;
+                }
+                separate(out).append(metric.name).append("[n=").append(count)
+                    .append(" p50=").append(histogram.percentile(0.5))
+                    .append(" p99=").append(histogram.percentile(0.99))
+                    .append(" max=").append(histogram.getMax()).append(']');
+                continue;
+            }
+            long value = valueOf(metric);
+            if (value != 0) {
+                separate(out).append(metric.name).append('=').append(value);
+            }
+        }
+        return out.toString();
+    }
+    
+    private static long valueOf(Metric metric) {
+        return metric.counter != null ? metric.counter.sum() : metric.gauge.getAsLong();
+    }
+    
+    private static StringBuilder separate(StringBuilder out) {
+        return out.length() > 0 ? out.append(", ") : out;
+    }
+    
+    private static String baseName(String name) {
+        int labels = name.indexOf('{');
+        return labels < 0 ? name : name.substring(0, labels);
+    }
+}
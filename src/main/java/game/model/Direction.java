@@ -0,0 +1,102 @@
+package game.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Направление движения игрока
+ * Смещение (dx, dy) посчитано заранее, wireName - имя в текстовом протоколе,
+ * код (порядковый номер) - байт в бинарном протоколе
+ */
+public enum Direction {
+    UP("ВВЕРХ", 0, -1),
+    DOWN("ВНИЗ", 0, 1),
+    LEFT("ВЛЕВО", -1, 0),
+    RIGHT("ВПРАВО", 1, 0);
+    
+    private static final Direction[] BY_CODE = values();
+    
+    private final String wireName;
+    // wireName в UTF-8 для разбора и записи прямо в буфер сокета
+    private final byte[] wireBytes;
+    private final int dx;
+    private final int dy;
+    
+    Direction(String wireName, int dx, int dy) {
+        this.wireName = wireName;
+        this.wireBytes = wireName.getBytes(StandardCharsets.UTF_8);
+        this.dx = dx;
+        this.dy = dy;
+    }
+    
+    public String getWireName() {
+        return wireName;
+    }
+    
+    /**
+     * Записывает имя из текстового протокола в буфер без создания строк
+     */
+    public void writeWireName(ByteBuffer out) {
+        out.put(wireBytes);
+    }
+    
+    public int getDx() {
+        return dx;
+    }
+    
+    public int getDy() {
+        return dy;
+    }
+    
+    public byte getCode() {
+        return (byte) ordinal();
+    }
+    
+    /**
+     * Направление по имени из текстового протокола
+     * @return null, если имя неизвестно
+     */
+    public static Direction fromWireName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Direction direction : BY_CODE) {
+            if (direction.wireName.equals(name)) {
+                return direction;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Направление по имени из текстового протокола, записанному в буфере байтами [from, to)
+     * @return null, если имя неизвестно
+     */
+    public static Direction fromWireBytes(ByteBuffer in, int from, int to) {
+        for (Direction direction : BY_CODE) {
+            byte[] bytes = direction.wireBytes;
+            if (bytes.length != to - from) {
+                continue;
+            }
+            int i = 0;
+            while (i < bytes.length && in.get(from + i) == bytes[i]) {
+                i++;
+            }
+            if (i == bytes.length) {
+                return direction;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Направление по байту бинарного протокола
+     * @return null, если код неизвестен
+     */
+    public static Direction fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            return null;
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,9 @@
+package game.model;
+
+/**
+ * Как считать расстояние от выхода до стартовых позиций при его выборе
+ */
+public enum ExitPlacement {
+    MANHATTAN,  // По прямой |dx| + |dy|: без поиска пути, выход может оказаться недостижим
+    PATH        // По кратчайшему пути в лабиринте: выход всегда достижим с обеих стартовых позиций
+}
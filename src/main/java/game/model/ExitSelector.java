@@ -0,0 +1,124 @@
+package game.model;
+
+import java.util.Random;
+
+/**
+ * Выбор позиции выхода: случайная подходящая клетка, одинаковая для одного seed
+ * Подходящие клетки не собираются в список: сначала они считаются, затем выбирается номер
+ * random.nextInt(count) и находится клетка с этим номером в порядке обхода по строкам.
+ * Поэтому на клетку не создаётся объектов, а для манхэттенского расстояния результат совпадает
+ * с прежним перебором всех клеток при том же seed
+ */
+public class ExitSelector {
+    /**
+     * Минимальное расстояние от выхода до каждой стартовой позиции
+     */
+    public static final int MIN_DISTANCE = 10;
+    
+    private final Maze maze;
+    private final int width;
+    private final int height;
+    
+    public ExitSelector(Maze maze) {
+        this.maze = maze;
+        this.width = maze.getWidth();
+        this.height = maze.getHeight();
+    }
+    
+    /**
+     * Выход не ближе MIN_DISTANCE к стартовым позициям (0, 0) и (width - 1, height - 1)
+     * @return {x, y}
+     */
+    public int[] select(ExitPlacement placement) {
+        if (placement == ExitPlacement.PATH) {
+            return selectByPath(MIN_DISTANCE);
+        }
+        return selectByManhattan(MIN_DISTANCE);
+    }
+    
+    /**
+     * Подходящие клетки строки y по манхэттенскому расстоянию - отрезок [from, to]:
+     * x + y >= minDistance и (width - 1 - x) + (height - 1 - y) >= minDistance.
+     * Проходимые клетки отрезка считаются по 64 за раз по битовой карте лабиринта
+     */
+    public int[] selectByManhattan(int minDistance) {
+        long count = 0;
+        for (int y = 0; y < height; y++) {
+            count += maze.countPassable(rowStart(y) + fromX(y, minDistance), rowStart(y) + toX(y, minDistance) + 1);
+        }
+        if (count == 0 || count > Integer.MAX_VALUE) {
+            return fallback(minDistance);
+        }
+        
+        int k = new Random(maze.getSeed()).nextInt((int) count);
+        for (int y = 0; y < height; y++) {
+            int from = rowStart(y) + fromX(y, minDistance);
+            int to = rowStart(y) + toX(y, minDistance) + 1;
+            int inRow = maze.countPassable(from, to);
+            if (k < inRow) {
+                int index = maze.nthPassable(from, to, k);
+                return new int[]{index % width, index / width};
+            }
+            k -= inRow;
+        }
+        return fallback(minDistance);
+    }
+    
+    /**
+     * Выход, до которого от каждой стартовой позиции не меньше minDistance шагов по проходам
+     * Два поиска в ширину от стартовых позиций; если таких клеток нет - выбор по манхэттенскому расстоянию
+     */
+    public int[] selectByPath(int minDistance) {
+        PathField fromFirst = new PathField(maze, 0, 0);
+        PathField fromSecond = new PathField(maze, width - 1, height - 1);
+        
+        long count = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (farEnough(fromFirst, fromSecond, x, y, minDistance)) {
+                    count++;
+                }
+            }
+        }
+        if (count == 0 || count > Integer.MAX_VALUE) {
+            System.err.println("Нет клеток в " + minDistance + " шагах от обеих стартовых позиций, выход по прямому расстоянию");
+            return selectByManhattan(minDistance);
+        }
+        
+        int k = new Random(maze.getSeed()).nextInt((int) count);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (farEnough(fromFirst, fromSecond, x, y, minDistance) && k-- == 0) {
+                    return new int[]{x, y};
+                }
+            }
+        }
+        return fallback(minDistance);
+    }
+    
+    private static boolean farEnough(PathField fromFirst, PathField fromSecond, int x, int y, int minDistance) {
+        // Недостижимые клетки и стены имеют расстояние UNREACHABLE (-1)
+        return fromFirst.distance(x, y) >= minDistance && fromSecond.distance(x, y) >= minDistance;
+    }
+    
+    private int rowStart(int y) {
+        return y * width;
+    }
+    
+    private int fromX(int y, int minDistance) {
+        return Math.max(0, minDistance - y);
+    }
+    
+    private int toX(int y, int minDistance) {
+        return Math.min(width - 1, (width - 1) + (height - 1 - y) - minDistance);
+    }
+    
+    /**
+     * Подходящих клеток нет (крошечный лабиринт): выход в центре, даже если он не соответствует требованиям
+     * Прежний поиск по спирали от центра проверял те же условия, поэтому тоже ничего бы не нашёл
+     */
+    private int[] fallback(int minDistance) {
+        System.err.println("Предупреждение: не удалось найти подходящую позицию финиша с расстоянием >= " + minDistance + ", используется центр");
+        return new int[]{width / 2, height / 2};
+    }
+}
@@ -1,20 +1,28 @@
 package game.model;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Состояние партии. Читается без блокировок из потоков отрисовки, сети и симуляции:
+ * таблица игроков - ConcurrentHashMap (обход не бросает ConcurrentModificationException),
+ * лабиринт неизменяем, позиция игрока - одно volatile-поле (см. Player).
+ * initialize() записывает gameStarted последним, поэтому тот, кто увидел начатую партию,
+ * видит и её лабиринт с выходом. Победитель выбирается один, даже если игроки финишируют одновременно
+ */
 public class GameState {
-    private Maze maze;
-    private Map<Integer, Player> players;
-    private int exitX;
-    private int exitY;
-    private boolean gameStarted;
-    private boolean gameEnded;
-    private long startTime;
-    private int winnerId;
+    private volatile Maze maze;
+    private final Map<Integer, Player> players;
+    private volatile int exitX;
+    private volatile int exitY;
+    private volatile PathField pathToExit;
+    private volatile boolean gameStarted;
+    private volatile boolean gameEnded;
+    private volatile long startTime;
+    private volatile int winnerId;
     
     public GameState() {
-        this.players = new HashMap<>();
+        this.players = new ConcurrentHashMap<>();
         this.gameStarted = false;
         this.gameEnded = false;
     }
@@ -23,8 +31,9 @@ public class GameState {
         this.maze = maze;
         this.exitX = exitX;
         this.exitY = exitY;
-        this.gameStarted = true;
+        this.pathToExit = null;
         this.startTime = System.currentTimeMillis();
+        this.gameStarted = true;
     }
     
     public Maze getMaze() {
@@ -43,6 +52,10 @@ public class GameState {
         players.put(player.getId(), player);
     }
     
+    public void removePlayer(int id) {
+        players.remove(id);
+    }
+    
     public int getExitX() {
         return exitX;
     }
@@ -51,6 +64,20 @@ public class GameState {
         return exitY;
     }
     
+    /**
+     * Поле расстояний до выхода; строится при первом обращении и дальше отвечает за O(1)
+     * Два потока могут построить его одновременно - поля одинаковые, останется любое
+     */
+    public PathField getPathToExit() {
+        PathField field = pathToExit;
+        Maze current = maze;
+        if (field == null && current != null) {
+            field = new PathField(current, exitX, exitY);
+            pathToExit = field;
+        }
+        return field;
+    }
+    
     public boolean isGameStarted() {
         return gameStarted;
     }
@@ -70,9 +97,10 @@ public class GameState {
         return 0;
     }
     
-    public void endGame(int winnerId) {
-        this.gameEnded = true;
+    public synchronized void endGame(int winnerId) {
+        // Победитель записывается раньше флага: кто увидел конец игры, увидит и победителя
         this.winnerId = winnerId;
+        this.gameEnded = true;
     }
     
     public int getWinnerId() {
@@ -81,11 +109,13 @@ public class GameState {
     
     public boolean checkWin(int playerId, int x, int y) {
         if (x == exitX && y == exitY) {
-            if (!gameEnded) {
-                endGame(playerId);
-                Player player = players.get(playerId);
-                if (player != null) {
-                    player.finish(getElapsedTime());
+            synchronized (this) {
+                if (!gameEnded) {
+                    Player player = players.get(playerId);
+                    if (player != null) {
+                        player.finish(getElapsedTime());
+                    }
+                    endGame(playerId);
                 }
             }
             return true;
@@ -4,51 +4,23 @@ package game.model;
 public class GridMazeGenerator implements MazeGenerator {
     
     @Override
-    public boolean[][] generate(int width, int height) {
-        boolean[][] gameCells = new boolean[height][width];
+    public void generateRow(int width, int height, int y, boolean[] row) {
+        // Горизонтальный путь в первой строке и проходы через каждые 8 строк
+        boolean openRow = y == 0 || (y >= 8 && y % 8 == 0);
         
-        // Инициализация: все клетки - стены
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                gameCells[i][j] = true;
-            }
-        }
-        
-        // ГАРАНТИРУЕМ: Стартовые позиции всегда проходимы
-        gameCells[0][0] = false;
-        gameCells[height - 1][width - 1] = false;
-        
-        // Основной путь от (0,0) вправо и вниз
-        // Горизонтальный путь в первой строке
         for (int x = 0; x < width; x++) {
-            gameCells[0][x] = false;
-        }
-        
-        // Вертикальный путь в последнем столбце
-        for (int y = 0; y < height; y++) {
-            gameCells[y][width - 1] = false;
+            // Вертикальный путь в последнем столбце и проходы через каждые 8 столбцов
+            boolean openColumn = x == width - 1 || (x >= 8 && x % 8 == 0);
+            row[x] = !(openRow || openColumn);
         }
         
-        // Дополнительные проходы для создания альтернативных маршрутов
-        // Вертикальные проходы через каждые 8-10 столбцов
-        for (int col = 8; col < width; col += 8) {
-            for (int y = 0; y < height; y++) {
-                gameCells[y][col] = false;
-            }
+        // Гарантируем проходимость стартовых позиций
+        if (y == 0) {
+            row[0] = false;
         }
-        
-        // Горизонтальные проходы через каждые 8-10 строк
-        for (int row = 8; row < height; row += 8) {
-            for (int x = 0; x < width; x++) {
-                gameCells[row][x] = false;
-            }
+        if (y == height - 1) {
+            row[width - 1] = false;
         }
-        
-        // Гарантируем проходимость стартовых позиций
-        gameCells[0][0] = false;
-        gameCells[height - 1][width - 1] = false;
-        
-        return gameCells;
     }
     
     @Override
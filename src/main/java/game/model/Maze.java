@@ -1,20 +1,28 @@
 package game.model;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.Arrays;
 
+/**
+ * Лабиринт неизменяем после генерации: один экземпляр можно делить между потоками,
+ * комнатами и клиентом (см. MazeCache)
+ */
 public class Maze {
-    private boolean[][] walls; // true = стена, false = проход
-    private int width;
-    private int height;
-    private long seed;
+    /** Наибольшее число клеток: индекс клетки y * width + x должен помещаться в int */
+    public static final long MAX_CELLS = Integer.MAX_VALUE;
+    
+    // Бит на игровую клетку, индекс y * width + x: 1 = стена, 0 = проход.
+    // Проход между соседними клетками открыт, если обе клетки проходимы,
+    // поэтому отдельные биты для перегородок не нужны
+    private final long[] wallBits;
+    private final int width;
+    private final int height;
+    private final long seed;
     
     public Maze(int width, int height, long seed) {
         this.width = width;
         this.height = height;
         this.seed = seed;
-        this.walls = new boolean[height * 2 + 1][width * 2 + 1];
+        this.wallBits = new long[wordCount(width, height)];
         generate();
     }
     
@@ -22,121 +30,55 @@ public class Maze {
         this(width, height, System.currentTimeMillis());
     }
     
+    private static int wordCount(int width, int height) {
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Размер лабиринта вне допустимого (не больше " + MAX_CELLS
+                + " клеток): " + width + "x" + height);
+        }
+        return (int) (((long) width * height + 63) >>> 6);
+    }
+    
     private void generate() {
         // Используем фабрику для создания генератора на основе seed
         // Одинаковый seed даст одинаковый генератор для сервера и клиента
         MazeGenerator generator = MazeGeneratorFactory.createGenerator(seed);
+        long startTime = System.nanoTime();
         
-        // Генерируем лабиринт
-        boolean[][] gameCells = generator.generate(width, height);
-        
-        // ФИНАЛЬНАЯ ПРОВЕРКА: Стартовые позиции ВСЕГДА проходимы
-        int startX1 = 0;
-        int startY1 = 0;
-        int startX2 = width - 1;
-        int startY2 = height - 1;
-        
-        gameCells[startY1][startX1] = false;
-        gameCells[startY2][startX2] = false;
-        
-        // Конвертируем игровые клетки в формат внутреннего лабиринта
-        convertToInternalFormat(gameCells);
-        
-        // ФИНАЛЬНАЯ ПРОВЕРКА после конвертации
-        ensureStartPositionsPassable();
+        // Генерируем построчно: каждая строка сразу упаковывается в битовую карту,
+        // поэтому кроме самой карты в памяти только одна строка
+        boolean[] row = new boolean[width];
+        for (int y = 0; y < height; y++) {
+            generator.generateRow(width, height, y, row);
+            packRow(y, row);
+        }
+        clearStarts();
         
-        System.out.println("Лабиринт сгенерирован с помощью: " + generator.getName() + " генератор (seed: " + seed + ")");
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        System.out.println("Лабиринт сгенерирован с помощью: " + generator.getName() + " генератор (seed: " + seed
+            + ", " + width + "x" + height + " за " + elapsedMillis + " мс)");
     }
     
-    /**
-     * Гарантирует, что стартовые позиции проходимы в финальном формате
-     */
-    private void ensureStartPositionsPassable() {
-        int startX1 = 0;
-        int startY1 = 0;
-        int startX2 = width - 1;
-        int startY2 = height - 1;
-        
-        // Убираем стены в стартовых позициях (дополнительная гарантия)
-        int mazeX1 = startX1 * 2 + 1;
-        int mazeY1 = startY1 * 2 + 1;
-        int mazeX2 = startX2 * 2 + 1;
-        int mazeY2 = startY2 * 2 + 1;
-        
-        // Проверяем границы
-        if (mazeX1 >= 0 && mazeX1 < walls[0].length && mazeY1 >= 0 && mazeY1 < walls.length) {
-            walls[mazeY1][mazeX1] = false;
-        }
-        if (mazeX2 >= 0 && mazeX2 < walls[0].length && mazeY2 >= 0 && mazeY2 < walls.length) {
-            walls[mazeY2][mazeX2] = false;
+    private void packRow(int y, boolean[] row) {
+        int index = y * width;
+        for (int x = 0; x < width; x++, index++) {
+            long mask = 1L << index;
+            if (row[x]) {
+                wallBits[index >>> 6] |= mask;
+            } else {
+                wallBits[index >>> 6] &= ~mask;
+            }
         }
     }
     
-    /**
-     * Конвертирует игровые клетки в формат внутреннего лабиринта
-     */
-    private void convertToInternalFormat(boolean[][] gameCells) {
-        // Инициализация внутреннего формата: все стены
-        for (int i = 0; i < walls.length; i++) {
-            for (int j = 0; j < walls[i].length; j++) {
-                walls[i][j] = true;
-            }
-        }
-        
-        // Заполняем проходы
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                if (!gameCells[y][x]) { // Если это проход
-                    int mazeX = x * 2 + 1;
-                    int mazeY = y * 2 + 1;
-                    walls[mazeY][mazeX] = false;
-                    
-                    // Создаём проходы к соседним проходимым клеткам
-                    // Вверх
-                    if (y > 0 && !gameCells[y - 1][x]) {
-                        walls[mazeY - 1][mazeX] = false;
-                    }
-                    // Вниз
-                    if (y < height - 1 && !gameCells[y + 1][x]) {
-                        walls[mazeY + 1][mazeX] = false;
-                    }
-                    // Влево
-                    if (x > 0 && !gameCells[y][x - 1]) {
-                        walls[mazeY][mazeX - 1] = false;
-                    }
-                    // Вправо
-                    if (x < width - 1 && !gameCells[y][x + 1]) {
-                        walls[mazeY][mazeX + 1] = false;
-                    }
-                }
-            }
-        }
-        
+    private void clearStarts() {
         // КРИТИЧЕСКИ ВАЖНО: Гарантируем проходимость стартовых позиций
-        int startX1 = 0;
-        int startY1 = 0;
-        int startX2 = width - 1;
-        int startY2 = height - 1;
-        
-        int mazeX1 = startX1 * 2 + 1;
-        int mazeY1 = startY1 * 2 + 1;
-        int mazeX2 = startX2 * 2 + 1;
-        int mazeY2 = startY2 * 2 + 1;
-        
-        // Убираем стены в стартовых позициях
-        walls[mazeY1][mazeX1] = false;
-        walls[mazeY2][mazeX2] = false;
-        
-        // Убираем стены вокруг стартовых позиций для гарантии проходимости
-        if (mazeX1 > 0) walls[mazeY1][mazeX1 - 1] = false;
-        if (mazeX1 < walls[0].length - 1) walls[mazeY1][mazeX1 + 1] = false;
-        if (mazeY1 > 0) walls[mazeY1 - 1][mazeX1] = false;
-        if (mazeY1 < walls.length - 1) walls[mazeY1 + 1][mazeX1] = false;
-        
-        if (mazeX2 > 0) walls[mazeY2][mazeX2 - 1] = false;
-        if (mazeX2 < walls[0].length - 1) walls[mazeY2][mazeX2 + 1] = false;
-        if (mazeY2 > 0) walls[mazeY2 - 1][mazeX2] = false;
-        if (mazeY2 < walls.length - 1) walls[mazeY2 + 1][mazeX2] = false;
+        clearWall(0, 0);
+        clearWall(width - 1, height - 1);
+    }
+    
+    private void clearWall(int x, int y) {
+        int index = y * width + x;
+        wallBits[index >>> 6] &= ~(1L << index);
     }
     
     public boolean isWall(int x, int y) {
@@ -145,36 +87,16 @@ public class Maze {
             return true; // Вне границ - стена
         }
         
-        // Конвертируем координаты игрока в координаты лабиринта
-        int mazeX = x * 2 + 1;
-        int mazeY = y * 2 + 1;
-        
-        // Проверяем границы внутреннего формата
-        if (mazeX < 0 || mazeX >= walls[0].length || mazeY < 0 || mazeY >= walls.length) {
-            return true; // Вне границ - стена
-        }
-        
-        return walls[mazeY][mazeX];
+        int index = y * width + x;
+        return (wallBits[index >>> 6] & (1L << index)) != 0;
     }
     
-    public boolean canMove(int x, int y, String direction) {
-        int newX = x;
-        int newY = y;
-        
-        switch (direction) {
-            case "ВВЕРХ":
-                newY--;
-                break;
-            case "ВНИЗ":
-                newY++;
-                break;
-            case "ВЛЕВО":
-                newX--;
-                break;
-            case "ВПРАВО":
-                newX++;
-                break;
+    public boolean canMove(int x, int y, Direction direction) {
+        if (direction == null) {
+            return false;
         }
+        int newX = x + direction.getDx();
+        int newY = y + direction.getDy();
         
         // Проверяем границы
         if (newX < 0 || newX >= width || newY < 0 || newY >= height) {
@@ -196,90 +118,102 @@ public class Maze {
         return seed;
     }
     
-    public boolean[][] getWalls() {
-        return walls;
-    }
-    
     /**
-     * Возвращает случайную позицию финиша
-     * Финиш генерируется случайно, но минимум в 10 блоках от обеих стартовых позиций
-     * Использует seed для детерминированности (одинаковый seed = одинаковый финиш)
+     * Лабиринт во внутреннем формате (height * 2 + 1) x (width * 2 + 1):
+     * нечётные индексы - клетки, чётные - перегородки между ними
+     * Каждый вызов строит новый массив из битовой карты, в игровом цикле используйте isWall/canMove
      */
-    public int[] getFixedExitPosition() {
-        // Стартовые позиции игроков
-        int startX1 = 0;
-        int startY1 = 0;
-        int startX2 = width - 1;
-        int startY2 = height - 1;
-        
-        // Используем seed для детерминированной генерации
-        Random random = new Random(seed);
-        
-        // Список всех подходящих позиций
-        List<int[]> validPositions = new ArrayList<>();
-        
-        // Перебираем все клетки и находим подходящие
+    public boolean[][] getWalls() {
+        boolean[][] walls = new boolean[height * 2 + 1][width * 2 + 1];
+        for (boolean[] row : walls) {
+            Arrays.fill(row, true);
+        }
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                // Проверяем, что это не стартовая позиция
-                if ((x == startX1 && y == startY1) || (x == startX2 && y == startY2)) {
+                if (isWall(x, y)) {
                     continue;
                 }
-                
-                // Вычисляем манхэттенское расстояние до обеих стартовых позиций
-                int dist1 = Math.abs(x - startX1) + Math.abs(y - startY1);
-                int dist2 = Math.abs(x - startX2) + Math.abs(y - startY2);
-                
-                // Проверяем, что минимум 10 блоков от обеих стартовых позиций
-                if (dist1 >= 10 && dist2 >= 10) {
-                    // Проверяем, что позиция проходима (не стена)
-                    if (!isWall(x, y)) {
-                        validPositions.add(new int[]{x, y});
-                    }
+                int mazeX = x * 2 + 1;
+                int mazeY = y * 2 + 1;
+                walls[mazeY][mazeX] = false;
+                // Проходы к соседним проходимым клеткам (вправо и вниз, остальные откроет сосед)
+                if (x < width - 1 && !isWall(x + 1, y)) {
+                    walls[mazeY][mazeX + 1] = false;
+                }
+                if (y < height - 1 && !isWall(x, y + 1)) {
+                    walls[mazeY + 1][mazeX] = false;
                 }
             }
         }
         
-        // Если нашли подходящие позиции, выбираем случайную
-        if (!validPositions.isEmpty()) {
-            int index = random.nextInt(validPositions.size());
-            return validPositions.get(index);
+        // Вокруг стартовых позиций перегородок нет
+        openAround(walls, 1, 1);
+        openAround(walls, width * 2 - 1, height * 2 - 1);
+        return walls;
+    }
+    
+    private static void openAround(boolean[][] walls, int mazeX, int mazeY) {
+        walls[mazeY][mazeX - 1] = false;
+        walls[mazeY][mazeX + 1] = false;
+        walls[mazeY - 1][mazeX] = false;
+        walls[mazeY + 1][mazeX] = false;
+    }
+    
+    /**
+     * Объём битовой карты стен в байтах (без заголовка массива)
+     */
+    public long getWallBytes() {
+        return (long) wallBits.length * Long.BYTES;
+    }
+    
+    /**
+     * Возвращает случайную позицию финиша
+     * Финиш генерируется случайно, но минимум в 10 блоках от обеих стартовых позиций
+     * Использует seed для детерминированности (одинаковый seed = одинаковый финиш)
+     * Выбор - ExitSelector по манхэттенскому расстоянию, без перебора клеток по одной
+     */
+    public int[] getFixedExitPosition() {
+        return new ExitSelector(this).select(ExitPlacement.MANHATTAN);
+    }
+    
+    /**
+     * Число проходимых клеток с индексами [from, to) (индекс y * width + x)
+     * Считается по 64 клетки за раз через Long.bitCount
+     */
+    int countPassable(int from, int to) {
+        int count = 0;
+        while (from < to) {
+            int bit = from & 63;
+            int n = Math.min(64 - bit, to - from);
+            count += n - Long.bitCount(wallBits[from >>> 6] & rangeMask(bit, n));
+            from += n;
         }
-        
-        // Если не нашли подходящих позиций (маловероятно), ищем любую проходимую позицию
-        // с минимальным расстоянием 10 от обеих стартовых позиций
-        // Начинаем поиск от центра и расширяемся
-        int centerX = width / 2;
-        int centerY = height / 2;
-        
-        for (int radius = 0; radius < Math.max(width, height); radius++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                for (int dx = -radius; dx <= radius; dx++) {
-                    int x = centerX + dx;
-                    int y = centerY + dy;
-                    if (x >= 0 && x < width && y >= 0 && y < height) {
-                        // Пропускаем стартовые позиции
-                        if ((x == startX1 && y == startY1) || (x == startX2 && y == startY2)) {
-                            continue;
-                        }
-                        // Проверяем проходимость
-                        if (!isWall(x, y)) {
-                            int dist1 = Math.abs(x - startX1) + Math.abs(y - startY1);
-                            int dist2 = Math.abs(x - startX2) + Math.abs(y - startY2);
-                            // Если минимум 10 блоков от обеих стартовых позиций
-                            if (dist1 >= 10 && dist2 >= 10) {
-                                return new int[]{x, y};
-                            }
-                        }
-                    }
+        return count;
+    }
+    
+    /**
+     * Индекс k-й (с нуля) проходимой клетки среди индексов [from, to) или -1, если их меньше
+     */
+    int nthPassable(int from, int to, int k) {
+        while (from < to) {
+            int bit = from & 63;
+            int n = Math.min(64 - bit, to - from);
+            long free = ~wallBits[from >>> 6] & rangeMask(bit, n);
+            int count = Long.bitCount(free);
+            if (k < count) {
+                for (int i = 0; i < k; i++) {
+                    free &= free - 1; // Снимаем младший установленный бит
                 }
+                return (from & ~63) + Long.numberOfTrailingZeros(free);
             }
+            k -= count;
+            from += n;
         }
-        
-        // Если все еще не нашли (крайне маловероятно), используем центр как последний fallback
-        // даже если он не соответствует требованиям по расстоянию
-        System.err.println("Предупреждение: не удалось найти подходящую позицию финиша с расстоянием >= 10, используется центр");
-        return new int[]{centerX, centerY};
+        return -1;
+    }
+    
+    private static long rangeMask(int bit, int n) {
+        return (n == 64 ? -1L : (1L << n) - 1) << bit;
     }
     
     /**
@@ -390,8 +324,4 @@ public class Maze {
             }
         }
     }
-    
-    public void updateFromGameCells(boolean[][] gameCells) {
-        convertToInternalFormat(gameCells);
-    }
 }
@@ -0,0 +1,178 @@
+package game.model;
+
+import game.utils.Constants;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш готовых лабиринтов по (seed, ширина, высота) с вытеснением давно не использованных
+ * Ограничен и числом лабиринтов, и суммарным объёмом их битовых карт: большие карты иначе
+ * держали бы в памяти сотни мегабайт всё время работы процесса. Лабиринт больше всего
+ * лимита не кэшируется вовсе.
+ * Лабиринт зависит только от seed и размера и неизменяем, поэтому комнаты с одинаковым seed,
+ * реванши и клиент (GameClient и GameWindow) получают один экземпляр вместо повторной генерации.
+ * Генерация идёт вне блокировки: если два потока одновременно промахнулись по одному ключу,
+ * оба сгенерируют лабиринт, но в кэше останется и обоим вернётся первый
+ */
+public final class MazeCache {
+    private static final MazeCache SHARED = new MazeCache(Constants.MAZE_CACHE_SIZE, Constants.MAZE_CACHE_BYTES);
+    
+    private final int capacity;
+    private final long maxBytes;
+    private final Map<Key, Maze> entries;
+    // Сумма Maze.getWallBytes() лабиринтов в кэше, доступ под блокировкой entries
+    private long bytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    /**
+     * @param capacity сколько лабиринтов хранить; 0 - не кэшировать
+     */
+    public MazeCache(int capacity) {
+        this(capacity, Long.MAX_VALUE);
+    }
+    
+    /**
+     * @param capacity сколько лабиринтов хранить; 0 - не кэшировать
+     * @param maxBytes сколько байт битовых карт стен хранить всего
+     */
+    public MazeCache(int capacity, long maxBytes) {
+        if (capacity < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Размер кэша лабиринтов не может быть отрицательным: "
+                + capacity + ", " + maxBytes + " байт");
+        }
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        // Порядок доступа: первым вытесняется лабиринт, который дольше всех не запрашивали
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    /**
+     * Общий кэш процесса: им пользуются комнаты сервера и клиент
+     */
+    public static MazeCache shared() {
+        return SHARED;
+    }
+    
+    /**
+     * Лабиринт из кэша или новый, если такого ещё нет
+     */
+    public Maze get(int width, int height, long seed) {
+        Key key = new Key(seed, width, height);
+        synchronized (entries) {
+            Maze cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        
+        Maze generated = new Maze(width, height, seed);
+        if (capacity == 0 || generated.getWallBytes() > maxBytes) {
+            return generated;
+        }
+        synchronized (entries) {
+            Maze raced = entries.putIfAbsent(key, generated);
+            if (raced != null) {
+                return raced;
+            }
+            bytes += generated.getWallBytes();
+            evictOverLimits();
+            return generated;
+        }
+    }
+    
+    /**
+     * Вытесняет самые давние лабиринты, пока кэш не уложится в оба лимита; вызывается под блокировкой entries
+     */
+    private void evictOverLimits() {
+        Iterator<Maze> eldest = entries.values().iterator();
+        while ((entries.size() > capacity || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().getWallBytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Байт битовых карт стен в кэше сейчас
+     */
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "лабиринтов " + size() + "/" + capacity + ", " + getBytes() / 1024 + " КБ"
+            + (maxBytes != Long.MAX_VALUE ? " из " + maxBytes / 1024 + " КБ" : "") + ", попаданий " + getHits()
+            + ", промахов " + getMisses() + ", вытеснено " + getEvictions();
+    }
+    
+    private static final class Key {
+        private final long seed;
+        private final int width;
+        private final int height;
+        
+        Key(long seed, int width, int height) {
+            this.seed = seed;
+            this.width = width;
+            this.height = height;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return seed == key.seed && width == key.width && height == key.height;
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = Long.hashCode(seed);
+            hash = 31 * hash + width;
+            return 31 * hash + height;
+        }
+    }
+}
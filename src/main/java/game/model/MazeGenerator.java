@@ -2,15 +2,33 @@ package game.model;
 
 /**
  * Интерфейс для генераторов лабиринта
+ * Генерация построчная: Maze запрашивает строки по одной и сразу упаковывает их в битовую карту,
+ * поэтому промежуточный массив на весь лабиринт не нужен
  */
 public interface MazeGenerator {
+    /**
+     * Заполняет одну строку игровых клеток
+     * @param width ширина лабиринта
+     * @param height высота лабиринта
+     * @param y номер строки
+     * @param row строка длиной не меньше width, true = стена, false = проход
+     */
+    void generateRow(int width, int height, int y, boolean[] row);
+    
     /**
      * Генерирует лабиринт в виде массива игровых клеток
+     * Держит в памяти весь лабиринт, для больших размеров используйте generateRow
      * @param width ширина лабиринта
      * @param height высота лабиринта
      * @return массив gameCells, где true = стена, false = проход
      */
-    boolean[][] generate(int width, int height);
+    default boolean[][] generate(int width, int height) {
+        boolean[][] gameCells = new boolean[height][width];
+        for (int y = 0; y < height; y++) {
+            generateRow(width, height, y, gameCells[y]);
+        }
+        return gameCells;
+    }
     
     /**
      * Возвращает название генератора
@@ -7,54 +7,23 @@ package game.model;
 public class OpenMazeGenerator implements MazeGenerator {
     
     @Override
-    public boolean[][] generate(int width, int height) {
-        boolean[][] gameCells = new boolean[height][width];
+    public void generateRow(int width, int height, int y, boolean[] row) {
+        // Каждая четная строка - проход, дополнительно каждая 4-я начиная с 3-й для связности
+        boolean openRow = y % 2 == 0 || y % 4 == 3;
         
-        // Инициализация: все клетки - стены
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                gameCells[i][j] = true;
-            }
+        for (int x = 0; x < width; x++) {
+            // Каждый четный столбец - проход, дополнительно каждый 4-й начиная с 3-го
+            boolean openColumn = x % 2 == 0 || x % 4 == 3;
+            row[x] = !(openRow || openColumn);
         }
         
-        // ГАРАНТИРУЕМ: Стартовые позиции всегда проходимы
-        gameCells[0][0] = false;
-        gameCells[height - 1][width - 1] = false;
-        
-        // Создаем открытое поле: каждая вторая строка и столбец - проходы
-        // Это создает сетку с большим количеством проходов
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                // Каждая четная строка - проход
-                if (y % 2 == 0) {
-                    gameCells[y][x] = false;
-                }
-                // Каждый четный столбец - проход
-                if (x % 2 == 0) {
-                    gameCells[y][x] = false;
-                }
-            }
-        }
-        
-        // Добавляем дополнительные горизонтальные проходы для лучшей связности
-        for (int row = 3; row < height; row += 4) {
-            for (int x = 0; x < width; x++) {
-                gameCells[row][x] = false;
-            }
+        // Гарантируем проходимость стартовых позиций
+        if (y == 0) {
+            row[0] = false;
         }
-        
-        // Добавляем дополнительные вертикальные проходы
-        for (int col = 3; col < width; col += 4) {
-            for (int y = 0; y < height; y++) {
-                gameCells[y][col] = false;
-            }
+        if (y == height - 1) {
+            row[width - 1] = false;
         }
-        
-        // Гарантируем проходимость стартовых позиций
-        gameCells[0][0] = false;
-        gameCells[height - 1][width - 1] = false;
-        
-        return gameCells;
     }
     
     @Override
@@ -0,0 +1,125 @@
+package game.model;
+
+import java.util.Arrays;
+
+/**
+ * Поле расстояний до цели (обычно до выхода) по кратчайшему пути в лабиринте
+ * Считается один раз поиском в ширину от цели: плоский int[] на клетку (индекс y * width + x)
+ * и очередь на массиве int без создания объектов. После этого расстояние и следующий шаг
+ * к цели для любой клетки отвечаются за O(1) - для проверок на сервере, подсказок и ботов
+ */
+public class PathField {
+    /**
+     * Расстояние для стен и клеток, из которых цель недостижима
+     */
+    public static final int UNREACHABLE = -1;
+    
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    private final int width;
+    private final int height;
+    private final int targetX;
+    private final int targetY;
+    private final int[] distances;
+    private final int reachableCount;
+    
+    public PathField(Maze maze, int targetX, int targetY) {
+        this.width = maze.getWidth();
+        this.height = maze.getHeight();
+        this.targetX = targetX;
+        this.targetY = targetY;
+        long cells = (long) width * height;
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Слишком большой лабиринт: " + width + "x" + height);
+        }
+        this.distances = new int[(int) cells];
+        this.reachableCount = fill(maze);
+    }
+    
+    /**
+     * Поиск в ширину от цели. Каждая клетка попадает в очередь не больше одного раза,
+     * поэтому очередь - массив на все клетки без кольцевого перехода
+     * @return число клеток, из которых цель достижима
+     */
+    private int fill(Maze maze) {
+        Arrays.fill(distances, UNREACHABLE);
+        if (maze.isWall(targetX, targetY)) {
+            return 0;
+        }
+        
+        int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+        int start = targetY * width + targetX;
+        distances[start] = 0;
+        queue[tail++] = start;
+        
+        while (head < tail) {
+            int index = queue[head++];
+            int x = index % width;
+            int y = index / width;
+            int next = distances[index] + 1;
+            
+            for (Direction direction : DIRECTIONS) {
+                int nx = x + direction.getDx();
+                int ny = y + direction.getDy();
+                if (maze.isWall(nx, ny)) {
+                    continue; // Вне границ тоже стена
+                }
+                int neighbor = ny * width + nx;
+                if (distances[neighbor] == UNREACHABLE) {
+                    distances[neighbor] = next;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return tail;
+    }
+    
+    public int getTargetX() {
+        return targetX;
+    }
+    
+    public int getTargetY() {
+        return targetY;
+    }
+    
+    /**
+     * Число клеток, из которых цель достижима (включая саму цель)
+     */
+    public int getReachableCount() {
+        return reachableCount;
+    }
+    
+    /**
+     * Длина кратчайшего пути из клетки до цели в шагах
+     * @return UNREACHABLE для стен, клеток вне лабиринта и недостижимых клеток
+     */
+    public int distance(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return UNREACHABLE;
+        }
+        return distances[y * width + x];
+    }
+    
+    public boolean isReachable(int x, int y) {
+        return distance(x, y) != UNREACHABLE;
+    }
+    
+    /**
+     * Первый шаг кратчайшего пути из клетки к цели
+     * @return null, если клетка - сама цель или цель из неё недостижима
+     */
+    public Direction nextStep(int x, int y) {
+        int current = distance(x, y);
+        if (current <= 0) {
+            return null;
+        }
+        for (Direction direction : DIRECTIONS) {
+            if (distance(x + direction.getDx(), y + direction.getDy()) == current - 1) {
+                return direction;
+            }
+        }
+        return null;
+    }
+}
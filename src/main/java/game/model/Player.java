@@ -1,18 +1,33 @@
 package game.model;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Игрок. Позиция и направление упакованы в одно volatile-поле и меняются одной записью,
+ * поэтому потоки отрисовки, сети и симуляции читают их без блокировок и никогда не видят
+ * x от одного хода, а y - от другого. Согласованную тройку даёт getState() и xOf/yOf/directionOf
+ */
 public class Player {
-    private int id;
-    private int x;
-    private int y;
-    private String direction;
-    private boolean finished;
-    private long finishTime;
+    // Биты состояния: x (28 бит со знаком) | y (28 бит со знаком) | направление (ordinal + 1, 0 - нет)
+    private static final int DIRECTION_BITS = 8;
+    private static final int COORDINATE_BITS = 28;
+    private static final int MIN_COORDINATE = -(1 << (COORDINATE_BITS - 1));
+    private static final int MAX_COORDINATE = (1 << (COORDINATE_BITS - 1)) - 1;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+    private static final long DIRECTION_MASK = (1L << DIRECTION_BITS) - 1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    private static final AtomicLongFieldUpdater<Player> STATE =
+        AtomicLongFieldUpdater.newUpdater(Player.class, "state");
+    
+    private final int id;
+    private volatile long state;
+    private volatile boolean finished;
+    private volatile long finishTime;
     
     public Player(int id, int x, int y) {
         this.id = id;
-        this.x = x;
-        this.y = y;
-        this.direction = "ВНИЗ";
+        this.state = pack(x, y, Direction.DOWN);
         this.finished = false;
         this.finishTime = 0;
     }
@@ -22,15 +37,22 @@ public class Player {
     }
     
     public int getX() {
-        return x;
+        return xOf(state);
     }
     
     public int getY() {
-        return y;
+        return yOf(state);
+    }
+    
+    public Direction getDirection() {
+        return directionOf(state);
     }
     
-    public String getDirection() {
-        return direction;
+    /**
+     * Позиция и направление одним чтением; разбирается через xOf, yOf и directionOf
+     */
+    public long getState() {
+        return state;
     }
     
     public boolean isFinished() {
@@ -41,18 +63,62 @@ public class Player {
         return finishTime;
     }
     
+    /**
+     * Ход: новая позиция и направление становятся видны другим потокам одновременно
+     */
+    public void move(int x, int y, Direction direction) {
+        state = pack(x, y, direction);
+    }
+    
     public void setPosition(int x, int y) {
-        this.x = x;
-        this.y = y;
+        long packed = pack(x, y, null);
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, packed | (current & DIRECTION_MASK)));
     }
     
-    public void setDirection(String direction) {
-        this.direction = direction;
+    public void setDirection(Direction direction) {
+        long bits = directionBits(direction);
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, (current & ~DIRECTION_MASK) | bits));
     }
     
     public void finish(long time) {
-        this.finished = true;
+        // Время записывается раньше флага: кто увидел finished, увидит и время
         this.finishTime = time;
+        this.finished = true;
+    }
+    
+    public static int xOf(long state) {
+        return (int) (state >> (COORDINATE_BITS + DIRECTION_BITS));
+    }
+    
+    public static int yOf(long state) {
+        return (int) (state << COORDINATE_BITS >> (COORDINATE_BITS + DIRECTION_BITS));
+    }
+    
+    public static Direction directionOf(long state) {
+        int bits = (int) (state & DIRECTION_MASK);
+        return bits == 0 ? null : DIRECTIONS[bits - 1];
+    }
+    
+    /**
+     * @throws IllegalArgumentException если координата не помещается в 28 бит
+     */
+    static long pack(int x, int y, Direction direction) {
+        if (x < MIN_COORDINATE || x > MAX_COORDINATE || y < MIN_COORDINATE || y > MAX_COORDINATE) {
+            throw new IllegalArgumentException("Координаты вне допустимого диапазона: (" + x + ", " + y + ")");
+        }
+        return ((long) x << (COORDINATE_BITS + DIRECTION_BITS))
+            | (((long) y & COORDINATE_MASK) << DIRECTION_BITS)
+            | directionBits(direction);
+    }
+    
+    private static long directionBits(Direction direction) {
+        return direction == null ? 0 : direction.ordinal() + 1;
     }
 }
 
@@ -0,0 +1,402 @@
+package game.protocol;
+
+import game.model.Direction;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Компактный бинарный формат сообщений
+ * Кадр: длина тела (varint) | тип (1 байт) | поля.
+ * Числа кодируются varint, направление - одним байтом (Direction.getCode()).
+ * STATE_UPDATE: tick и baseTick (varlong), число ушедших и их id, число игроков (varint),
+ * затем для каждого id, смещения dx и dy (zigzag varint, обычно по байту) и направление.
+ * Номер хода в PLAYER_MOVE необязателен, его наличие видно по длине кадра
+ */
+public final class BinaryCodec {
+    /** Максимальная длина тела кадра, защита от мусора во входящем потоке */
+    public static final int MAX_FRAME_LENGTH = 4096;
+    
+    private static final MessageType[] TYPES = MessageType.values();
+    
+    private BinaryCodec() {
+    }
+    
+    /**
+     * Записывает сообщение кадром в буфер
+     * @throws IllegalArgumentException если поля сообщения не соответствуют его типу
+     */
+    public static void encode(Message message, ByteBuffer out) {
+        String[] data = message.getData();
+        int start = beginFrame(out, message.getType());
+        switch (message.getType()) {
+            case PLAYER_POSITION:
+                writeVarInt(out, parseInt(data, 0));
+                writeVarInt(out, parseInt(data, 1));
+                writeVarInt(out, parseInt(data, 2));
+                out.put(directionCode(field(data, 3)));
+                break;
+            case GAME_START:
+                writeVarInt(out, parseInt(data, 0));
+                writeVarLong(out, parseLong(data, 1));
+                writeVarInt(out, parseInt(data, 2));
+                writeVarInt(out, parseInt(data, 3));
+                writeVarInt(out, parseInt(data, 4));
+                writeVarInt(out, parseInt(data, 5));
+                // Размер лабиринта необязателен, при разборе его наличие видно по длине кадра
+                if (data.length > 7) {
+                    writeVarInt(out, parseInt(data, 6));
+                    writeVarInt(out, parseInt(data, 7));
+                }
+                break;
+            case GAME_END:
+                writeVarInt(out, parseInt(data, 0));
+                writeVarLong(out, parseLong(data, 1));
+                break;
+            case PLAYER_MOVE:
+                writeVarInt(out, parseInt(data, 0));
+                out.put(directionCode(field(data, 1)));
+                if (data.length > 2) {
+                    writeVarInt(out, parseInt(data, 2));
+                }
+                break;
+            case SYNC_REQUEST:
+                writeVarInt(out, parseInt(data, 0));
+                break;
+            case PROTOCOL:
+                out.put((byte) WireFormat.valueOf(field(data, 0)).ordinal());
+                break;
+            case STATE_UPDATE:
+                writeVarLong(out, parseLong(data, 0));
+                writeVarLong(out, parseLong(data, 1));
+                int removed = parseInt(data, 2);
+                writeVarInt(out, removed);
+                for (int i = 3; i < 3 + removed; i++) {
+                    writeVarInt(out, parseInt(data, i));
+                }
+                int entriesStart = 3 + removed;
+                int count = (data.length - entriesStart) / 4;
+                writeVarInt(out, count);
+                for (int i = entriesStart; i < entriesStart + count * 4; i += 4) {
+                    writeVarInt(out, parseInt(data, i));
+                    writeVarInt(out, zigZag(parseInt(data, i + 1)));
+                    writeVarInt(out, zigZag(parseInt(data, i + 2)));
+                    out.put(directionCode(field(data, i + 3)));
+                }
+                break;
+            case STATE_ACK:
+                writeVarLong(out, parseLong(data, 0));
+                break;
+            case INPUT_ACK:
+                writeVarInt(out, parseInt(data, 0));
+                writeVarInt(out, parseInt(data, 1));
+                writeVarInt(out, parseInt(data, 2));
+                out.put(directionCode(field(data, 3)));
+                break;
+        }
+        endFrame(out, start);
+    }
+    
+    /**
+     * Кодирует сообщение в отдельный массив байт
+     */
+    public static byte[] encode(Message message) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        while (true) {
+            try {
+                encode(message, buffer);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    /**
+     * Записывает PLAYER_POSITION без промежуточного Message
+     */
+    public static void encodePlayerPosition(ByteBuffer out, int playerId, int x, int y, Direction direction) {
+        int start = beginFrame(out, MessageType.PLAYER_POSITION);
+        writeVarInt(out, playerId);
+        writeVarInt(out, x);
+        writeVarInt(out, y);
+        out.put(direction.getCode());
+        endFrame(out, start);
+    }
+    
+    /**
+     * Записывает INPUT_ACK без промежуточного Message
+     */
+    public static void encodeInputAck(ByteBuffer out, int sequence, int x, int y, Direction direction) {
+        int start = beginFrame(out, MessageType.INPUT_ACK);
+        writeVarInt(out, sequence);
+        writeVarInt(out, x);
+        writeVarInt(out, y);
+        out.put(direction.getCode());
+        endFrame(out, start);
+    }
+    
+    /**
+     * Читает один кадр из буфера
+     * @return сообщение или null, если кадр ещё не пришёл целиком (позиция буфера не меняется)
+     * @throws IllegalArgumentException если кадр повреждён
+     */
+    public static Message decode(ByteBuffer in) {
+        int start = in.position();
+        int length = readVarIntOrMinus(in);
+        if (length < 0 || in.remaining() < length) {
+            in.position(start);
+            return null;
+        }
+        return decodeBody(in, length);
+    }
+    
+    /**
+     * Разбирает тело кадра длиной length, начиная с текущей позиции буфера
+     */
+    public static Message decodeBody(ByteBuffer in, int length) {
+        if (length == 0 || length > MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("Неверная длина кадра: " + length);
+        }
+        int end = in.position() + length;
+        int typeCode = in.get() & 0xFF;
+        if (typeCode >= TYPES.length) {
+            throw new IllegalArgumentException("Неизвестный тип сообщения: " + typeCode);
+        }
+        MessageType type = TYPES[typeCode];
+        String[] data;
+        switch (type) {
+            case PLAYER_POSITION:
+                data = new String[]{
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarInt(in)),
+                    directionName(in.get())
+                };
+                break;
+            case GAME_START:
+                data = new String[]{
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarLong(in)),
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarInt(in))
+                };
+                if (in.position() < end) {
+                    data = new String[]{data[0], data[1], data[2], data[3], data[4], data[5],
+                        String.valueOf(readVarInt(in)), String.valueOf(readVarInt(in))};
+                }
+                break;
+            case GAME_END:
+                data = new String[]{String.valueOf(readVarInt(in)), String.valueOf(readVarLong(in))};
+                break;
+            case PLAYER_MOVE:
+                data = new String[]{String.valueOf(readVarInt(in)), directionName(in.get())};
+                if (in.position() < end) {
+                    data = new String[]{data[0], data[1], String.valueOf(readVarInt(in))};
+                }
+                break;
+            case SYNC_REQUEST:
+                data = new String[]{String.valueOf(readVarInt(in))};
+                break;
+            case PROTOCOL:
+                data = new String[]{wireFormatName(in.get())};
+                break;
+            case STATE_UPDATE:
+                String tick = String.valueOf(readVarLong(in));
+                String baseTick = String.valueOf(readVarLong(in));
+                int removed = readVarInt(in);
+                if (removed < 0 || removed > length) {
+                    throw new IllegalArgumentException("Неверное число ушедших игроков: " + removed);
+                }
+                String[] removedIds = new String[removed];
+                for (int i = 0; i < removed; i++) {
+                    removedIds[i] = String.valueOf(readVarInt(in));
+                }
+                int count = readVarInt(in);
+                if (count < 0 || count * 4 > length) {
+                    throw new IllegalArgumentException("Неверное число игроков в обновлении: " + count);
+                }
+                data = new String[3 + removed + count * 4];
+                data[0] = tick;
+                data[1] = baseTick;
+                data[2] = String.valueOf(removed);
+                System.arraycopy(removedIds, 0, data, 3, removed);
+                for (int i = 3 + removed; i < data.length; i += 4) {
+                    data[i] = String.valueOf(readVarInt(in));
+                    data[i + 1] = String.valueOf(unZigZag(readVarInt(in)));
+                    data[i + 2] = String.valueOf(unZigZag(readVarInt(in)));
+                    data[i + 3] = directionName(in.get());
+                }
+                break;
+            case STATE_ACK:
+                data = new String[]{String.valueOf(readVarLong(in))};
+                break;
+            case INPUT_ACK:
+                data = new String[]{
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarInt(in)),
+                    String.valueOf(readVarInt(in)),
+                    directionName(in.get())
+                };
+                break;
+            default:
+                data = new String[0];
+        }
+        if (in.position() != end) {
+            throw new IllegalArgumentException("Длина кадра не совпадает с содержимым: " + type);
+        }
+        return new Message(type, data);
+    }
+    
+    static int beginFrame(ByteBuffer out, MessageType type) {
+        int start = out.position();
+        // Место под длину: почти все кадры короче 128 байт, длина займёт один байт
+        out.put((byte) 0);
+        out.put((byte) type.ordinal());
+        return start;
+    }
+    
+    static void endFrame(ByteBuffer out, int start) {
+        int end = out.position();
+        int length = end - start - 1;
+        if (length < 0x80) {
+            out.put(start, (byte) length);
+            return;
+        }
+        
+        // Длинный кадр: сдвигаем тело, чтобы освободить место под varint длины
+        int extra = varIntSize(length) - 1;
+        if (out.limit() - end < extra) {
+            throw new BufferOverflowException();
+        }
+        for (int i = end - 1; i > start; i--) {
+            out.put(i + extra, out.get(i));
+        }
+        out.position(start);
+        writeVarInt(out, length);
+        out.position(end + extra);
+    }
+    
+    public static void writeVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+    
+    public static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+    
+    public static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинный varint");
+    }
+    
+    public static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинный varint");
+    }
+    
+    /**
+     * Читает varint длины кадра, возвращает -1 если байты ещё не пришли
+     */
+    private static int readVarIntOrMinus(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!in.hasRemaining()) {
+                return -1;
+            }
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинный varint");
+    }
+    
+    /**
+     * Знаковое смещение в беззнаковое, чтобы небольшие отрицательные числа занимали один байт
+     */
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
+    private static byte directionCode(String name) {
+        Direction direction = Direction.fromWireName(name);
+        if (direction == null) {
+            throw new IllegalArgumentException("Неизвестное направление: " + name);
+        }
+        return direction.getCode();
+    }
+    
+    private static String directionName(byte code) {
+        Direction direction = Direction.fromCode(code);
+        if (direction == null) {
+            throw new IllegalArgumentException("Неизвестный код направления: " + code);
+        }
+        return direction.getWireName();
+    }
+    
+    private static String wireFormatName(byte code) {
+        WireFormat[] formats = WireFormat.values();
+        if (code < 0 || code >= formats.length) {
+            throw new IllegalArgumentException("Неизвестный формат: " + code);
+        }
+        return formats[code].name();
+    }
+    
+    private static String field(String[] data, int index) {
+        if (data == null || index >= data.length) {
+            throw new IllegalArgumentException("Не хватает полей сообщения");
+        }
+        return data[index];
+    }
+    
+    private static int parseInt(String[] data, int index) {
+        return Integer.parseInt(field(data, index));
+    }
+    
+    private static long parseLong(String[] data, int index) {
+        return Long.parseLong(field(data, index));
+    }
+}
@@ -0,0 +1,193 @@
+package game.protocol;
+
+import game.model.Direction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Разбор самых частых входящих сообщений - PLAYER_MOVE и STATE_ACK - прямо в буфере чтения,
+ * без строк, массивов и Message. Поля разобранного сообщения хранятся в самом декодере
+ * до следующего вызова, поэтому у каждого соединения свой декодер.
+ * Остальные сообщения, неполные и повреждённые кадры декодер не трогает - их разбирает обычный путь
+ */
+public final class InPlaceDecoder {
+    /** В начале буфера другое сообщение или оно пришло не целиком, позиция буфера не изменилась */
+    public static final int OTHER = 0;
+    /** Разобран PLAYER_MOVE: getPlayerId(), getDirection(), getSequence() */
+    public static final int MOVE = 1;
+    /** Разобран STATE_ACK: getTick() */
+    public static final int ACK = 2;
+    
+    private static final byte[] MOVE_PREFIX = (MessageType.PLAYER_MOVE.name() + "|").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ACK_PREFIX = (MessageType.STATE_ACK.name() + "|").getBytes(StandardCharsets.US_ASCII);
+    // Больше цифр не влезает в long без переполнения
+    private static final int MAX_DIGITS = 18;
+    
+    private int playerId;
+    private Direction direction;
+    private int sequence;
+    private long tick;
+    
+    /**
+     * Пытается разобрать сообщение в начале буфера
+     * @return MOVE или ACK, если сообщение разобрано (позиция буфера - за ним), иначе OTHER
+     */
+    public int decode(ByteBuffer in, WireFormat format) {
+        return format == WireFormat.BINARY ? decodeBinary(in) : decodeText(in);
+    }
+    
+    public int getPlayerId() {
+        return playerId;
+    }
+    
+    public Direction getDirection() {
+        return direction;
+    }
+    
+    /**
+     * Номер хода для клиента с предсказанием; 0, если клиент его не прислал
+     */
+    public int getSequence() {
+        return sequence;
+    }
+    
+    public long getTick() {
+        return tick;
+    }
+    
+    private int decodeBinary(ByteBuffer in) {
+        int start = in.position();
+        if (in.limit() - start < 2) {
+            return OTHER;
+        }
+        // Ход и подтверждение короче 128 байт, поэтому длина кадра - один байт
+        int length = in.get(start);
+        int end = start + 1 + length;
+        if (length <= 0 || end > in.limit()) {
+            return OTHER;
+        }
+        int type = in.get(start + 1);
+        if (type != MessageType.PLAYER_MOVE.ordinal() && type != MessageType.STATE_ACK.ordinal()) {
+            return OTHER;
+        }
+        
+        in.position(start + 2);
+        try {
+            if (type == MessageType.PLAYER_MOVE.ordinal()) {
+                int pid = BinaryCodec.readVarInt(in);
+                Direction parsed = in.position() < end ? Direction.fromCode(in.get()) : null;
+                int seq = parsed != null && in.position() < end ? BinaryCodec.readVarInt(in) : 0;
+                if (parsed != null && in.position() == end) {
+                    playerId = pid;
+                    direction = parsed;
+                    sequence = seq;
+                    return MOVE;
+                }
+            } else {
+                long parsed = BinaryCodec.readVarLong(in);
+                if (in.position() == end) {
+                    tick = parsed;
+                    return ACK;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Повреждённый кадр - пусть его разберёт и отвергнет обычный путь
+        }
+        in.position(start);
+        return OTHER;
+    }
+    
+    private int decodeText(ByteBuffer in) {
+        int start = in.position();
+        int newline = -1;
+        for (int i = start; i < in.limit(); i++) {
+            if (in.get(i) == '\n') {
+                newline = i;
+                break;
+            }
+        }
+        if (newline < 0) {
+            return OTHER;
+        }
+        
+        // Пробелы по краям отбрасываются, как trim() в Message.fromProtocolString (байты UTF-8 кириллицы отрицательны)
+        int from = start;
+        int to = newline;
+        while (from < to && (in.get(from) & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (in.get(to - 1) & 0xFF) <= ' ') {
+            to--;
+        }
+        
+        if (startsWith(in, from, to, MOVE_PREFIX)) {
+            int idStart = from + MOVE_PREFIX.length;
+            int bar = indexOf(in, idStart, to, (byte) '|');
+            long pid = bar < 0 ? -1 : parseDecimal(in, idStart, bar);
+            // Необязательный номер хода после направления
+            int seqBar = bar < 0 ? -1 : indexOf(in, bar + 1, to, (byte) '|');
+            int directionEnd = seqBar < 0 ? to : seqBar;
+            long seq = seqBar < 0 ? 0 : parseDecimal(in, seqBar + 1, to);
+            Direction parsed = pid < 0 || pid > Integer.MAX_VALUE || seq < 0 || seq > Integer.MAX_VALUE
+                ? null : Direction.fromWireBytes(in, bar + 1, directionEnd);
+            if (parsed == null) {
+                return OTHER;
+            }
+            playerId = (int) pid;
+            direction = parsed;
+            sequence = (int) seq;
+            in.position(newline + 1);
+            return MOVE;
+        }
+        if (startsWith(in, from, to, ACK_PREFIX)) {
+            long parsed = parseDecimal(in, from + ACK_PREFIX.length, to);
+            if (parsed < 0) {
+                return OTHER;
+            }
+            tick = parsed;
+            in.position(newline + 1);
+            return ACK;
+        }
+        return OTHER;
+    }
+    
+    private static boolean startsWith(ByteBuffer in, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (in.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int indexOf(ByteBuffer in, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (in.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Неотрицательное десятичное число из байт [from, to) или -1, если там не только цифры
+     */
+    private static long parseDecimal(ByteBuffer in, int from, int to) {
+        if (from >= to || to - from > MAX_DIGITS) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = in.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,47 @@
+package game.protocol;
+
+import game.model.Direction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Подтверждение ходов клиента с предсказанием (INPUT_ACK)
+ * Сервер отправляет его на тике, в котором учёл новые ходы игрока: номер последнего учтённого
+ * хода и позицию игрока после него. Клиент отбрасывает подтверждённые ходы из своей очереди
+ * и повторяет поверх этой позиции те, до которых сервер ещё не дошёл
+ */
+public final class InputAck {
+    private static final byte[] TEXT_TYPE = MessageType.INPUT_ACK.name().getBytes(StandardCharsets.US_ASCII);
+    
+    private InputAck() {
+    }
+    
+    public static Message message(int sequence, int x, int y, Direction direction) {
+        String[] data = {
+            String.valueOf(sequence),
+            String.valueOf(x),
+            String.valueOf(y),
+            direction.getWireName()
+        };
+        return new Message(MessageType.INPUT_ACK, data);
+    }
+    
+    /**
+     * Записывает подтверждение сразу в буфер в нужном формате, без строк и Message
+     * @throws java.nio.BufferOverflowException если в буфере не хватило места (позиция не восстанавливается)
+     */
+    public static void write(ByteBuffer out, WireFormat format, int sequence, int x, int y, Direction direction) {
+        if (format == WireFormat.BINARY) {
+            BinaryCodec.encodeInputAck(out, sequence, x, y, direction);
+            return;
+        }
+        out.put(TEXT_TYPE);
+        Snapshot.writeTextField(out, sequence);
+        Snapshot.writeTextField(out, x);
+        Snapshot.writeTextField(out, y);
+        out.put((byte) '|');
+        direction.writeWireName(out);
+        out.put((byte) '\n');
+    }
+}
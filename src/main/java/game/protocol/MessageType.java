@@ -1,9 +1,14 @@
 package game.protocol;
 
+// Порядковый номер типа - его код в бинарном протоколе, новые типы добавляются только в конец
 public enum MessageType {
     PLAYER_POSITION,  // POSITION|playerId|x|y|direction
-    GAME_START,       // START|playerId|mazeSeed|startX|startY|exitX|exitY
+    GAME_START,       // START|playerId|mazeSeed|startX|startY|exitX|exitY|mazeWidth|mazeHeight
     GAME_END,         // END|winnerId|time
-    PLAYER_MOVE,      // MOVE|playerId|direction
-    SYNC_REQUEST      // SYNC|playerId
+    PLAYER_MOVE,      // MOVE|playerId|direction[|sequence] - номер хода нужен клиенту с предсказанием
+    SYNC_REQUEST,     // SYNC|playerId
+    PROTOCOL,         // PROTOCOL|format - переключение формата (TEXT/BINARY), всегда передаётся текстом
+    STATE_UPDATE,     // STATE|tick|baseTick|playerId|dx|dy|direction... - разница со снимком baseTick
+    STATE_ACK,        // STATE_ACK|tick - клиент сохранил снимок tick
+    INPUT_ACK         // INPUT_ACK|sequence|x|y|direction - ходы до sequence включительно учтены, позиция после них
 }
\ No newline at end of file
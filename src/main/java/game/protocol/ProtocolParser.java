@@ -1,8 +1,14 @@
 package game.protocol;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class ProtocolParser {
     
@@ -25,6 +31,128 @@ public class ProtocolParser {
         
         return Message.fromProtocolString(line);
     }
+    
+    /**
+     * Отправляет сообщение в выбранном формате прямо в поток байт
+     */
+    public static void sendMessage(OutputStream out, Message message, WireFormat format) throws IOException {
+        if (out == null || message == null) {
+            return;
+        }
+        writeMessage(out, message, format);
+        out.flush();
+    }
+    
+    /**
+     * Записывает сообщение в поток без flush(): несколько сообщений подряд
+     * уходят в сокет одной записью, когда вызывающий сбросит буферизованный поток
+     */
+    public static void writeMessage(OutputStream out, Message message, WireFormat format) throws IOException {
+        if (format == WireFormat.BINARY) {
+            out.write(BinaryCodec.encode(message));
+        } else {
+            out.write(message.toProtocolString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * Читает сообщение в выбранном формате из потока байт
+     * В отличие от BufferedReader не забирает лишних байт, поэтому формат можно сменить посреди потока
+     * (вызывающий должен передать буферизованный поток)
+     * @return сообщение или null, если соединение закрыто
+     */
+    public static Message receiveMessage(InputStream in, WireFormat format) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        if (format == WireFormat.BINARY) {
+            return receiveBinary(in);
+        }
+        
+        while (true) {
+            String line = readLine(in);
+            if (line == null) {
+                return null;
+            }
+            Message message = Message.fromProtocolString(line);
+            if (message != null) {
+                return message;
+            }
+        }
+    }
+    
+    /**
+     * Формат, запрошенный сообщением PROTOCOL, или null если запрос неверный
+     */
+    public static WireFormat requestedFormat(Message message) {
+        String[] data = message.getData();
+        if (message.getType() != MessageType.PROTOCOL || data == null || data.length < 1) {
+            return null;
+        }
+        try {
+            return WireFormat.valueOf(data[0]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Сообщение запроса/подтверждения формата
+     */
+    public static Message formatAck(WireFormat format) {
+        return new Message(MessageType.PROTOCOL, new String[]{format.name()});
+    }
+    
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return new String(line.toByteArray(), StandardCharsets.UTF_8);
+            }
+            line.write(b);
+        }
+        return line.size() > 0 ? new String(line.toByteArray(), StandardCharsets.UTF_8) : null;
+    }
+    
+    private static Message receiveBinary(InputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                if (shift == 0) {
+                    return null;
+                }
+                throw new EOFException("Соединение закрыто посреди кадра");
+            }
+            if (shift >= 35) {
+                throw new IOException("Слишком длинный varint");
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length <= 0 || length > BinaryCodec.MAX_FRAME_LENGTH) {
+            throw new IOException("Неверная длина кадра: " + length);
+        }
+        
+        byte[] body = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(body, read, length - read);
+            if (n == -1) {
+                throw new EOFException("Соединение закрыто посреди кадра");
+            }
+            read += n;
+        }
+        
+        try {
+            return BinaryCodec.decodeBody(ByteBuffer.wrap(body), length);
+        } catch (RuntimeException e) {
+            throw new IOException("Повреждённый кадр: " + e.getMessage(), e);
+        }
+    }
 }
 
 
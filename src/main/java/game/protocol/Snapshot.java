@@ -0,0 +1,367 @@
+package game.protocol;
+
+import game.model.Direction;
+import game.model.Player;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Снимок позиций игроков комнаты на определённом тике
+ * Сервер отправляет клиенту не снимок целиком, а разницу с последним снимком,
+ * получение которого клиент подтвердил (STATE_ACK). Снимок клиента содержит только игроков
+ * в его зоне видимости. Игрок, которого нет в базовом снимке,
+ * считается стоящим в (0, 0), поэтому его координаты в дельте совпадают с абсолютными
+ */
+public final class Snapshot {
+    /** Пустой базовый снимок: клиент ещё ничего не подтвердил */
+    public static final Snapshot EMPTY = new Snapshot(0, new int[0], 0, false);
+    
+    private static final int FIELDS = 4;
+    private static final byte[] TEXT_TYPE = MessageType.STATE_UPDATE.name().getBytes(StandardCharsets.US_ASCII);
+    
+    private long tick;
+    // По FIELDS чисел на игрока: id, x, y, код направления
+    private int[] players;
+    private int size;
+    // Снимок можно перезаполнять (только серверные снимки, см. reusable())
+    private final boolean reusable;
+    
+    private Snapshot(long tick, int[] players, int size, boolean reusable) {
+        this.tick = tick;
+        this.players = players;
+        this.size = size;
+        this.reusable = reusable;
+    }
+    
+    /**
+     * Снимает текущие позиции игроков
+     * Коллекция может меняться другим потоком (таблица игроков GameState): размер и состав берутся из её копии
+     */
+    public static Snapshot capture(long tick, Collection<Player> players) {
+        Player[] copy = players.toArray(new Player[0]);
+        int[] data = new int[copy.length * FIELDS];
+        int i = 0;
+        for (Player player : copy) {
+            long state = player.getState();
+            data[i++] = player.getId();
+            data[i++] = Player.xOf(state);
+            data[i++] = Player.yOf(state);
+            data[i++] = Player.directionOf(state).getCode();
+        }
+        return new Snapshot(tick, data, copy.length, false);
+    }
+    
+    /**
+     * Пустой снимок для повторного заполнения через recapture()
+     * Сервер перезаполняет снимки, вытесненные из истории, и не выделяет память каждый тик
+     */
+    public static Snapshot reusable() {
+        return new Snapshot(0, new int[FIELDS * 4], 0, true);
+    }
+    
+    /**
+     * Заполняет снимок заново текущими позициями игроков
+     * Массив растёт, только если игроков стало больше, чем когда-либо раньше
+     * @throws IllegalStateException если снимок создан не через reusable()
+     */
+    public void recapture(long tick, List<Player> source) {
+        if (!reusable) {
+            throw new IllegalStateException("Снимок нельзя перезаполнить");
+        }
+        int count = source.size();
+        if (players.length < count * FIELDS) {
+            players = new int[Math.max(count, size * 2) * FIELDS];
+        }
+        for (int i = 0; i < count; i++) {
+            Player player = source.get(i);
+            long state = player.getState();
+            players[i * FIELDS] = player.getId();
+            players[i * FIELDS + 1] = Player.xOf(state);
+            players[i * FIELDS + 2] = Player.yOf(state);
+            players[i * FIELDS + 3] = Player.directionOf(state).getCode();
+        }
+        this.tick = tick;
+        this.size = count;
+    }
+    
+    /**
+     * Можно ли перезаполнить снимок, когда он больше не нужен
+     */
+    public boolean isReusable() {
+        return reusable;
+    }
+    
+    public long getTick() {
+        return tick;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getPlayerId(int index) {
+        return players[index * FIELDS];
+    }
+    
+    public int getX(int index) {
+        return players[index * FIELDS + 1];
+    }
+    
+    public int getY(int index) {
+        return players[index * FIELDS + 2];
+    }
+    
+    public Direction getDirection(int index) {
+        return Direction.fromCode(players[index * FIELDS + 3]);
+    }
+    
+    /**
+     * Позиция игрока в снимке или -1
+     */
+    public int indexOf(int playerId) {
+        return indexOf(players, size, playerId);
+    }
+    
+    private static int indexOf(int[] players, int size, int playerId) {
+        for (int i = 0; i < size; i++) {
+            if (players[i * FIELDS] == playerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Сообщение STATE_UPDATE с разницей относительно базового снимка
+     * Формат: tick | baseTick | число ушедших | id ушедших... | (playerId | dx | dy | direction)...
+     * Ушедшие - игроки базового снимка, которых нет в текущем (например, вышли из зоны видимости).
+     * Сообщение без изменений тоже имеет смысл: оно откатывает клиента к базовому снимку,
+     * если последний отправленный снимок отличался от него
+     */
+    public Message deltaFrom(Snapshot baseline) {
+        int removed = removedFrom(baseline);
+        String[] data = new String[3 + removed + size * FIELDS];
+        int n = 3;
+        for (int i = 0; i < baseline.size; i++) {
+            if (indexOf(baseline.getPlayerId(i)) < 0) {
+                data[n++] = String.valueOf(baseline.getPlayerId(i));
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int base = baseline.indexOf(getPlayerId(i));
+            if (unchanged(baseline, base, i)) {
+                continue;
+            }
+            data[n++] = String.valueOf(getPlayerId(i));
+            data[n++] = String.valueOf(getX(i) - (base >= 0 ? baseline.getX(base) : 0));
+            data[n++] = String.valueOf(getY(i) - (base >= 0 ? baseline.getY(base) : 0));
+            data[n++] = getDirection(i).getWireName();
+        }
+        data[0] = String.valueOf(tick);
+        data[1] = String.valueOf(baseline.tick);
+        data[2] = String.valueOf(removed);
+        return new Message(MessageType.STATE_UPDATE, Arrays.copyOf(data, n));
+    }
+    
+    /**
+     * Записывает то же обновление, что и deltaFrom(), сразу в буфер в нужном формате,
+     * без строк и промежуточного Message
+     * @throws java.nio.BufferOverflowException если в буфере не хватило места (позиция не восстанавливается)
+     */
+    public void writeDelta(Snapshot baseline, ByteBuffer out, WireFormat format) {
+        if (format == WireFormat.BINARY) {
+            writeBinaryDelta(baseline, out);
+        } else {
+            writeTextDelta(baseline, out);
+        }
+    }
+    
+    private void writeBinaryDelta(Snapshot baseline, ByteBuffer out) {
+        int start = BinaryCodec.beginFrame(out, MessageType.STATE_UPDATE);
+        BinaryCodec.writeVarLong(out, tick);
+        BinaryCodec.writeVarLong(out, baseline.tick);
+        BinaryCodec.writeVarInt(out, removedFrom(baseline));
+        for (int i = 0; i < baseline.size; i++) {
+            if (indexOf(baseline.getPlayerId(i)) < 0) {
+                BinaryCodec.writeVarInt(out, baseline.getPlayerId(i));
+            }
+        }
+        int changed = 0;
+        for (int i = 0; i < size; i++) {
+            if (!unchanged(baseline, baseline.indexOf(getPlayerId(i)), i)) {
+                changed++;
+            }
+        }
+        BinaryCodec.writeVarInt(out, changed);
+        for (int i = 0; i < size; i++) {
+            int base = baseline.indexOf(getPlayerId(i));
+            if (unchanged(baseline, base, i)) {
+                continue;
+            }
+            BinaryCodec.writeVarInt(out, getPlayerId(i));
+            BinaryCodec.writeVarInt(out, BinaryCodec.zigZag(getX(i) - (base >= 0 ? baseline.getX(base) : 0)));
+            BinaryCodec.writeVarInt(out, BinaryCodec.zigZag(getY(i) - (base >= 0 ? baseline.getY(base) : 0)));
+            out.put((byte) players[i * FIELDS + 3]);
+        }
+        BinaryCodec.endFrame(out, start);
+    }
+    
+    private void writeTextDelta(Snapshot baseline, ByteBuffer out) {
+        out.put(TEXT_TYPE);
+        writeTextField(out, tick);
+        writeTextField(out, baseline.tick);
+        writeTextField(out, removedFrom(baseline));
+        for (int i = 0; i < baseline.size; i++) {
+            if (indexOf(baseline.getPlayerId(i)) < 0) {
+                writeTextField(out, baseline.getPlayerId(i));
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int base = baseline.indexOf(getPlayerId(i));
+            if (unchanged(baseline, base, i)) {
+                continue;
+            }
+            writeTextField(out, getPlayerId(i));
+            writeTextField(out, getX(i) - (base >= 0 ? baseline.getX(base) : 0));
+            writeTextField(out, getY(i) - (base >= 0 ? baseline.getY(base) : 0));
+            out.put((byte) '|');
+            getDirection(i).writeWireName(out);
+        }
+        out.put((byte) '\n');
+    }
+    
+    /**
+     * Пишет "|число" десятичными цифрами
+     */
+    static void writeTextField(ByteBuffer out, long value) {
+        out.put((byte) '|');
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        do {
+            out.put((byte) ('0' + value / divisor));
+            value %= divisor;
+            divisor /= 10;
+        } while (divisor > 0);
+    }
+    
+    /**
+     * Сколько игроков базового снимка нет в этом
+     */
+    private int removedFrom(Snapshot baseline) {
+        int removed = 0;
+        for (int i = 0; i < baseline.size; i++) {
+            if (indexOf(baseline.getPlayerId(i)) < 0) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Совпадает ли игрок index с записью base базового снимка (base < 0 - игрока там не было)
+     */
+    private boolean unchanged(Snapshot baseline, int base, int index) {
+        if (base < 0) {
+            return false;
+        }
+        for (int field = 1; field < FIELDS; field++) {
+            if (players[index * FIELDS + field] != baseline.players[base * FIELDS + field]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Совпадают ли позиции и направления всех игроков (номер тика не учитывается)
+     */
+    public boolean samePlayers(Snapshot other) {
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            int j = other.indexOf(getPlayerId(i));
+            if (j < 0) {
+                return false;
+            }
+            for (int field = 1; field < FIELDS; field++) {
+                if (players[i * FIELDS + field] != other.players[j * FIELDS + field]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Тик базового снимка, относительно которого закодировано обновление
+     */
+    public static long baseTickOf(Message update) {
+        return Long.parseLong(update.getData()[1]);
+    }
+    
+    /**
+     * Восстанавливает снимок из базового и сообщения STATE_UPDATE
+     * @throws IllegalArgumentException если сообщение повреждено
+     */
+    public static Snapshot applyDelta(Snapshot baseline, Message update) {
+        String[] data = update.getData();
+        if (data == null || data.length < 3) {
+            throw new IllegalArgumentException("Неверное обновление состояния");
+        }
+        long tick = Long.parseLong(data[0]);
+        int removed = Integer.parseInt(data[2]);
+        int entriesStart = 3 + removed;
+        if (removed < 0 || entriesStart > data.length || (data.length - entriesStart) % FIELDS != 0) {
+            throw new IllegalArgumentException("Неверное обновление состояния");
+        }
+        
+        int[] players = new int[baseline.size * FIELDS + data.length - entriesStart];
+        int size = 0;
+        for (int i = 0; i < baseline.size; i++) {
+            if (!contains(data, 3, entriesStart, baseline.getPlayerId(i))) {
+                System.arraycopy(baseline.players, i * FIELDS, players, size * FIELDS, FIELDS);
+                size++;
+            }
+        }
+        
+        for (int n = entriesStart; n < data.length; n += FIELDS) {
+            int playerId = Integer.parseInt(data[n]);
+            Direction direction = Direction.fromWireName(data[n + 3]);
+            if (direction == null) {
+                throw new IllegalArgumentException("Неизвестное направление: " + data[n + 3]);
+            }
+            int index = indexOf(players, size, playerId);
+            int baseX = index >= 0 ? players[index * FIELDS + 1] : 0;
+            int baseY = index >= 0 ? players[index * FIELDS + 2] : 0;
+            if (index < 0) {
+                index = size++;
+            }
+            players[index * FIELDS] = playerId;
+            players[index * FIELDS + 1] = baseX + Integer.parseInt(data[n + 1]);
+            players[index * FIELDS + 2] = baseY + Integer.parseInt(data[n + 2]);
+            players[index * FIELDS + 3] = direction.getCode();
+        }
+        return new Snapshot(tick, players, size, false);
+    }
+    
+    private static boolean contains(String[] data, int from, int to, int playerId) {
+        String id = String.valueOf(playerId);
+        for (int i = from; i < to; i++) {
+            if (data[i].equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+package game.protocol;
+
+/**
+ * Последние снимки по номеру тика (кольцевой буфер)
+ * Сервер и клиент хранят одинаковое число снимков, поэтому базовый снимок,
+ * выбранный сервером, всегда есть у клиента
+ */
+public final class SnapshotHistory {
+    private final Snapshot[] ring;
+    
+    public SnapshotHistory(int capacity) {
+        this.ring = new Snapshot[capacity];
+    }
+    
+    /**
+     * Кладёт снимок в историю
+     * @return вытесненный снимок (его можно перезаполнить, если он reusable) или null
+     */
+    public Snapshot put(Snapshot snapshot) {
+        int slot = slot(snapshot.getTick());
+        Snapshot evicted = ring[slot];
+        ring[slot] = snapshot;
+        return evicted;
+    }
+    
+    /**
+     * Снимок тика tick; для тика 0 - пустой снимок
+     * @return null, если снимок уже вытеснен или не приходил
+     */
+    public Snapshot get(long tick) {
+        if (tick == 0) {
+            return Snapshot.EMPTY;
+        }
+        Snapshot snapshot = ring[slot(tick)];
+        return snapshot != null && snapshot.getTick() == tick ? snapshot : null;
+    }
+    
+    private int slot(long tick) {
+        return (int) (tick % ring.length);
+    }
+}
@@ -0,0 +1,9 @@
+package game.protocol;
+
+/**
+ * Формат передачи сообщений по сокету
+ */
+public enum WireFormat {
+    TEXT,    // Строки с разделителем | - удобно для отладки
+    BINARY   // Кадры BinaryCodec - компактнее и дешевле в разборе
+}
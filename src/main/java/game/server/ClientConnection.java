@@ -0,0 +1,83 @@
+package game.server;
+
+import game.model.Direction;
+import game.protocol.InputAck;
+import game.protocol.Message;
+import game.protocol.MessageType;
+import game.protocol.Snapshot;
+
+/**
+ * Соединение с клиентом, независимое от транспорта
+ * Реализуется как блокирующим ClientHandler, так и неблокирующим NioConnection
+ */
+public interface ClientConnection {
+    
+    int getPlayerId();
+    
+    GameRoom getRoom();
+    
+    /**
+     * Закрепляет соединение за комнатой с выданным в ней ID игрока
+     */
+    void assignRoom(GameRoom room, int playerId);
+    
+    /**
+     * Отправляет сообщение клиенту
+     * Может вызываться из любого потока
+     */
+    void sendMessage(Message message);
+    
+    /**
+     * Начинает пакет: отправленные дальше сообщения копятся в буфере соединения
+     * и уходят в сокет одной записью в endBatch(). Пакеты могут вкладываться
+     * (в том числе из разных потоков), запись происходит при закрытии внешнего
+     */
+    default void beginBatch() {
+    }
+    
+    /**
+     * Завершает пакет и, если он внешний, записывает накопленное в сокет
+     */
+    default void endBatch() {
+    }
+    
+    /**
+     * Закрывает соединение
+     */
+    void stopHandler();
+    
+    default void sendPositionUpdate(int pid, int x, int y, Direction direction) {
+        String[] data = {
+            String.valueOf(pid),
+            String.valueOf(x),
+            String.valueOf(y),
+            direction.getWireName()
+        };
+        sendMessage(new Message(MessageType.PLAYER_POSITION, data));
+    }
+    
+    /**
+     * Отправляет STATE_UPDATE - разницу снимка view с базовым снимком baseline
+     * Обновление должно быть закодировано до возврата: после него комната перезаполняет снимки.
+     * Соединение может переопределить метод и писать байты прямо в свой буфер, без Message
+     */
+    default void sendStateUpdate(Snapshot view, Snapshot baseline) {
+        sendMessage(view.deltaFrom(baseline));
+    }
+    
+    /**
+     * Отправляет INPUT_ACK клиенту с предсказанием: ходы до sequence учтены, позиция после них x, y
+     * Соединение может переопределить метод и писать байты прямо в свой буфер, без Message
+     */
+    default void sendInputAck(int sequence, int x, int y, Direction direction) {
+        sendMessage(InputAck.message(sequence, x, y, direction));
+    }
+    
+    default void sendGameEnd(int winnerId, long time) {
+        String[] data = {
+            String.valueOf(winnerId),
+            String.valueOf(time)
+        };
+        sendMessage(new Message(MessageType.GAME_END, data));
+    }
+}
@@ -1,55 +1,100 @@
 package game.server;
 
-import game.model.GameState;
-import game.model.Maze;
-import game.model.Player;
 import game.protocol.Message;
 import game.protocol.MessageType;
 import game.protocol.ProtocolParser;
-import game.utils.Constants;
+import game.protocol.WireFormat;
+import game.metrics.CountingInputStream;
+import game.metrics.CountingOutputStream;
+import game.utils.ConnectionThreads;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class ClientHandler extends Thread {
+/**
+ * Блокирующее соединение: цикл чтения в своём потоке - обычном или виртуальном (TransportMode.VIRTUAL)
+ * Запись защищена ReentrantLock, а не synchronized: виртуальный поток, заблокированный на записи
+ * в сокет внутри synchronized, держал бы свой поток-носитель (pinning)
+ */
+public class ClientHandler implements Runnable, ClientConnection {
     private Socket socket;
     private GameServer server;
-    private PrintWriter out;
-    private BufferedReader in;
+    private OutputStream out;
+    private InputStream in;
+    private WireFormat readFormat = WireFormat.TEXT;
+    private WireFormat writeFormat = WireFormat.TEXT;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ThreadFactory threadFactory;
+    // null - метрики выключены
+    private final ServerMetrics metrics;
+    // Глубина вложенных пакетов (beginBatch), пока больше нуля - поток не сбрасывается
+    private int batchDepth;
     private int playerId;
-    private boolean running;
+    private GameRoom room;
+    private volatile boolean running;
     
-    public ClientHandler(Socket socket, GameServer server, int playerId) {
+    public ClientHandler(Socket socket, GameServer server) {
+        this(socket, server, ConnectionThreads.platform(false));
+    }
+    
+    /**
+     * @param threadFactory поток для цикла чтения (см. ConnectionThreads)
+     */
+    public ClientHandler(Socket socket, GameServer server, ThreadFactory threadFactory) {
         this.socket = socket;
         this.server = server;
-        this.playerId = playerId;
+        this.threadFactory = threadFactory;
+        this.metrics = server.getMetrics();
         this.running = true;
         
         try {
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            OutputStream socketOut = socket.getOutputStream();
+            InputStream socketIn = socket.getInputStream();
+            if (metrics != null) {
+                // Счётчики под буферами: учёт раз на системный вызов, а не на сообщение
+                socketOut = new CountingOutputStream(socketOut, metrics.traffic.getBytesSent());
+                socketIn = new CountingInputStream(socketIn, metrics.traffic.getBytesReceived());
+            }
+            out = new BufferedOutputStream(socketOut);
+            in = new BufferedInputStream(socketIn);
         } catch (IOException e) {
             System.err.println("Ошибка создания потоков: " + e.getMessage());
         }
     }
     
+    /**
+     * Запускает цикл чтения в потоке из фабрики
+     */
+    public void start() {
+        Thread thread = threadFactory.newThread(this);
+        thread.setName("client-handler-" + socket.getPort());
+        thread.start();
+    }
+    
     @Override
     public void run() {
         try {
-            // Отправляем информацию о начале игры
-            sendGameStart();
-            
             // Обрабатываем сообщения от клиента
             while (running) {
-                Message message = ProtocolParser.receiveMessage(in);
+                Message message = ProtocolParser.receiveMessage(in, readFormat);
                 if (message == null) {
                     break;
                 }
+                if (metrics != null) {
+                    metrics.traffic.received(message.getType());
+                }
                 
-                handleMessage(message);
+                if (message.getType() == MessageType.PROTOCOL) {
+                    switchFormat(message);
+                } else {
+                    server.handleMessage(this, message);
+                }
             }
         } catch (IOException e) {
             System.err.println("Ошибка в обработчике клиента: " + e.getMessage());
@@ -59,118 +104,91 @@ public class ClientHandler extends Thread {
     }
     
     public void sendGameStart() {
-        GameState gameState = server.getGameState();
-        if (gameState != null && gameState.isGameStarted()) {
-            Player player = gameState.getPlayer(playerId);
-            if (player != null) {
-                Maze maze = gameState.getMaze();
-                String[] data = {
-                    String.valueOf(playerId),
-                    String.valueOf(maze.getSeed()),
-                    String.valueOf(player.getX()),
-                    String.valueOf(player.getY()),
-                    String.valueOf(gameState.getExitX()),
-                    String.valueOf(gameState.getExitY())
-                };
-                Message msg = new Message(MessageType.GAME_START, data);
-                ProtocolParser.sendMessage(out, msg);
-            }
-        }
-    }
-    
-    private void handleMessage(Message message) {
-        switch (message.getType()) {
-            case PLAYER_MOVE:
-                handlePlayerMove(message);
-                break;
-            case SYNC_REQUEST:
-                sendGameStart();
-                break;
+        if (room != null) {
+            room.sendGameStart(this);
         }
     }
     
-    private void handlePlayerMove(Message message) {
-        String[] data = message.getData();
-        if (data.length < 2) {
+    /**
+     * Переключает формат по запросу клиента: читаем в новом формате сразу,
+     * подтверждение отправляем текстом и только после него пишем в новом формате
+     */
+    private void switchFormat(Message request) {
+        WireFormat requested = ProtocolParser.requestedFormat(request);
+        if (requested == null) {
             return;
         }
-        
+        readFormat = requested;
+        writeLock.lock();
         try {
-            int pid = Integer.parseInt(data[0]);
-            String direction = data[1];
-            
-            if (pid == playerId) {
-                GameState gameState = server.getGameState();
-                Player player = gameState.getPlayer(pid);
-                
-                if (player != null && !player.isFinished()) {
-                    // Проверяем возможность движения
-                    if (gameState.getMaze().canMove(player.getX(), player.getY(), direction)) {
-                        int newX = player.getX();
-                        int newY = player.getY();
-                        
-                        switch (direction) {
-                            case "ВВЕРХ":
-                                newY--;
-                                break;
-                            case "ВНИЗ":
-                                newY++;
-                                break;
-                            case "ВЛЕВО":
-                                newX--;
-                                break;
-                            case "ВПРАВО":
-                                newX++;
-                                break;
-                        }
-                        
-                        player.setPosition(newX, newY);
-                        player.setDirection(direction);
-                        
-                        // Отправляем обновление позиции всем (включая сервер)
-                        server.broadcastPosition(pid, newX, newY, direction);
-                        
-                        // Проверяем победу
-                        if (gameState.checkWin(pid, newX, newY)) {
-                            // Отправляем сообщение о конце игры всем
-                            server.broadcastGameEnd(pid, gameState.getElapsedTime());
-                        }
-                    }
-                }
-            }
-        } catch (NumberFormatException e) {
-            System.err.println("Неверный ID игрока в сообщении о движении");
+            sendMessage(ProtocolParser.formatAck(requested));
+            writeFormat = requested;
+        } finally {
+            writeLock.unlock();
         }
     }
     
+    @Override
     public void sendMessage(Message message) {
-        ProtocolParser.sendMessage(out, message);
+        writeLock.lock();
+        try {
+            if (batchDepth > 0) {
+                ProtocolParser.writeMessage(out, message, writeFormat);
+            } else {
+                ProtocolParser.sendMessage(out, message, writeFormat);
+            }
+            if (metrics != null) {
+                metrics.traffic.sent(message.getType());
+            }
+        } catch (IOException e) {
+            System.err.println("Ошибка отправки игроку " + playerId + ": " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
     }
     
-    public void sendPositionUpdate(int pid, int x, int y, String direction) {
-        String[] data = {
-            String.valueOf(pid),
-            String.valueOf(x),
-            String.valueOf(y),
-            direction
-        };
-        Message msg = new Message(MessageType.PLAYER_POSITION, data);
-        sendMessage(msg);
+    @Override
+    public void beginBatch() {
+        writeLock.lock();
+        try {
+            batchDepth++;
+        } finally {
+            writeLock.unlock();
+        }
     }
     
-    public void sendGameEnd(int winnerId, long time) {
-        String[] data = {
-            String.valueOf(winnerId),
-            String.valueOf(time)
-        };
-        Message msg = new Message(MessageType.GAME_END, data);
-        sendMessage(msg);
+    @Override
+    public void endBatch() {
+        writeLock.lock();
+        try {
+            if (batchDepth == 0 || --batchDepth > 0) {
+                return;
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Ошибка отправки игроку " + playerId + ": " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
     }
     
+    @Override
     public int getPlayerId() {
         return playerId;
     }
     
+    @Override
+    public GameRoom getRoom() {
+        return room;
+    }
+    
+    @Override
+    public void assignRoom(GameRoom room, int playerId) {
+        this.room = room;
+        this.playerId = playerId;
+    }
+    
+    @Override
     public void stopHandler() {
         running = false;
     }
@@ -0,0 +1,76 @@
+package game.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Выделенный сервер без окна: не загружает AWT/Swing, поэтому работает без дисплея
+ * и стартует за миллисекунды. Настройки - ServerConfig (аргументы или файл настроек).
+ * Готовность сообщается один раз, когда порт уже привязан: строкой "READY port=N" в stdout
+ * и, если задан --ready-file, атомарно записанным файлом с номером порта
+ */
+public class DedicatedServer {
+    
+    public static void main(String[] args) {
+        long startTime = System.nanoTime();
+        System.setProperty("java.awt.headless", "true");
+        
+        ServerConfig config;
+        try {
+            config = ServerConfig.parse(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Ошибка настроек: " + e.getMessage());
+            System.err.println(ServerConfig.USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        GameServer server;
+        try {
+            server = new GameServer(config);
+        } catch (IOException e) {
+            System.err.println("Ошибка запуска сервера: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        
+        // Потоки транспорта не демоны и держат процесс; по сигналу остановки закрываем сервер
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Остановка сервера...");
+            server.stop();
+        }, "server-shutdown"));
+        
+        if (config.getTransportMode() == TransportMode.NIO) {
+            server.start();
+        } else {
+            // Блокирующий транспорт принимает клиентов в своём потоке
+            new Thread(server::start, "blocking-accept").start();
+        }
+        
+        int port = server.getPort();
+        if (config.getReadyFile() != null) {
+            try {
+                writeReadyFile(Paths.get(config.getReadyFile()), port);
+            } catch (IOException e) {
+                System.err.println("Не удалось записать файл готовности: " + e.getMessage());
+            }
+        }
+        long startupMillis = (System.nanoTime() - startTime) / 1_000_000;
+        System.out.println("Настройки: " + config);
+        System.out.println("READY port=" + port + " startup_ms=" + startupMillis);
+    }
+    
+    /**
+     * Пишем во временный файл и переименовываем, чтобы наблюдатель не прочитал файл наполовину
+     */
+    private static void writeReadyFile(Path file, int port) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), "ready", ".tmp");
+        Files.write(temp, (port + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,755 @@
+package game.server;
+
+import game.metrics.Histogram;
+import game.model.Direction;
+import game.model.ExitPlacement;
+import game.model.ExitSelector;
+import game.model.GameState;
+import game.model.Maze;
+import game.model.MazeCache;
+import game.model.PathField;
+import game.model.Player;
+import game.protocol.Message;
+import game.protocol.MessageType;
+import game.protocol.Snapshot;
+import game.protocol.SnapshotHistory;
+import game.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Комната - одна независимая партия со своим лабиринтом, выходом и игроками
+ * Все изменения состояния комнаты выполняются в потоке её шарда (см. RoomManager),
+ * поэтому занятая комната не задерживает комнаты других шардов.
+ * Ходы игроков копятся в очередях игроков (InputQueue) и применяются раз в тик в tick():
+ * каждому игроку не больше, чем позволяет его ведро токенов (InputLimits), по очереди между игроками.
+ * Поток ходов от одного клиента упирается в его собственную очередь и не раздувает рассылку комнаты.
+ * Клиент с предсказанием нумерует ходы; на тике, где учтены его новые ходы, он получает INPUT_ACK
+ * с номером последнего учтённого хода и своей позицией после него.
+ * После ходов каждый клиент получает одно сообщение STATE_UPDATE: разницу между снимком
+ * его зоны видимости и последним снимком, получение которого клиент подтвердил.
+ * Зона видимости ищется по пространственной сетке (InterestGrid).
+ * В установившемся режиме путь хода не выделяет памяти: ходы копятся в кольцевых массивах InputQueue,
+ * снимки, вытесненные из истории клиента, перезаполняются заново, а обновление
+ * кодируется соединением прямо в его буфер записи (ClientConnection.sendStateUpdate).
+ * С метриками (setMetrics) комната замеряет тик, проверку ходов, рассылку, очереди ходов
+ * и круг до клиента - от рассылки тика до STATE_ACK с его номером
+ */
+public class GameRoom {
+    /** ID локального игрока в окне сервера */
+    public static final int HOST_PLAYER_ID = 1;
+    
+    private final int id;
+    private final int capacity;
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final ExitPlacement exitPlacement;
+    private final Executor executor;
+    private final List<ClientConnection> clients;
+    private final GameState gameState;
+    private final InputLimits inputLimits;
+    // Места игроков с их очередями ходов; снимок заменяется целиком под блокировкой комнаты, читается без неё
+    private volatile Seats seats = Seats.EMPTY;
+    // Ходы текущего тика: пары (ID игрока, код направления), собранные из очередей по кругу
+    private int[] tickMoves = new int[32];
+    private final LongAdder droppedMoves = new LongAdder();
+    private final List<Player> changedPlayers;
+    private final Map<ClientConnection, ClientReplica> replicas;
+    private final List<Player> visiblePlayers;
+    private InterestGrid interest;
+    private long tickNumber;
+    // Игрок ушёл посреди партии: на ближайшем тике видевшие его клиенты получат его в списке ушедших
+    private boolean playersLeft;
+    private boolean hasLocalPlayer;
+    private int playerCount;
+    private int nextPlayerId;
+    private GameServer.GameEndListener gameEndListener;
+    private GameServer.GameStartListener gameStartListener;
+    private GameServer.PositionListener positionListener;
+    // null - метрики выключены, тик не вызывает System.nanoTime()
+    private ServerMetrics metrics;
+    private Histogram tickNanos;
+    // Время рассылки последних тиков для замера круга по STATE_ACK: ячейка tick % SNAPSHOT_HISTORY.
+    // Пишет поток шарда, читают потоки чтения: номер тика до и после чтения времени должен совпасть
+    private AtomicLongArray publishedTicks;
+    private AtomicLongArray publishedNanos;
+    
+    /**
+     * Места в комнате: ID игрока и его очередь ходов по номеру места
+     * ID игроков не повторяются, а место, освобождённое ушедшим до старта, достаётся следующему:
+     * по месту выбирается стартовый угол, и массивы не растут от переподключений.
+     * Снимок неизменяем, поэтому ID и очередь одного места всегда читаются согласованно
+     */
+    private static final class Seats {
+        static final Seats EMPTY = new Seats(new int[0], new InputQueue[0]);
+        
+        // ID игрока на месте, 0 - место свободно (ID начинаются с 1)
+        final int[] players;
+        final InputQueue[] inputs;
+        
+        Seats(int[] players, InputQueue[] inputs) {
+            this.players = players;
+            this.inputs = inputs;
+        }
+        
+        /**
+         * Место игрока или -1; мест не больше вместимости комнаты, поэтому поиск перебором
+         */
+        int indexOf(int playerId) {
+            for (int seat = 0; seat < players.length; seat++) {
+                if (players[seat] == playerId) {
+                    return seat;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * Снимок с игроком на первом свободном месте
+         */
+        Seats take(int playerId, InputQueue input) {
+            int seat = indexOf(0);
+            if (seat < 0) {
+                seat = players.length;
+            }
+            int[] updatedPlayers = Arrays.copyOf(players, Math.max(players.length, seat + 1));
+            InputQueue[] updatedInputs = Arrays.copyOf(inputs, updatedPlayers.length);
+            updatedPlayers[seat] = playerId;
+            updatedInputs[seat] = input;
+            return new Seats(updatedPlayers, updatedInputs);
+        }
+        
+        /**
+         * Снимок без игрока; его место становится свободным
+         */
+        Seats release(int playerId) {
+            int seat = indexOf(playerId);
+            if (seat < 0) {
+                return this;
+            }
+            int[] updatedPlayers = players.clone();
+            InputQueue[] updatedInputs = inputs.clone();
+            updatedPlayers[seat] = 0;
+            updatedInputs[seat] = null;
+            return new Seats(updatedPlayers, updatedInputs);
+        }
+    }
+    
+    /**
+     * Что клиент уже получил: отправленные ему снимки зоны видимости и последний подтверждённый тик
+     */
+    private static final class ClientReplica {
+        final SnapshotHistory views = new SnapshotHistory(Constants.SNAPSHOT_HISTORY);
+        Snapshot lastSent = Snapshot.EMPTY;
+        // Снимок, в который снимается зона видимости на следующем тике
+        Snapshot scratch = Snapshot.reusable();
+        // Пишет только поток чтения клиента, читает поток шарда
+        volatile long ackedTick;
+    }
+    
+    public GameRoom(int id, int capacity, int mazeWidth, int mazeHeight, Executor executor) {
+        this(id, capacity, mazeWidth, mazeHeight, ExitPlacement.MANHATTAN, executor);
+    }
+    
+    /**
+     * @param exitPlacement как выбирать выход: по прямому расстоянию или по пути от стартовых позиций
+     */
+    public GameRoom(int id, int capacity, int mazeWidth, int mazeHeight, ExitPlacement exitPlacement, Executor executor) {
+        this(id, capacity, mazeWidth, mazeHeight, exitPlacement, InputLimits.defaults(Constants.TICK_RATE), executor);
+    }
+    
+    /**
+     * @param inputLimits ограничение частоты ходов и размер очереди ходов каждого игрока
+     */
+    public GameRoom(int id, int capacity, int mazeWidth, int mazeHeight, ExitPlacement exitPlacement,
+                    InputLimits inputLimits, Executor executor) {
+        this.id = id;
+        this.capacity = capacity;
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+        this.exitPlacement = exitPlacement;
+        this.executor = executor;
+        this.clients = new CopyOnWriteArrayList<>();
+        this.gameState = new GameState();
+        this.inputLimits = inputLimits;
+        this.changedPlayers = new ArrayList<>();
+        this.replicas = new ConcurrentHashMap<>();
+        this.visiblePlayers = new ArrayList<>();
+        this.nextPlayerId = 1;
+    }
+    
+    public void setGameEndListener(GameServer.GameEndListener listener) {
+        this.gameEndListener = listener;
+    }
+    
+    /**
+     * Слушатель начала партии для окна сервера: вызывается в потоке шарда, когда комната заполнилась
+     */
+    public void setGameStartListener(GameServer.GameStartListener listener) {
+        this.gameStartListener = listener;
+    }
+    
+    /**
+     * Слушатель позиций для окна сервера: вызывается в потоке шарда после каждого тика
+     */
+    public void setPositionListener(GameServer.PositionListener listener) {
+        this.positionListener = listener;
+    }
+    
+    /**
+     * Включает метрики комнаты; вызывается до первого тика, null - без метрик
+     * @param shard номер шарда комнаты: тики учитываются по шардам
+     */
+    public void setMetrics(ServerMetrics metrics, int shard) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            tickNanos = metrics.tickNanos(shard);
+            publishedTicks = new AtomicLongArray(Constants.SNAPSHOT_HISTORY);
+            publishedNanos = new AtomicLongArray(Constants.SNAPSHOT_HISTORY);
+        }
+    }
+    
+    /**
+     * Выполняет задачу в потоке шарда комнаты
+     * После остановки сервера шарды не принимают задач, такие задачи отбрасываются
+     */
+    public void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Сервер остановлен, комната больше не обрабатывается
+        }
+    }
+    
+    /**
+     * Добавляет локального игрока окна сервера (ID 1)
+     */
+    public synchronized void addLocalPlayer() {
+        if (hasLocalPlayer) {
+            return;
+        }
+        hasLocalPlayer = true;
+        nextPlayerId = HOST_PLAYER_ID + 1;
+        playerCount++;
+        seats = seats.take(HOST_PLAYER_ID, new InputQueue(inputLimits));
+        int[] start = startPositionFor(seats.indexOf(HOST_PLAYER_ID));
+        gameState.addPlayer(new Player(HOST_PLAYER_ID, start[0], start[1]));
+    }
+    
+    /**
+     * Резервирует место в комнате и выдаёт клиенту ID игрока
+     * @return false, если комната уже заполнена или партия идёт
+     */
+    public synchronized boolean reserve(ClientConnection client) {
+        if (playerCount >= capacity || gameState.isGameStarted()) {
+            return false;
+        }
+        int pid = nextPlayerId++;
+        playerCount++;
+        seats = seats.take(pid, new InputQueue(inputLimits));
+        client.assignRoom(this, pid);
+        return true;
+    }
+    
+    /**
+     * Добавляет клиента, получившего место через reserve(), и запускает партию при заполнении комнаты
+     */
+    public void join(ClientConnection client) {
+        replicas.put(client, new ClientReplica());
+        clients.add(client);
+        int[] start = startPositionFor(seats.indexOf(client.getPlayerId()));
+        gameState.addPlayer(new Player(client.getPlayerId(), start[0], start[1]));
+        
+        // Считаем подключённых, а не таблицу игроков: в ней не должно быть ушедших, но старт от этого не зависит
+        if (joinedPlayers() >= capacity && !gameState.isGameStarted()) {
+            startGame(System.currentTimeMillis() + id);
+        }
+    }
+    
+    /**
+     * Игроки, уже вошедшие в комнату: клиенты после join() и игрок окна сервера
+     */
+    private synchronized int joinedPlayers() {
+        return clients.size() + (hasLocalPlayer ? 1 : 0);
+    }
+    
+    /**
+     * Убирает клиента из комнаты; вызывается в потоке шарда
+     * Его игрок удаляется из партии, иначе ушедший до старта занимал бы место и попадал в игру,
+     * и из сетки видимости - иначе остальные клиенты видели бы его до конца партии
+     */
+    public void leave(ClientConnection client) {
+        clients.remove(client);
+        replicas.remove(client);
+        int pid = client.getPlayerId();
+        Player player = gameState.getPlayer(pid);
+        gameState.removePlayer(pid);
+        if (player != null && interest != null) {
+            interest.remove(player);
+            playersLeft = true;
+            if (positionListener != null) {
+                positionListener.onPlayerLeave(pid);
+            }
+        }
+        synchronized (this) {
+            playerCount--;
+            seats = seats.release(pid);
+        }
+    }
+    
+    /**
+     * Стартовая позиция по месту игрока: чётные места начинают в левом верхнем углу, нечётные - в правом нижнем
+     * Место, а не ID: ID ушедшего до старта не повторяется, и новый игрок попал бы в занятый угол
+     */
+    private int[] startPositionFor(int seat) {
+        if (seat % 2 == 0) {
+            return new int[]{0, 0};
+        }
+        return new int[]{mazeWidth - 1, mazeHeight - 1};
+    }
+    
+    /**
+     * Создаёт лабиринт и рассылает начало игры всем игрокам комнаты
+     */
+    public void startGame(long seed) {
+        if (gameState.isGameStarted()) {
+            return;
+        }
+        
+        // Лабиринт по seed для синхронизации с клиентом; реванш и комнаты с тем же seed берут его из кэша
+        Maze maze = MazeCache.shared().get(mazeWidth, mazeHeight, seed);
+        
+        // Устанавливаем стартовые позиции игроков
+        Seats current = seats;
+        for (Player player : gameState.getPlayers().values()) {
+            int[] start = startPositionFor(current.indexOf(player.getId()));
+            player.setPosition(start[0], start[1]);
+        }
+        
+        // Генерируем случайную позицию финиша (минимум 10 блоков от стартовых позиций)
+        int[] exitPos = new ExitSelector(maze).select(exitPlacement);
+        gameState.initialize(maze, exitPos[0], exitPos[1]);
+        
+        // Проверяем, что выход достижим с каждой стартовой позиции
+        PathField pathToExit = gameState.getPathToExit();
+        for (Player player : gameState.getPlayers().values()) {
+            if (!pathToExit.isReachable(player.getX(), player.getY())) {
+                System.err.println("Комната " + id + ": выход недостижим для игрока " + player.getId());
+            }
+        }
+        
+        interest = new InterestGrid(mazeWidth, mazeHeight, Constants.VISIBILITY_RADIUS);
+        for (Player player : gameState.getPlayers().values()) {
+            interest.add(player);
+        }
+        
+        // Отправляем информацию о начале игры всем клиентам
+        for (ClientConnection client : clients) {
+            sendGameStart(client);
+        }
+        
+        System.out.println("Комната " + id + ": игра инициализирована! (кэш: " + MazeCache.shared() + ")");
+        
+        if (gameStartListener != null) {
+            gameStartListener.onGameStart(gameState);
+        }
+    }
+    
+    public void sendGameStart(ClientConnection client) {
+        if (gameState.isGameStarted()) {
+            Player player = gameState.getPlayer(client.getPlayerId());
+            if (player != null) {
+                Maze maze = gameState.getMaze();
+                String[] data = {
+                    String.valueOf(client.getPlayerId()),
+                    String.valueOf(maze.getSeed()),
+                    String.valueOf(player.getX()),
+                    String.valueOf(player.getY()),
+                    String.valueOf(gameState.getExitX()),
+                    String.valueOf(gameState.getExitY()),
+                    String.valueOf(maze.getWidth()),
+                    String.valueOf(maze.getHeight())
+                };
+                Message msg = new Message(MessageType.GAME_START, data);
+                client.sendMessage(msg);
+            }
+        }
+    }
+    
+    /**
+     * Принимает сообщение клиента; можно вызывать из любого потока
+     * Ход ставится в очередь до следующего тика, остальное выполняется в потоке шарда
+     */
+    public void handleMessage(ClientConnection client, Message message) {
+        switch (message.getType()) {
+            case PLAYER_MOVE:
+                handlePlayerMove(client, message);
+                break;
+            case SYNC_REQUEST:
+                execute(() -> sendGameStart(client));
+                break;
+            case STATE_ACK:
+                handleStateAck(client, message);
+                break;
+        }
+    }
+    
+    private void handleStateAck(ClientConnection client, Message message) {
+        String[] data = message.getData();
+        if (data.length < 1) {
+            return;
+        }
+        try {
+            acknowledge(client, Long.parseLong(data[0]));
+        } catch (NumberFormatException e) {
+            System.err.println("Неверный номер тика в подтверждении");
+        }
+    }
+    
+    /**
+     * Клиент подтвердил получение снимка tick; можно вызывать из любого потока
+     */
+    public void acknowledge(ClientConnection client, long tick) {
+        ClientReplica replica = replicas.get(client);
+        if (replica != null && tick > replica.ackedTick) {
+            replica.ackedTick = tick;
+            ServerMetrics current = metrics;
+            if (current != null) {
+                recordRoundTrip(current, tick);
+            }
+        }
+    }
+    
+    private void recordRoundTrip(ServerMetrics current, long tick) {
+        int slot = (int) (tick % publishedTicks.length());
+        if (publishedTicks.get(slot) != tick) {
+            return;
+        }
+        long sentAt = publishedNanos.get(slot);
+        // Шард мог перезаписать ячейку следующим кругом истории, пока мы читали время
+        if (publishedTicks.get(slot) == tick) {
+            current.rttNanos.record(System.nanoTime() - sentAt);
+        }
+    }
+    
+    private void handlePlayerMove(ClientConnection client, Message message) {
+        String[] data = message.getData();
+        if (data.length < 2) {
+            return;
+        }
+        
+        try {
+            int pid = Integer.parseInt(data[0]);
+            Direction direction = Direction.fromWireName(data[1]);
+            if (direction == null) {
+                System.err.println("Неизвестное направление в сообщении о движении: " + data[1]);
+                return;
+            }
+            int sequence = data.length > 2 ? Integer.parseInt(data[2]) : 0;
+            
+            handlePlayerMove(client, pid, direction, sequence);
+        } catch (NumberFormatException e) {
+            System.err.println("Неверный ID игрока или номер хода в сообщении о движении");
+        }
+    }
+    
+    /**
+     * Уже разобранный ход клиента; можно вызывать из любого потока
+     * Клиент может ходить только своим игроком
+     */
+    public void handlePlayerMove(ClientConnection client, int pid, Direction direction) {
+        handlePlayerMove(client, pid, direction, 0);
+    }
+    
+    /**
+     * @param sequence номер хода клиента с предсказанием или 0, если клиент ходы не нумерует
+     */
+    public void handlePlayerMove(ClientConnection client, int pid, Direction direction, int sequence) {
+        if (pid == client.getPlayerId()) {
+            queueMove(pid, direction, sequence);
+        }
+    }
+    
+    /**
+     * Ставит ход в очередь игрока; можно вызывать из любого потока
+     * Если очередь полна, ход отбрасывается или сливается по политике InputLimits - только у этого игрока
+     */
+    public void queueMove(int playerId, Direction direction) {
+        queueMove(playerId, direction, 0);
+    }
+    
+    private void queueMove(int playerId, Direction direction, int sequence) {
+        Seats current = seats;
+        int seat = playerId > 0 ? current.indexOf(playerId) : -1;
+        InputQueue input = seat >= 0 ? current.inputs[seat] : null;
+        if (input == null || input.offer(direction, sequence)) {
+            return;
+        }
+        droppedMoves.increment();
+        ServerMetrics roomMetrics = metrics;
+        if (roomMetrics != null) {
+            roomMetrics.droppedMoves.increment();
+        }
+        if (input.getDropped() == 1) {
+            System.err.println("Комната " + id + ": игрок " + playerId + " присылает ходы быстрее лимита, лишние ("
+                + inputLimits.getOverflow() + ") не применяются");
+        }
+    }
+    
+    /**
+     * Сколько ходов отброшено из-за переполнения очередей игроков за всё время комнаты
+     */
+    public long getDroppedMoves() {
+        return droppedMoves.sum();
+    }
+    
+    /**
+     * Один шаг симуляции, вызывается в потоке шарда с частотой тиков
+     * Применяет накопленные ходы по порядку и рассылает одно обновление состояния.
+     * Всё, что тик отправляет клиенту (обновление, конец игры), уходит в его сокет одной записью
+     */
+    public void tick() {
+        ServerMetrics current = metrics;
+        if (current == null) {
+            runTick(null);
+            return;
+        }
+        long start = System.nanoTime();
+        runTick(current);
+        tickNanos.record(System.nanoTime() - start);
+    }
+    
+    private void runTick(ServerMetrics current) {
+        tickNumber++;
+        int size = collectMoves(current);
+        if (size == 0 && !playersLeft) {
+            return;
+        }
+        int[] moves = tickMoves;
+        // Список клиентов меняется только в потоке шарда, поэтому пакеты открываются и закрываются у одних и тех же
+        for (int i = 0; i < clients.size(); i++) {
+            clients.get(i).beginBatch();
+        }
+        try {
+            for (int i = 0; i < size; i += 2) {
+                if (current == null) {
+                    applyMove(moves[i], Direction.fromCode(moves[i + 1]));
+                    continue;
+                }
+                long start = System.nanoTime();
+                applyMove(moves[i], Direction.fromCode(moves[i + 1]));
+                current.moveValidateNanos.record(System.nanoTime() - start);
+            }
+            // Подтверждения раньше обновления: клиент с предсказанием сверит свою позицию до чужих
+            acknowledgeInputs();
+            publishState();
+        } catch (RuntimeException e) {
+            // Исключение отменило бы периодическую задачу шарда, поэтому только логируем
+            System.err.println("Ошибка тика комнаты " + id + ": " + e.getMessage());
+            changedPlayers.clear();
+        } finally {
+            for (int i = 0; i < clients.size(); i++) {
+                clients.get(i).endBatch();
+            }
+        }
+    }
+    
+    /**
+     * Пополняет вёдра игроков и забирает разрешённые ходы в tickMoves по кругу: сначала первый ход
+     * каждого игрока, затем второй и так далее - игрок с запасом ходов не проходит весь путь раньше остальных
+     * @return число занятых элементов tickMoves (по два на ход)
+     */
+    private int collectMoves(ServerMetrics roomMetrics) {
+        Seats current = seats;
+        for (InputQueue input : current.inputs) {
+            if (input != null) {
+                input.refill();
+                if (roomMetrics != null) {
+                    roomMetrics.inputQueueDepth.record(input.size());
+                }
+            }
+        }
+        
+        int size = 0;
+        boolean taken = true;
+        while (taken) {
+            taken = false;
+            for (int seat = 0; seat < current.inputs.length; seat++) {
+                InputQueue input = current.inputs[seat];
+                int code = input != null ? input.poll() : -1;
+                if (code < 0) {
+                    continue;
+                }
+                if (size == tickMoves.length) {
+                    tickMoves = Arrays.copyOf(tickMoves, tickMoves.length * 2);
+                }
+                tickMoves[size++] = current.players[seat];
+                tickMoves[size++] = code;
+                taken = true;
+            }
+        }
+        return size;
+    }
+    
+    private void applyMove(int pid, Direction direction) {
+        if (!gameState.isGameStarted() || gameState.isGameEnded()) {
+            return;
+        }
+        Player player = gameState.getPlayer(pid);
+        
+        if (player != null && !player.isFinished()) {
+            // Проверяем возможность движения
+            long state = player.getState();
+            int oldX = Player.xOf(state);
+            int oldY = Player.yOf(state);
+            if (gameState.getMaze().canMove(oldX, oldY, direction)) {
+                int newX = oldX + direction.getDx();
+                int newY = oldY + direction.getDy();
+                
+                player.move(newX, newY, direction);
+                interest.move(player, oldX, oldY);
+                if (!changedPlayers.contains(player)) {
+                    changedPlayers.add(player);
+                }
+                
+                // Проверяем победу
+                if (gameState.checkWin(pid, newX, newY)) {
+                    // Финальные позиции должны дойти до клиентов раньше конца игры
+                    publishState();
+                    broadcastGameEnd(pid, gameState.getElapsedTime());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Отправляет INPUT_ACK клиентам, чьи нумерованные ходы учтены на этом тике (применены или отброшены)
+     */
+    private void acknowledgeInputs() {
+        Seats current = seats;
+        for (int i = 0; i < clients.size(); i++) {
+            ClientConnection client = clients.get(i);
+            int pid = client.getPlayerId();
+            int seat = current.indexOf(pid);
+            InputQueue input = seat >= 0 ? current.inputs[seat] : null;
+            Player player = gameState.getPlayer(pid);
+            if (input == null || player == null) {
+                continue;
+            }
+            int sequence = input.takeAcknowledgement();
+            if (sequence > 0) {
+                long state = player.getState();
+                client.sendInputAck(sequence, Player.xOf(state), Player.yOf(state), Player.directionOf(state));
+            }
+        }
+    }
+    
+    /**
+     * Если за тик что-то изменилось, отправляет каждому клиенту, чья зона видимости изменилась,
+     * одно сообщение с разницей относительно подтверждённого им снимка.
+     * Игроки, вошедшие в зону, приходят в сообщении целиком, вышедшие - списком ушедших
+     */
+    private void publishState() {
+        if (changedPlayers.isEmpty() && !playersLeft) {
+            return;
+        }
+        playersLeft = false;
+        
+        // Уведомляем серверное окно
+        if (positionListener != null) {
+            for (int i = 0; i < changedPlayers.size(); i++) {
+                Player player = changedPlayers.get(i);
+                long state = player.getState();
+                positionListener.onPositionUpdate(player.getId(), Player.xOf(state), Player.yOf(state), Player.directionOf(state));
+            }
+        }
+        changedPlayers.clear();
+        
+        ServerMetrics current = metrics;
+        long start = current != null ? System.nanoTime() : 0;
+        // Список клиентов меняется только в потоке шарда, поэтому обход по индексу безопасен и не создаёт итератор
+        for (int i = 0; i < clients.size(); i++) {
+            ClientConnection client = clients.get(i);
+            ClientReplica replica = replicas.get(client);
+            Player viewer = gameState.getPlayer(client.getPlayerId());
+            if (replica == null || viewer == null) {
+                continue;
+            }
+            
+            visiblePlayers.clear();
+            long viewerState = viewer.getState();
+            interest.collectVisible(Player.xOf(viewerState), Player.yOf(viewerState), visiblePlayers);
+            Snapshot view = replica.scratch;
+            view.recapture(tickNumber, visiblePlayers);
+            if (view.samePlayers(replica.lastSent)) {
+                continue;
+            }
+            
+            Snapshot baseline = replica.views.get(replica.ackedTick);
+            if (baseline == null) {
+                // Подтверждённый снимок вытеснен из истории - отправляем состояние целиком
+                baseline = Snapshot.EMPTY;
+            }
+            client.sendStateUpdate(view, baseline);
+            replica.lastSent = view;
+            // Вытесненный снимок больше никому не нужен (обновление уже закодировано) - заполним его на следующем тике
+            Snapshot evicted = replica.views.put(view);
+            replica.scratch = evicted != null && evicted.isReusable() ? evicted : Snapshot.reusable();
+        }
+        if (current != null) {
+            long end = System.nanoTime();
+            current.fanOutNanos.record(end - start);
+            int slot = (int) (tickNumber % publishedTicks.length());
+            publishedTicks.set(slot, -1);
+            publishedNanos.set(slot, end);
+            publishedTicks.set(slot, tickNumber);
+        }
+    }
+    
+    public void broadcastGameEnd(int winnerId, long time) {
+        // Уведомляем серверное окно
+        if (gameEndListener != null) {
+            gameEndListener.onGameEnd(winnerId, time);
+        }
+        
+        // Отправляем клиентам
+        for (ClientConnection client : clients) {
+            client.sendGameEnd(winnerId, time);
+        }
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public GameState getGameState() {
+        return gameState;
+    }
+    
+    public List<ClientConnection> getClients() {
+        return clients;
+    }
+    
+    public synchronized boolean isFull() {
+        return playerCount >= capacity;
+    }
+    
+    public synchronized boolean isEmpty() {
+        return playerCount == 0;
+    }
+    
+    public void stop() {
+        for (ClientConnection client : clients) {
+            client.stopHandler();
+        }
+    }
+}
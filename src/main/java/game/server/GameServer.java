@@ -1,49 +1,140 @@
 package game.server;
 
+import game.model.Direction;
+import game.metrics.JvmMetrics;
+import game.metrics.MetricsExporter;
+import game.metrics.MetricsRegistry;
 import game.model.GameState;
-import game.model.Maze;
-import game.model.Player;
-import game.utils.Constants;
+import game.protocol.Message;
+import game.utils.ConnectionThreads;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ThreadFactory;
 
 public class GameServer {
     private ServerSocket serverSocket;
-    private List<ClientHandler> clients;
-    private GameState gameState;
-    private boolean gameInitialized;
-    private int nextPlayerId;
+    private NioTransport nioTransport;
+    private TransportMode transportMode;
+    // Потоки циклов чтения ClientHandler в режимах BLOCKING и VIRTUAL
+    private ThreadFactory connectionThreads;
+    private boolean tcpNoDelay;
+    private RoomManager rooms;
+    private GameRoom hostRoom;
     private GameEndListener gameEndListener;
+    private GameStartListener gameStartListener;
+    private PositionListener positionListener;
+    // null - метрики выключены (см. ServerConfig.isMetricsEnabled)
+    private MetricsRegistry metricsRegistry;
+    private ServerMetrics metrics;
+    private MetricsExporter metricsExporter;
     
     public interface GameEndListener {
         void onGameEnd(int winnerId, long time);
     }
     
+    /**
+     * Начало партии в комнате окна сервера, вызывается из потока шарда
+     */
+    public interface GameStartListener {
+        void onGameStart(GameState gameState);
+    }
+    
+    /**
+     * Изменения позиций в комнате окна сервера, вызывается из потока шарда после тика
+     */
+    public interface PositionListener {
+        void onPositionUpdate(int playerId, int x, int y, Direction direction);
+        
+        /**
+         * Игрок отключился посреди партии
+         */
+        default void onPlayerLeave(int playerId) {
+        }
+    }
+    
     public void setGameEndListener(GameEndListener listener) {
         this.gameEndListener = listener;
+        if (hostRoom != null) {
+            hostRoom.setGameEndListener(listener);
+        }
+    }
+    
+    public void setGameStartListener(GameStartListener listener) {
+        this.gameStartListener = listener;
+        if (hostRoom != null) {
+            hostRoom.setGameStartListener(listener);
+        }
+    }
+    
+    public void setPositionListener(PositionListener listener) {
+        this.positionListener = listener;
+        if (hostRoom != null) {
+            hostRoom.setPositionListener(listener);
+        }
     }
     
     public GameServer(int port) throws IOException {
-        serverSocket = new ServerSocket(port);
-        clients = new ArrayList<>();
-        nextPlayerId = 1;
-        gameInitialized = false;
-        System.out.println("Сервер запущен на порту " + port);
+        this(port, TransportMode.BLOCKING);
+    }
+    
+    public GameServer(int port, TransportMode transportMode) throws IOException {
+        this(new ServerConfig(port, transportMode));
+    }
+    
+    public GameServer(ServerConfig config) throws IOException {
+        this.transportMode = config.getTransportMode();
+        this.tcpNoDelay = config.isTcpNoDelay();
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (transportMode == TransportMode.NIO) {
+            nioTransport = new NioTransport(config.getPort(), this, cores, tcpNoDelay);
+        } else {
+            serverSocket = new ServerSocket(config.getPort());
+            connectionThreads = ConnectionThreads.select(transportMode == TransportMode.VIRTUAL, false);
+        }
+        rooms = new RoomManager(config.getRoomCapacity(), config.getMazeWidth(), config.getMazeHeight(),
+            config.getShards(), config.getTickRate(), config.getMaxRooms(), config.getExitPlacement(),
+            config.getInputLimits());
+        if (config.isMetricsEnabled()) {
+            metricsRegistry = new MetricsRegistry();
+            metrics = new ServerMetrics(metricsRegistry, rooms.getShardCount());
+            metrics.registerServerGauges(metricsRegistry, rooms);
+            JvmMetrics.register(metricsRegistry, "server_");
+            rooms.setMetrics(metrics);
+            metricsExporter = MetricsExporter.start(metricsRegistry, config.getMetricsPort(),
+                config.getMetricsLogSeconds(), "сервер");
+        }
+        System.out.println("Сервер запущен на порту " + getPort() + " (транспорт: " + transportMode + ")");
+    }
+    
+    /**
+     * Порт, на котором сервер принимает клиентов
+     */
+    public int getPort() {
+        return nioTransport != null ? nioTransport.getLocalPort() : serverSocket.getLocalPort();
     }
     
     public void start() {
+        if (transportMode == TransportMode.NIO) {
+            // Циклы событий принимают клиентов сами, комнаты стартуют по мере заполнения
+            nioTransport.start();
+            return;
+        }
+        
+        if (hostRoom == null) {
+            // Выделенный сервер без окна: принимаем клиентов, пока сокет не закрыт
+            while (!serverSocket.isClosed()) {
+                waitForClient();
+            }
+            return;
+        }
+        
         // Ждём первого игрока (сервер)
         waitForServerPlayer();
         
-        // Ждём второго игрока (клиент)
+        // Ждём второго игрока (клиент), игра начнётся при заполнении комнаты
         waitForClient();
-        
-        // Инициализируем игру когда оба подключены
-        initializeGame();
     }
     
     private void waitForServerPlayer() {
@@ -55,113 +146,104 @@ public class GameServer {
         try {
             System.out.println("Ожидание подключения клиента...");
             Socket clientSocket = serverSocket.accept();
+            clientSocket.setTcpNoDelay(tcpNoDelay);
             System.out.println("Клиент подключен: " + clientSocket.getRemoteSocketAddress());
             
-            ClientHandler clientHandler = new ClientHandler(clientSocket, this, 2);
-            clients.add(clientHandler);
+            ClientHandler clientHandler = new ClientHandler(clientSocket, this, connectionThreads);
+            onClientConnected(clientHandler);
             clientHandler.start();
         } catch (IOException e) {
-            System.err.println("Ошибка принятия клиента: " + e.getMessage());
+            if (!serverSocket.isClosed()) {
+                System.err.println("Ошибка принятия клиента: " + e.getMessage());
+            }
         }
     }
     
-    public void addServerPlayer() {
-        // Создаём игрока для сервера (ID 1)
-        if (gameState == null) {
-            gameState = new GameState();
+    /**
+     * Помещает нового клиента в комнату через лобби
+     */
+    void onClientConnected(ClientConnection client) {
+        GameRoom room = rooms.join(client);
+        if (room == null) {
+            System.out.println("Лимит комнат исчерпан, клиент отключен");
+            client.stopHandler();
+            return;
         }
-        
-        // Позиция будет установлена при инициализации игры
-        Player serverPlayer = new Player(1, 0, 0);
-        gameState.addPlayer(serverPlayer);
+        System.out.println("Клиент подключен: Игрок " + client.getPlayerId() + " в комнате " + room.getId());
     }
     
-    private void initializeGame() {
-        if (gameInitialized || clients.size() < 1) {
-            return;
-        }
-        
-        // Создаём лабиринт с использованием seed для синхронизации с клиентом
-        long seed = System.currentTimeMillis();
-        Maze maze = new Maze(Constants.MAZE_WIDTH, Constants.MAZE_HEIGHT, seed);
-        
-        if (gameState == null) {
-            gameState = new GameState();
-        }
-        
-        // Устанавливаем стартовые позиции игроков
-        Player player1 = gameState.getPlayer(1);
-        if (player1 == null) {
-            player1 = new Player(1, 0, 0);
-            gameState.addPlayer(player1);
-        }
-        player1.setPosition(0, 0);
-        
-        Player player2 = gameState.getPlayer(2);
-        if (player2 == null) {
-            player2 = new Player(2, Constants.MAZE_WIDTH - 1, Constants.MAZE_HEIGHT - 1);
-            gameState.addPlayer(player2);
-        } else {
-            player2.setPosition(Constants.MAZE_WIDTH - 1, Constants.MAZE_HEIGHT - 1);
-        }
-        
-        // Генерируем случайную позицию финиша (минимум 10 блоков от стартовых позиций)
-        int[] exitPos = maze.getFixedExitPosition();
-        int exitX = exitPos[0];
-        int exitY = exitPos[1];
-        
-        gameState.initialize(maze, exitX, exitY);
-        gameInitialized = true;
-        
-        // Отправляем информацию о начале игры всем клиентам
-        for (ClientHandler client : clients) {
-            client.sendGameStart();
+    public void addServerPlayer() {
+        // Создаём комнату окна сервера с игроком ID 1, клиенты подключаются в неё первыми
+        if (hostRoom == null) {
+            hostRoom = rooms.createRoom();
+            hostRoom.setGameEndListener(gameEndListener);
+            hostRoom.setGameStartListener(gameStartListener);
+            hostRoom.setPositionListener(positionListener);
+            rooms.setOpenRoom(hostRoom);
         }
         
-        System.out.println("Игра инициализирована!");
+        // Позиция будет установлена при инициализации игры
+        hostRoom.addLocalPlayer();
     }
     
-    public void broadcastPosition(int playerId, int x, int y, String direction) {
-        // Обновляем позицию в gameState для серверного игрока
-        if (gameState != null) {
-            Player player = gameState.getPlayer(playerId);
-            if (player != null) {
-                player.setPosition(x, y);
-                player.setDirection(direction);
-            }
-        }
-        
-        // Отправляем клиентам
-        for (ClientHandler client : clients) {
-            client.sendPositionUpdate(playerId, x, y, direction);
+    /**
+     * Передаёт сообщение клиента его комнате (ходы применятся на ближайшем тике)
+     */
+    public void handleMessage(ClientConnection client, Message message) {
+        GameRoom room = client.getRoom();
+        if (room != null) {
+            room.handleMessage(client, message);
         }
     }
     
-    public void broadcastGameEnd(int winnerId, long time) {
-        // Уведомляем серверное окно
-        if (gameEndListener != null) {
-            gameEndListener.onGameEnd(winnerId, time);
-        }
-        
-        // Отправляем клиентам
-        for (ClientHandler client : clients) {
-            client.sendGameEnd(winnerId, time);
+    /**
+     * Ход игрока окна сервера, применяется на ближайшем тике комнаты как и ходы клиентов
+     */
+    public void queueHostMove(Direction direction) {
+        if (hostRoom != null) {
+            hostRoom.queueMove(GameRoom.HOST_PLAYER_ID, direction);
         }
     }
     
+    /**
+     * Состояние партии окна сервера
+     */
     public GameState getGameState() {
-        return gameState;
+        return hostRoom != null ? hostRoom.getGameState() : null;
+    }
+    
+    public RoomManager getRooms() {
+        return rooms;
+    }
+    
+    /**
+     * Метрики сервера для вывода или null, если они выключены
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+    
+    ServerMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public TransportMode getTransportMode() {
+        return transportMode;
     }
     
-    public void removeClient(ClientHandler client) {
-        clients.remove(client);
+    public void removeClient(ClientConnection client) {
+        rooms.leave(client);
         System.out.println("Клиент отключен: Игрок " + client.getPlayerId());
     }
     
     public void stop() {
         try {
-            for (ClientHandler client : clients) {
-                client.stopHandler();
+            rooms.shutdown();
+            if (metricsExporter != null) {
+                metricsExporter.stop();
+            }
+            if (nioTransport != null) {
+                nioTransport.stop();
             }
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
@@ -0,0 +1,61 @@
+package game.server;
+
+import game.utils.Constants;
+
+/**
+ * Ограничения входящих ходов одного игрока: ведро токенов и размер очереди
+ * Каждый тик ведро пополняется на movesPerTick токенов, но не больше burst; ход тратит токен.
+ * Ходы сверх токенов ждут следующих тиков в очереди из queueSize ходов, при её переполнении
+ * действует политика overflow. Так игрок, присылающий ходы потоком, двигается не быстрее
+ * остальных и не раздувает рассылку комнаты - лишнее отбрасывается на его соединении
+ */
+public final class InputLimits {
+    private final double movesPerTick;
+    private final int burst;
+    private final int queueSize;
+    private final InputOverflow overflow;
+    
+    private InputLimits(double movesPerTick, int burst, int queueSize, InputOverflow overflow) {
+        if (movesPerTick <= 0 || burst < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Неверные ограничения ходов: " + movesPerTick + " за тик, запас "
+                + burst + ", очередь " + queueSize);
+        }
+        this.movesPerTick = movesPerTick;
+        this.burst = burst;
+        this.queueSize = queueSize;
+        this.overflow = overflow;
+    }
+    
+    /**
+     * @param movesPerSecond сколько ходов в секунду разрешено игроку в среднем
+     * @param tickRate частота тиков комнаты
+     * @param burst сколько ходов подряд можно сделать после паузы (ёмкость ведра)
+     */
+    public static InputLimits perSecond(int movesPerSecond, int tickRate, int burst, int queueSize, InputOverflow overflow) {
+        return new InputLimits((double) movesPerSecond / tickRate, burst, queueSize, overflow);
+    }
+    
+    /**
+     * Значения по умолчанию из Constants для заданной частоты тиков
+     */
+    public static InputLimits defaults(int tickRate) {
+        return perSecond(Constants.MOVES_PER_SECOND, tickRate, Constants.MOVE_BURST, Constants.INPUT_QUEUE_SIZE,
+            InputOverflow.DROP_NEWEST);
+    }
+    
+    public double getMovesPerTick() {
+        return movesPerTick;
+    }
+    
+    public int getBurst() {
+        return burst;
+    }
+    
+    public int getQueueSize() {
+        return queueSize;
+    }
+    
+    public InputOverflow getOverflow() {
+        return overflow;
+    }
+}
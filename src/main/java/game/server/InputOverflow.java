@@ -0,0 +1,10 @@
+package game.server;
+
+/**
+ * Что делать с ходом, пришедшим в заполненную очередь ходов игрока (см. InputQueue)
+ */
+public enum InputOverflow {
+    DROP_NEWEST,  // Новый ход отбрасывается: применяются самые ранние ходы в исходном порядке
+    DROP_OLDEST,  // Отбрасывается самый старый ход: в очереди остаются последние нажатия
+    MERGE         // Новый ход заменяет последний в очереди: последнее намерение игрока побеждает
+}
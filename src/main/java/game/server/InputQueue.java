@@ -0,0 +1,124 @@
+package game.server;
+
+import game.model.Direction;
+
+/**
+ * Ограниченная очередь ходов одного игрока с ведром токенов (см. InputLimits)
+ * offer() вызывают потоки чтения, refill() и poll() - поток шарда на тике.
+ * Ходы хранятся кодами направлений в кольцевом массиве, поэтому очередь не выделяет память.
+ * Рядом хранятся номера ходов клиента с предсказанием: по ним комната подтверждает учтённые ходы (INPUT_ACK)
+ */
+final class InputQueue {
+    private final int[] codes;
+    private final int[] sequences;
+    private final InputOverflow overflow;
+    private final double movesPerTick;
+    private final double burst;
+    private int head;
+    private int size;
+    private double tokens;
+    private long dropped;
+    // Номера последнего пришедшего, последнего взятого на тике и последнего подтверждённого хода; 0 - номеров нет
+    private int lastOffered;
+    private int lastPolled;
+    private int acknowledged;
+    
+    InputQueue(InputLimits limits) {
+        this.codes = new int[limits.getQueueSize()];
+        this.sequences = new int[codes.length];
+        this.overflow = limits.getOverflow();
+        this.movesPerTick = limits.getMovesPerTick();
+        this.burst = limits.getBurst();
+        this.tokens = burst;
+    }
+    
+    synchronized boolean offer(Direction direction) {
+        return offer(direction, 0);
+    }
+    
+    /**
+     * Сколько ходов ждут в очереди
+     */
+    synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * Ставит ход в очередь
+     * @param sequence номер хода клиента с предсказанием или 0
+     * @return false, если очередь была полна и какой-то ход отброшен по политике переполнения
+     */
+    synchronized boolean offer(Direction direction, int sequence) {
+        int code = direction.getCode();
+        lastOffered = Math.max(lastOffered, sequence);
+        if (size < codes.length) {
+            int tail = (head + size) % codes.length;
+            codes[tail] = code;
+            sequences[tail] = sequence;
+            size++;
+            return true;
+        }
+        
+        dropped++;
+        switch (overflow) {
+            case DROP_OLDEST:
+                // Очередь полна, поэтому место за последним ходом - это место самого старого
+                codes[head] = code;
+                sequences[head] = sequence;
+                head = (head + 1) % codes.length;
+                break;
+            case MERGE:
+                int last = (head + size - 1) % codes.length;
+                codes[last] = code;
+                sequences[last] = sequence;
+                break;
+            default:
+                break;
+        }
+        return false;
+    }
+    
+    /**
+     * Пополняет ведро на один тик
+     */
+    synchronized void refill() {
+        tokens = Math.min(burst, tokens + movesPerTick);
+    }
+    
+    /**
+     * Следующий ход, который можно применить на этом тике
+     * @return код направления или -1, если очередь пуста или токены кончились
+     */
+    synchronized int poll() {
+        if (size == 0 || tokens < 1) {
+            return -1;
+        }
+        tokens -= 1;
+        int code = codes[head];
+        lastPolled = Math.max(lastPolled, sequences[head]);
+        head = (head + 1) % codes.length;
+        size--;
+        return code;
+    }
+    
+    /**
+     * Номер хода, до которого включительно пора подтвердить ввод клиенту, или 0, если нового нет
+     * Пока в очереди есть ходы, подтверждается последний взятый на тике. Когда очередь пуста, учтены
+     * и отброшенные при переполнении ходы, поэтому подтверждается последний пришедший
+     */
+    synchronized int takeAcknowledgement() {
+        int sequence = size == 0 ? lastOffered : lastPolled;
+        if (sequence <= acknowledged) {
+            return 0;
+        }
+        acknowledged = sequence;
+        return sequence;
+    }
+    
+    /**
+     * Сколько ходов отброшено из-за переполнения очереди
+     */
+    synchronized long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,78 @@
+package game.server;
+
+import game.model.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пространственная сетка игроков комнаты для отбора по зоне видимости
+ * Лабиринт разбит на квадратные ячейки со стороной 2 * radius + 1, поэтому квадрат видимости
+ * любого игрока задевает не больше четырёх ячеек, и запрос стоит столько,
+ * сколько игроков рядом, а не сколько их в комнате
+ */
+class InterestGrid {
+    private final int radius;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final List<List<Player>> cells;
+    
+    InterestGrid(int width, int height, int radius) {
+        this.radius = radius;
+        this.cellSize = radius * 2 + 1;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cells = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            cells.add(new ArrayList<>(2));
+        }
+    }
+    
+    void add(Player player) {
+        cellAt(player.getX(), player.getY()).add(player);
+    }
+    
+    /**
+     * Переносит игрока в ячейку новой позиции; вызывается после setPosition
+     */
+    void move(Player player, int oldX, int oldY) {
+        List<Player> from = cellAt(oldX, oldY);
+        List<Player> to = cellAt(player.getX(), player.getY());
+        if (from != to) {
+            from.remove(player);
+            to.add(player);
+        }
+    }
+    
+    void remove(Player player) {
+        cellAt(player.getX(), player.getY()).remove(player);
+    }
+    
+    /**
+     * Игроки, которых видно из клетки (x, y): квадрат со стороной 2 * radius + 1, как рисует GamePanel
+     */
+    void collectVisible(int x, int y, List<Player> result) {
+        int fromColumn = Math.max(0, (x - radius) / cellSize);
+        int toColumn = Math.min(columns - 1, (x + radius) / cellSize);
+        int fromRow = Math.max(0, (y - radius) / cellSize);
+        int toRow = Math.min(rows - 1, (y + radius) / cellSize);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                List<Player> cell = cells.get(row * columns + column);
+                for (int i = 0; i < cell.size(); i++) {
+                    long state = cell.get(i).getState();
+                    if (Math.abs(Player.xOf(state) - x) <= radius && Math.abs(Player.yOf(state) - y) <= radius) {
+                        result.add(cell.get(i));
+                    }
+                }
+            }
+        }
+    }
+    
+    private List<Player> cellAt(int x, int y) {
+        int column = Math.min(columns - 1, Math.max(0, x / cellSize));
+        int row = Math.min(rows - 1, Math.max(0, y / cellSize));
+        return cells.get(row * columns + column);
+    }
+}
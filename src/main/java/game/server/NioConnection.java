@@ -0,0 +1,413 @@
+package game.server;
+
+import game.model.Direction;
+import game.protocol.BinaryCodec;
+import game.protocol.InPlaceDecoder;
+import game.protocol.InputAck;
+import game.protocol.Message;
+import game.protocol.MessageType;
+import game.protocol.ProtocolParser;
+import game.protocol.Snapshot;
+import game.protocol.WireFormat;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Соединение с клиентом в неблокирующем режиме
+ * Чтение выполняется только в потоке своего цикла событий; ходы и подтверждения
+ * разбираются прямо в буфере чтения (InPlaceDecoder). Отправка из любого потока кодирует
+ * сообщение сразу в прямой буфер записи соединения и пытается записать его в сокет,
+ * а то, что не влезло в сокет, дописывает цикл событий по OP_WRITE.
+ * Внутри пакета (beginBatch/endBatch - тик комнаты, проход цикла событий) сообщения только
+ * копятся в буфере, и весь пакет уходит в сокет одним системным вызовом.
+ * Буферы растут только до установившегося размера, поэтому ход и обновление состояния
+ * не выделяют памяти
+ */
+public class NioConnection implements ClientConnection {
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int WRITE_BUFFER_SIZE = 4096;
+    // Клиент, который не читает свои сообщения, не должен занять всю память сервера
+    private static final int MAX_WRITE_BUFFER_SIZE = 1 << 20;
+    
+    private final SocketChannel channel;
+    private final GameServer server;
+    private final NioTransport.EventLoop loop;
+    // null - метрики выключены
+    private final ServerMetrics metrics;
+    private volatile int playerId;
+    private volatile GameRoom room;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final InPlaceDecoder decoder = new InPlaceDecoder();
+    private final Object writeLock = new Object();
+    // Закодированные, но ещё не записанные в сокет байты (буфер в режиме записи), доступ под writeLock
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private boolean waitingForWritable;
+    // Глубина вложенных пакетов, пока больше нуля - в сокет не пишем; доступ под writeLock
+    private int batchDepth;
+    private SelectionKey selectionKey;
+    private WireFormat readFormat = WireFormat.TEXT;
+    private volatile WireFormat writeFormat = WireFormat.TEXT;
+    private volatile boolean closed;
+    
+    NioConnection(SocketChannel channel, GameServer server, NioTransport.EventLoop loop) {
+        this.channel = channel;
+        this.server = server;
+        this.loop = loop;
+        this.metrics = server.getMetrics();
+    }
+    
+    SocketChannel getChannel() {
+        return channel;
+    }
+    
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+    
+    /**
+     * Читает доступные байты и обрабатывает каждое полное сообщение
+     */
+    void onReadable() {
+        // Ответы на все сообщения одного чтения уходят одной записью
+        beginBatch();
+        try {
+            int read;
+            while ((read = channel.read(readBuffer)) > 0) {
+                if (metrics != null) {
+                    metrics.traffic.receivedBytes(read);
+                }
+                readBuffer.flip();
+                processInput();
+                readBuffer.compact();
+                if (!readBuffer.hasRemaining()) {
+                    growReadBuffer();
+                }
+            }
+            if (read < 0) {
+                close();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ошибка чтения от игрока " + playerId + ": " + e.getMessage());
+            close();
+        } finally {
+            endBatch();
+        }
+    }
+    
+    /**
+     * Разбирает все полные сообщения в буфере; формат может смениться посреди буфера
+     */
+    private void processInput() {
+        while (readBuffer.hasRemaining() && !closed) {
+            int decoded = decoder.decode(readBuffer, readFormat);
+            if (decoded != InPlaceDecoder.OTHER) {
+                if (metrics != null) {
+                    metrics.traffic.received(decoded == InPlaceDecoder.MOVE ? MessageType.PLAYER_MOVE : MessageType.STATE_ACK);
+                }
+                GameRoom current = room;
+                if (current != null && decoded == InPlaceDecoder.MOVE) {
+                    current.handlePlayerMove(this, decoder.getPlayerId(), decoder.getDirection(), decoder.getSequence());
+                } else if (current != null) {
+                    current.acknowledge(this, decoder.getTick());
+                }
+                continue;
+            }
+            
+            Message message = readFormat == WireFormat.BINARY ? BinaryCodec.decode(readBuffer) : readLine();
+            if (message == null) {
+                return;
+            }
+            if (metrics != null) {
+                metrics.traffic.received(message.getType());
+            }
+            if (message.getType() == MessageType.PROTOCOL) {
+                switchFormat(message);
+            } else {
+                server.handleMessage(this, message);
+            }
+        }
+    }
+    
+    /**
+     * Читает строку текстового протокола или возвращает null, если '\n' ещё не пришёл
+     */
+    private Message readLine() {
+        while (true) {
+            int start = readBuffer.position();
+            int end = -1;
+            for (int i = start; i < readBuffer.limit(); i++) {
+                if (readBuffer.get(i) == '\n') {
+                    end = i;
+                    break;
+                }
+            }
+            if (end < 0) {
+                return null;
+            }
+            
+            byte[] bytes = new byte[end - start];
+            readBuffer.get(bytes);
+            readBuffer.get(); // '\n'
+            Message message = Message.fromProtocolString(new String(bytes, StandardCharsets.UTF_8));
+            if (message != null) {
+                return message;
+            }
+        }
+    }
+    
+    private void growReadBuffer() throws IOException {
+        if (readBuffer.capacity() >= MAX_LINE_LENGTH) {
+            throw new IOException("Слишком длинное сообщение");
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+        readBuffer.flip();
+        bigger.put(readBuffer);
+        readBuffer = bigger;
+    }
+    
+    /**
+     * Переключает формат по запросу клиента: читаем в новом формате сразу,
+     * подтверждение отправляем текстом и только после него пишем в новом формате
+     */
+    private void switchFormat(Message request) {
+        WireFormat requested = ProtocolParser.requestedFormat(request);
+        if (requested == null) {
+            return;
+        }
+        readFormat = requested;
+        synchronized (writeLock) {
+            encode(ProtocolParser.formatAck(requested), WireFormat.TEXT);
+            writeFormat = requested;
+        }
+        if (metrics != null) {
+            metrics.traffic.sent(MessageType.PROTOCOL);
+        }
+        flushWrites();
+    }
+    
+    /**
+     * Дописывает буфер в сокет, когда он снова готов к записи
+     */
+    void onWritable() {
+        flushWrites();
+    }
+    
+    @Override
+    public void sendMessage(Message message) {
+        if (closed || message == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            encode(message, writeFormat);
+        }
+        if (metrics != null) {
+            metrics.traffic.sent(message.getType());
+        }
+        flushWrites();
+    }
+    
+    @Override
+    public void sendStateUpdate(Snapshot view, Snapshot baseline) {
+        if (closed) {
+            return;
+        }
+        synchronized (writeLock) {
+            while (true) {
+                int mark = writeBuffer.position();
+                try {
+                    view.writeDelta(baseline, writeBuffer, writeFormat);
+                    break;
+                } catch (BufferOverflowException e) {
+                    writeBuffer.position(mark);
+                    if (!growWriteBuffer()) {
+                        return;
+                    }
+                }
+            }
+        }
+        if (metrics != null) {
+            metrics.traffic.sent(MessageType.STATE_UPDATE);
+        }
+        flushWrites();
+    }
+    
+    @Override
+    public void sendInputAck(int sequence, int x, int y, Direction direction) {
+        if (closed) {
+            return;
+        }
+        synchronized (writeLock) {
+            while (true) {
+                int mark = writeBuffer.position();
+                try {
+                    InputAck.write(writeBuffer, writeFormat, sequence, x, y, direction);
+                    break;
+                } catch (BufferOverflowException e) {
+                    writeBuffer.position(mark);
+                    if (!growWriteBuffer()) {
+                        return;
+                    }
+                }
+            }
+        }
+        if (metrics != null) {
+            metrics.traffic.sent(MessageType.INPUT_ACK);
+        }
+        flushWrites();
+    }
+    
+    @Override
+    public void beginBatch() {
+        synchronized (writeLock) {
+            batchDepth++;
+        }
+    }
+    
+    @Override
+    public void endBatch() {
+        synchronized (writeLock) {
+            if (batchDepth == 0 || --batchDepth > 0) {
+                return;
+            }
+        }
+        flushWrites();
+    }
+    
+    /**
+     * Дописывает сообщение в буфер записи; вызывается под writeLock
+     */
+    private void encode(Message message, WireFormat format) {
+        byte[] text = format == WireFormat.TEXT ? message.toProtocolString().getBytes(StandardCharsets.UTF_8) : null;
+        while (true) {
+            int mark = writeBuffer.position();
+            try {
+                if (text != null) {
+                    writeBuffer.put(text);
+                } else {
+                    BinaryCodec.encode(message, writeBuffer);
+                }
+                return;
+            } catch (BufferOverflowException e) {
+                writeBuffer.position(mark);
+                if (!growWriteBuffer()) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Удваивает буфер записи; вызывается под writeLock
+     * @return false, если клиент слишком отстал и соединение закрывается
+     */
+    private boolean growWriteBuffer() {
+        if (writeBuffer.capacity() >= MAX_WRITE_BUFFER_SIZE) {
+            System.err.println("Игрок " + playerId + " не успевает читать сообщения, соединение закрывается");
+            stopHandler();
+            return false;
+        }
+        ByteBuffer bigger = ByteBuffer.allocateDirect(writeBuffer.capacity() * 2);
+        writeBuffer.flip();
+        bigger.put(writeBuffer);
+        writeBuffer = bigger;
+        return true;
+    }
+    
+    /**
+     * Записывает буфер в сокет из текущего потока; если сокет заполнен, ждём OP_WRITE
+     * Внутри пакета ничего не делает - запись выполнит endBatch()
+     */
+    private void flushWrites() {
+        if (closed) {
+            return;
+        }
+        try {
+            synchronized (writeLock) {
+                if (batchDepth > 0 || writeBuffer.position() == 0) {
+                    return;
+                }
+                writeBuffer.flip();
+                int written = channel.write(writeBuffer);
+                boolean pending = writeBuffer.hasRemaining();
+                if (metrics != null) {
+                    recordWrite(written, writeBuffer.remaining(), pending && !waitingForWritable);
+                }
+                writeBuffer.compact();
+                if (pending != waitingForWritable) {
+                    waitingForWritable = pending;
+                    selectionKey.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                    if (pending && !loop.inEventLoop()) {
+                        // Selector применит новый интерес только на следующем select()
+                        loop.wakeup();
+                    }
+                }
+            }
+        } catch (IOException | CancelledKeyException e) {
+            System.err.println("Ошибка записи игроку " + playerId + ": " + e.getMessage());
+            stopHandler();
+        }
+    }
+    
+    /**
+     * Учёт записи в сокет: отправленные байты и сколько осталось в буфере
+     * @param stalled сокет впервые не принял всё, и запись переходит на OP_WRITE
+     */
+    private void recordWrite(int written, int pending, boolean stalled) {
+        metrics.traffic.sentBytes(written);
+        metrics.outboundPendingBytes.record(pending);
+        if (stalled) {
+            metrics.outboundStalls.increment();
+        }
+    }
+    
+    @Override
+    public int getPlayerId() {
+        return playerId;
+    }
+    
+    @Override
+    public GameRoom getRoom() {
+        return room;
+    }
+    
+    @Override
+    public void assignRoom(GameRoom room, int playerId) {
+        this.room = room;
+        this.playerId = playerId;
+    }
+    
+    @Override
+    public void stopHandler() {
+        if (loop.inEventLoop()) {
+            close();
+        } else {
+            loop.execute(this::close);
+        }
+    }
+    
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (selectionKey != null) {
+            selectionKey.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка закрытия соединения: " + e.getMessage());
+        }
+        synchronized (writeLock) {
+            writeBuffer.clear();
+        }
+        server.removeClient(this);
+    }
+}
@@ -0,0 +1,185 @@
+package game.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Неблокирующий транспорт сервера на Selector/SocketChannel
+ * Один поток принимает подключения, несколько циклов событий обслуживают все соединения,
+ * поэтому число потоков ОС не зависит от количества клиентов
+ */
+public class NioTransport {
+    private final GameServer server;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final boolean tcpNoDelay;
+    private Thread acceptThread;
+    private volatile boolean running;
+    private int nextLoop;
+    
+    public NioTransport(int port, GameServer server, int loopCount, boolean tcpNoDelay) throws IOException {
+        this.server = server;
+        this.tcpNoDelay = tcpNoDelay;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port));
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+    }
+    
+    /**
+     * Порт, к которому привязан сервер (актуально при запуске на порту 0)
+     */
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    
+    public void start() {
+        running = true;
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        
+        acceptThread = new Thread(this::acceptLoop, "nio-accept");
+        acceptThread.start();
+    }
+    
+    private void acceptLoop() {
+        System.out.println("Ожидание подключений (циклов событий: " + loops.length + ")...");
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                if (channel == null) {
+                    continue;
+                }
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(tcpNoDelay);
+                
+                // Распределяем соединения по циклам событий по кругу
+                EventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                
+                NioConnection connection = new NioConnection(channel, server, loop);
+                loop.register(connection);
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Ошибка принятия клиента: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    public void stop() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка закрытия серверного канала: " + e.getMessage());
+        }
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+    
+    /**
+     * Цикл событий: один Selector и один поток на все закреплённые за ним соединения
+     */
+    final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-loop-" + index);
+            this.thread.setDaemon(true);
+        }
+        
+        void register(NioConnection connection) {
+            execute(() -> {
+                try {
+                    SelectionKey key = connection.getChannel().register(selector, SelectionKey.OP_READ, connection);
+                    connection.setSelectionKey(key);
+                    server.onClientConnected(connection);
+                } catch (IOException e) {
+                    System.err.println("Ошибка регистрации канала: " + e.getMessage());
+                    connection.close();
+                }
+            });
+        }
+        
+        /**
+         * Выполняет задачу в потоке цикла событий
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+        
+        /**
+         * Прерывает ожидание select(), чтобы цикл увидел изменённый интерес ключа
+         */
+        void wakeup() {
+            selector.wakeup();
+        }
+        
+        boolean inEventLoop() {
+            return Thread.currentThread() == thread;
+        }
+        
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    runTasks();
+                    
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (!key.isValid()) {
+                            connection.close();
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Ошибка в цикле событий: " + e.getMessage());
+                }
+            }
+            
+            for (SelectionKey key : selector.keys()) {
+                ((NioConnection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Ошибка закрытия Selector: " + e.getMessage());
+            }
+        }
+        
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package game.server;
+
+import game.model.ExitPlacement;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лобби и реестр комнат
+ * Новые клиенты заполняют текущую открытую комнату, полная комната стартует сама.
+ * Комнаты распределены по шардам - однопоточным исполнителям, поэтому состояние
+ * комнаты меняется только одним потоком, а разные шарды работают параллельно.
+ * Шард вызывает tick() каждой своей комнаты с фиксированной частотой tickRate
+ */
+public class RoomManager {
+    private final int capacity;
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final int maxRooms;
+    private final ExitPlacement exitPlacement;
+    private final InputLimits inputLimits;
+    private final long tickPeriodNanos;
+    private final ScheduledExecutorService[] shards;
+    private final Map<Integer, GameRoom> rooms;
+    private final Map<Integer, ScheduledFuture<?>> tickTasks;
+    private GameRoom openRoom;
+    // null - метрики выключены
+    private ServerMetrics metrics;
+    private int nextRoomId;
+    
+    public RoomManager(int capacity, int mazeWidth, int mazeHeight, int shardCount, int tickRate) {
+        this(capacity, mazeWidth, mazeHeight, shardCount, tickRate, 0);
+    }
+    
+    /**
+     * @param maxRooms максимум одновременных комнат, 0 - без ограничения
+     */
+    public RoomManager(int capacity, int mazeWidth, int mazeHeight, int shardCount, int tickRate, int maxRooms) {
+        this(capacity, mazeWidth, mazeHeight, shardCount, tickRate, maxRooms, ExitPlacement.MANHATTAN);
+    }
+    
+    /**
+     * @param maxRooms максимум одновременных комнат, 0 - без ограничения
+     * @param exitPlacement как комнаты выбирают выход
+     */
+    public RoomManager(int capacity, int mazeWidth, int mazeHeight, int shardCount, int tickRate, int maxRooms,
+            ExitPlacement exitPlacement) {
+        this(capacity, mazeWidth, mazeHeight, shardCount, tickRate, maxRooms, exitPlacement, InputLimits.defaults(tickRate));
+    }
+    
+    /**
+     * @param maxRooms максимум одновременных комнат, 0 - без ограничения
+     * @param exitPlacement как комнаты выбирают выход
+     * @param inputLimits ограничение ходов каждого игрока (рассчитано на эту частоту тиков)
+     */
+    public RoomManager(int capacity, int mazeWidth, int mazeHeight, int shardCount, int tickRate, int maxRooms,
+            ExitPlacement exitPlacement, InputLimits inputLimits) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Частота тиков должна быть положительной: " + tickRate);
+        }
+        this.capacity = capacity;
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+        this.maxRooms = maxRooms;
+        this.exitPlacement = exitPlacement;
+        this.inputLimits = inputLimits;
+        this.tickPeriodNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+        this.rooms = new ConcurrentHashMap<>();
+        this.tickTasks = new ConcurrentHashMap<>();
+        this.shards = new ScheduledExecutorService[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            final int index = i;
+            shards[i] = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "room-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * Создаёт новую комнату, закрепляет её за шардом и запускает её тики
+     */
+    public synchronized GameRoom createRoom() {
+        int id = nextRoomId++;
+        ScheduledExecutorService shard = shards[id % shards.length];
+        GameRoom room = new GameRoom(id, capacity, mazeWidth, mazeHeight, exitPlacement, inputLimits, shard);
+        room.setMetrics(metrics, id % shards.length);
+        rooms.put(id, room);
+        tickTasks.put(id, shard.scheduleAtFixedRate(room::tick, tickPeriodNanos, tickPeriodNanos, TimeUnit.NANOSECONDS));
+        return room;
+    }
+    
+    /**
+     * Метрики для комнат, созданных после вызова; null - без метрик
+     */
+    public synchronized void setMetrics(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Помещает клиента в открытую комнату, при необходимости создавая новую
+     * @return null, если открытой комнаты нет, а лимит комнат исчерпан
+     */
+    public GameRoom join(ClientConnection client) {
+        GameRoom room;
+        synchronized (this) {
+            if (openRoom == null || !openRoom.reserve(client)) {
+                if (maxRooms > 0 && rooms.size() >= maxRooms) {
+                    return null;
+                }
+                openRoom = createRoom();
+                openRoom.reserve(client);
+            }
+            room = openRoom;
+        }
+        room.execute(() -> room.join(client));
+        return room;
+    }
+    
+    /**
+     * Делает комнату открытой для подключения новых клиентов (например, комнату окна сервера)
+     */
+    public synchronized void setOpenRoom(GameRoom room) {
+        this.openRoom = room;
+    }
+    
+    public void leave(ClientConnection client) {
+        GameRoom room = client.getRoom();
+        if (room == null) {
+            return;
+        }
+        room.execute(() -> {
+            room.leave(client);
+            if (room.isEmpty()) {
+                removeRoom(room);
+            }
+        });
+    }
+    
+    private synchronized void removeRoom(GameRoom room) {
+        rooms.remove(room.getId());
+        ScheduledFuture<?> tickTask = tickTasks.remove(room.getId());
+        if (tickTask != null) {
+            tickTask.cancel(false);
+        }
+        if (openRoom == room) {
+            openRoom = null;
+        }
+    }
+    
+    public GameRoom getRoom(int id) {
+        return rooms.get(id);
+    }
+    
+    public Collection<GameRoom> getRooms() {
+        return rooms.values();
+    }
+    
+    public int getRoomCount() {
+        return rooms.size();
+    }
+    
+    public int getShardCount() {
+        return shards.length;
+    }
+    
+    public long getTickPeriodNanos() {
+        return tickPeriodNanos;
+    }
+    
+    public void shutdown() {
+        for (GameRoom room : rooms.values()) {
+            room.stop();
+        }
+        for (ScheduledExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
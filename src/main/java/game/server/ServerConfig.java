@@ -0,0 +1,309 @@
+package game.server;
+
+import game.model.ExitPlacement;
+import game.model.Maze;
+import game.utils.Constants;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Настройки выделенного сервера
+ * Значения по умолчанию берутся из Constants; их переопределяет файл настроек (--config=путь,
+ * формат properties с теми же ключами), а его - аргументы командной строки вида --ключ=значение
+ */
+public class ServerConfig {
+    /**
+     * Справка по аргументам командной строки
+     */
+    public static final String USAGE =
+        "Аргументы выделенного сервера (--ключ=значение):\n"
+        + "  --config=файл       файл настроек с теми же ключами (port=12345 ...)\n"
+        + "  --port=N            порт (по умолчанию " + Constants.DEFAULT_PORT + ")\n"
+        + "  --transport=nio|blocking|virtual\n"
+        + "                      virtual - блокирующий ввод-вывод на виртуальных потоках (Java 21+)\n"
+        + "  --rooms=N           максимум одновременных комнат, 0 - без ограничения\n"
+        + "  --capacity=N        игроков в комнате (по умолчанию " + Constants.ROOM_CAPACITY + ")\n"
+        + "  --shards=N          потоков-шардов комнат (по умолчанию число ядер)\n"
+        + "  --tick-rate=N       тиков в секунду (по умолчанию " + Constants.TICK_RATE + ")\n"
+        + "  --maze=ШxВ          размер лабиринта (по умолчанию " + Constants.MAZE_WIDTH + "x" + Constants.MAZE_HEIGHT + "),\n"
+        + "                      не больше " + Maze.MAX_CELLS + " клеток; готовые лабиринты кэшируются\n"
+        + "                      до " + (Constants.MAZE_CACHE_BYTES >> 20) + " МБ (бит на клетку), карта больше не кэшируется\n"
+        + "  --exit=manhattan|path\n"
+        + "                      выход не ближе 10 клеток к стартам по прямой (по умолчанию)\n"
+        + "                      или в 10 шагах по проходам - тогда он всегда достижим\n"
+        + "  --move-rate=N       ходов игрока в секунду (по умолчанию " + Constants.MOVES_PER_SECOND + ")\n"
+        + "  --move-burst=N      ходов подряд после паузы (по умолчанию " + Constants.MOVE_BURST + ")\n"
+        + "  --input-queue=N     ходов в очереди игрока сверх лимита (по умолчанию " + Constants.INPUT_QUEUE_SIZE + ")\n"
+        + "  --input-overflow=drop-newest|drop-oldest|merge\n"
+        + "                      что делать с ходом при полной очереди (по умолчанию drop-newest)\n"
+        + "  --tcp-nodelay=true|false\n"
+        + "                      false - алгоритм Нейгла (по умолчанию true: сообщения тика и так\n"
+        + "                      уходят одной записью, Нейгл только задержал бы её)\n"
+        + "  --ready-file=файл   записать порт в файл, когда сервер готов принимать клиентов\n"
+        + "  --metrics-port=N    страница метрик http://127.0.0.1:N/metrics (по умолчанию 0 - нет)\n"
+        + "  --metrics-log=N     снимок метрик в журнал раз в N секунд (по умолчанию 0 - нет);\n"
+        + "                      без обоих ключей метрики не собираются";
+    
+    private int port = Constants.DEFAULT_PORT;
+    private TransportMode transportMode = TransportMode.NIO;
+    private int maxRooms;
+    private int roomCapacity = Constants.ROOM_CAPACITY;
+    private int shards = Runtime.getRuntime().availableProcessors();
+    private int tickRate = Constants.TICK_RATE;
+    private int mazeWidth = Constants.MAZE_WIDTH;
+    private int mazeHeight = Constants.MAZE_HEIGHT;
+    private ExitPlacement exitPlacement = ExitPlacement.MANHATTAN;
+    private int moveRate = Constants.MOVES_PER_SECOND;
+    private int moveBurst = Constants.MOVE_BURST;
+    private int inputQueueSize = Constants.INPUT_QUEUE_SIZE;
+    private InputOverflow inputOverflow = InputOverflow.DROP_NEWEST;
+    private boolean tcpNoDelay = true;
+    private String readyFile;
+    private int metricsPort;
+    private int metricsLogSeconds;
+    
+    public ServerConfig() {
+    }
+    
+    public ServerConfig(int port, TransportMode transportMode) {
+        this.port = port;
+        this.transportMode = transportMode;
+    }
+    
+    /**
+     * Разбирает аргументы командной строки
+     * @throws IllegalArgumentException при неизвестном ключе или неверном значении
+     * @throws IOException если не удалось прочитать файл настроек
+     */
+    public static ServerConfig parse(String[] args) throws IOException {
+        ServerConfig config = new ServerConfig();
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида --ключ=значение: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            overrides.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        
+        String file = overrides.getProperty("config");
+        if (file != null) {
+            overrides.remove("config");
+            Properties fromFile = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                fromFile.load(in);
+            }
+            config.apply(fromFile);
+        }
+        config.apply(overrides);
+        return config;
+    }
+    
+    private void apply(Properties properties) {
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            switch (key) {
+                case "port":
+                    port = parseInt(key, value, 0, 65535);
+                    break;
+                case "transport":
+                    transportMode = parseTransport(value);
+                    break;
+                case "rooms":
+                    maxRooms = parseInt(key, value, 0, Integer.MAX_VALUE);
+                    break;
+                case "capacity":
+                    roomCapacity = parseInt(key, value, 1, Integer.MAX_VALUE);
+                    break;
+                case "shards":
+                    shards = parseInt(key, value, 1, Integer.MAX_VALUE);
+                    break;
+                case "tick-rate":
+                    tickRate = parseInt(key, value, 1, 1000);
+                    break;
+                case "maze":
+                    int x = value.indexOf('x');
+                    if (x < 0) {
+                        throw new IllegalArgumentException("Размер лабиринта задаётся как ШxВ: " + value);
+                    }
+                    mazeWidth = parseInt(key, value.substring(0, x), 2, Integer.MAX_VALUE);
+                    mazeHeight = parseInt(key, value.substring(x + 1), 2, Integer.MAX_VALUE);
+                    if ((long) mazeWidth * mazeHeight > Maze.MAX_CELLS) {
+                        throw new IllegalArgumentException("Лабиринт " + value + " больше " + Maze.MAX_CELLS + " клеток");
+                    }
+                    break;
+                case "exit":
+                    exitPlacement = parseExitPlacement(value);
+                    break;
+                case "move-rate":
+                    moveRate = parseInt(key, value, 1, 10000);
+                    break;
+                case "move-burst":
+                    moveBurst = parseInt(key, value, 1, 10000);
+                    break;
+                case "input-queue":
+                    inputQueueSize = parseInt(key, value, 1, 10000);
+                    break;
+                case "input-overflow":
+                    inputOverflow = parseInputOverflow(value);
+                    break;
+                case "tcp-nodelay":
+                    tcpNoDelay = parseBoolean(key, value);
+                    break;
+                case "ready-file":
+                    readyFile = value;
+                    break;
+                case "metrics-port":
+                    metricsPort = parseInt(key, value, 0, 65535);
+                    break;
+                case "metrics-log":
+                    metricsLogSeconds = parseInt(key, value, 0, 86400);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный ключ: " + key);
+            }
+        }
+    }
+    
+    private static int parseInt(String key, String value, int min, int max) {
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверное число для " + key + ": " + value);
+        }
+        if (result < min || result > max) {
+            throw new IllegalArgumentException("Значение " + key + " вне диапазона [" + min + ", " + max + "]: " + value);
+        }
+        return result;
+    }
+    
+    private static boolean parseBoolean(String key, String value) {
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Ожидалось true или false для " + key + ": " + value);
+    }
+    
+    private static ExitPlacement parseExitPlacement(String value) {
+        for (ExitPlacement placement : ExitPlacement.values()) {
+            if (placement.name().equalsIgnoreCase(value)) {
+                return placement;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный способ выбора выхода: " + value);
+    }
+    
+    private static InputOverflow parseInputOverflow(String value) {
+        for (InputOverflow overflow : InputOverflow.values()) {
+            if (overflow.name().replace('_', '-').equalsIgnoreCase(value)) {
+                return overflow;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная политика переполнения очереди ходов: " + value);
+    }
+    
+    private static TransportMode parseTransport(String value) {
+        for (TransportMode mode : TransportMode.values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный транспорт: " + value);
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
+    public TransportMode getTransportMode() {
+        return transportMode;
+    }
+    
+    /**
+     * Максимум одновременных комнат, 0 - без ограничения
+     */
+    public int getMaxRooms() {
+        return maxRooms;
+    }
+    
+    public int getRoomCapacity() {
+        return roomCapacity;
+    }
+    
+    public int getShards() {
+        return shards;
+    }
+    
+    public int getTickRate() {
+        return tickRate;
+    }
+    
+    public int getMazeWidth() {
+        return mazeWidth;
+    }
+    
+    public int getMazeHeight() {
+        return mazeHeight;
+    }
+    
+    public ExitPlacement getExitPlacement() {
+        return exitPlacement;
+    }
+    
+    /**
+     * Ограничение ходов игрока для частоты тиков этих настроек
+     */
+    public InputLimits getInputLimits() {
+        return InputLimits.perSecond(moveRate, tickRate, moveBurst, inputQueueSize, inputOverflow);
+    }
+    
+    /**
+     * TCP_NODELAY для сокетов клиентов; false - ядро склеивает мелкие записи по алгоритму Нейгла
+     */
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+    
+    public String getReadyFile() {
+        return readyFile;
+    }
+    
+    /**
+     * Порт страницы метрик на 127.0.0.1, 0 - без страницы
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+    
+    /**
+     * Период снимка метрик в журнал в секундах, 0 - без журнала
+     */
+    public int getMetricsLogSeconds() {
+        return metricsLogSeconds;
+    }
+    
+    /**
+     * Собирать ли метрики: только если их есть куда вывести
+     */
+    public boolean isMetricsEnabled() {
+        return metricsPort > 0 || metricsLogSeconds > 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "порт " + port + ", транспорт " + transportMode
+            + ", комнат " + (maxRooms == 0 ? "без ограничения" : String.valueOf(maxRooms))
+            + ", игроков в комнате " + roomCapacity + ", шардов " + shards
+            + ", тиков в секунду " + tickRate + ", лабиринт " + mazeWidth + "x" + mazeHeight
+            + ", выход " + exitPlacement + ", ходов в секунду " + moveRate + " (подряд " + moveBurst
+            + ", очередь " + inputQueueSize + ", " + inputOverflow + "), TCP_NODELAY " + tcpNoDelay
+            + ", метрики " + (isMetricsEnabled() ? "порт " + metricsPort + ", журнал " + metricsLogSeconds + " с" : "выключены");
+    }
+}
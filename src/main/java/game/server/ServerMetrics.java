@@ -0,0 +1,79 @@
+package game.server;
+
+import game.metrics.Histogram;
+import game.metrics.MessageCounters;
+import game.metrics.MetricsRegistry;
+import game.model.MazeCache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики сервера: трафик соединений, время тиков, проверки ходов и рассылки, очереди и задержка
+ * Создаются, только если они включены (ServerConfig --metrics-port или --metrics-log); иначе
+ * комнаты и соединения получают null, и учёт стоит одну проверку на null без вызовов System.nanoTime().
+ * Время - в наносекундах, размеры очередей - в ходах и байтах
+ */
+public final class ServerMetrics {
+    private static final String PREFIX = "server_";
+    
+    final MessageCounters traffic;
+    // Тики по шардам: медленная комната видна по своему шарду, а не растворяется в общем распределении
+    private final Histogram[] tickNanos;
+    final Histogram moveValidateNanos;
+    final Histogram fanOutNanos;
+    final Histogram inputQueueDepth;
+    final Histogram outboundPendingBytes;
+    final LongAdder outboundStalls;
+    final LongAdder droppedMoves;
+    final Histogram rttNanos;
+    
+    /**
+     * @param shards число шардов комнат (RoomManager.getShardCount)
+     */
+    public ServerMetrics(MetricsRegistry registry, int shards) {
+        traffic = new MessageCounters(registry, PREFIX);
+        tickNanos = new Histogram[Math.max(1, shards)];
+        for (int shard = 0; shard < tickNanos.length; shard++) {
+            tickNanos[shard] = registry.histogram(PREFIX + "tick_nanos{shard=\"" + shard + "\"}",
+                "Длительность тика комнат шарда, нс");
+        }
+        moveValidateNanos = registry.histogram(PREFIX + "move_validate_nanos",
+            "Проверка и применение хода на тике (стены, сетка видимости, победа), нс");
+        fanOutNanos = registry.histogram(PREFIX + "fanout_nanos",
+            "Рассылка STATE_UPDATE всем клиентам комнаты за тик, нс");
+        inputQueueDepth = registry.histogram(PREFIX + "input_queue_depth",
+            "Ходов в очереди игрока в начале тика");
+        outboundPendingBytes = registry.histogram(PREFIX + "outbound_pending_bytes",
+            "Байт в буфере записи NIO-соединения, не принятых сокетом после записи");
+        outboundStalls = registry.counter(PREFIX + "outbound_stalls_total",
+            "Сколько раз сокет клиента не принял всё и запись ждала OP_WRITE");
+        droppedMoves = registry.counter(PREFIX + "dropped_moves_total",
+            "Ходы, отброшенные или слитые при переполнении очереди игрока");
+        rttNanos = registry.histogram(PREFIX + "rtt_nanos",
+            "Круг до клиента: от рассылки STATE_UPDATE до его STATE_ACK, нс");
+    }
+    
+    /**
+     * Гистограмма тиков комнат шарда
+     */
+    Histogram tickNanos(int shard) {
+        return tickNanos[shard % tickNanos.length];
+    }
+    
+    /**
+     * Показатели всего сервера: комнаты, соединения и кэш лабиринтов
+     */
+    void registerServerGauges(MetricsRegistry registry, RoomManager rooms) {
+        registry.gauge(PREFIX + "rooms", "Комнат сейчас", rooms::getRoomCount);
+        registry.gauge(PREFIX + "connections", "Клиентов в комнатах сейчас", () -> {
+            long connections = 0;
+            for (GameRoom room : rooms.getRooms()) {
+                connections += room.getClients().size();
+            }
+            return connections;
+        });
+        MazeCache mazes = MazeCache.shared();
+        registry.gauge(PREFIX + "maze_cache_hits", "Лабиринты, взятые из кэша", mazes::getHits);
+        registry.gauge(PREFIX + "maze_cache_misses", "Лабиринты, сгенерированные заново", mazes::getMisses);
+    }
+}
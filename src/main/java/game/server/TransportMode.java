@@ -0,0 +1,10 @@
+package game.server;
+
+/**
+ * Режим сетевого транспорта сервера
+ */
+public enum TransportMode {
+    BLOCKING,  // Один поток ClientHandler на каждого клиента
+    NIO,       // Несколько циклов событий на Selector, число потоков не зависит от числа клиентов
+    VIRTUAL    // Как BLOCKING, но ClientHandler на виртуальном потоке (Java 21+, иначе обычный поток)
+}
@@ -1,6 +1,7 @@
 package game.ui;
 
 import game.model.GameState;
+import game.model.PathField;
 import game.model.Player;
 import game.utils.Constants;
 
@@ -9,11 +10,28 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 
 public class CompassPanel extends JPanel {
+    // Стрелка считается остановившейся, когда до цели меньше этого угла
+    private static final double SETTLE_DEGREES = 0.5;
+    // Высота полосы с подсказкой о длине пути внизу панели
+    private static final int DISTANCE_STRIP = 24;
+    private static final Color DIAL_FILL = new Color(200, 200, 200);
+    private static final Color NEEDLE_FILL = new Color(200, 0, 0);
+    private static final Color HUB_FILL = new Color(100, 100, 100);
+    private static final Stroke OUTLINE_STROKE = new BasicStroke(2);
+    private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font DISTANCE_FONT = new Font("Arial", Font.PLAIN, 11);
+    private static final String[] DIRECTIONS = {"С", "В", "Ю", "З"};
+    private static final int[] ANGLES = {0, 90, 180, 270};
+    
     private GameState gameState;
     private int playerId;
     private double currentAngle;
     private double targetAngle;
-    private Timer animationTimer;
+    // Кадры окна; стрелка анимируется, только пока поворачивается к цели
+    private FrameScheduler frameScheduler;
+    private final FrameScheduler.Animation needle = this::stepNeedle;
+    private final int[] needleX = new int[3];
+    private final int[] needleY = new int[3];
     
     public CompassPanel() {
         setPreferredSize(new Dimension(Constants.COMPASS_PANEL_SIZE, Constants.COMPASS_PANEL_SIZE));
@@ -22,21 +40,56 @@ public class CompassPanel extends JPanel {
         
         currentAngle = 0;
         targetAngle = 0;
-        
-        // Таймер для плавной анимации стрелки
-        animationTimer = new Timer(16, e -> {
-            updateAnimation();
-            repaint();
-        });
-        animationTimer.start();
     }
     
     public void setGameState(GameState gameState, int playerId) {
         this.gameState = gameState;
         this.playerId = playerId;
+        playerMoved();
+    }
+    
+    void setFrameScheduler(FrameScheduler frameScheduler) {
+        this.frameScheduler = frameScheduler;
+    }
+    
+    /**
+     * Свой игрок сдвинулся: меняются направление на выход и длина пути
+     */
+    void playerMoved() {
+        if (frameScheduler == null) {
+            // Без кадров окна стрелка сразу встаёт на цель
+            calculateTargetAngle();
+            currentAngle = targetAngle;
+            repaint();
+            return;
+        }
+        frameScheduler.invalidate(this, 0, getHeight() - DISTANCE_STRIP, getWidth(), DISTANCE_STRIP);
+        frameScheduler.animate(needle);
+    }
+    
+    /**
+     * Шаг плавного поворота стрелки: перерисовывается только круг компаса
+     * @return false, когда стрелка дошла до цели
+     */
+    private boolean stepNeedle(long now) {
+        calculateTargetAngle();
+        boolean moving = updateAnimation();
+        int centerX = getWidth() / 2;
+        int centerY = getHeight() / 2;
+        int radius = dialRadius();
+        // Запас на обводку круга
+        frameScheduler.invalidate(this, centerX - radius - 2, centerY - radius - 2, radius * 2 + 4, radius * 2 + 4);
+        return moving;
+    }
+    
+    private int dialRadius() {
+        return Math.min(getWidth(), getHeight()) / 2 - 20;
     }
     
-    private void updateAnimation() {
+    /**
+     * @return true, пока стрелка не дошла до цели
+     */
+    private boolean updateAnimation() {
         // Плавное вращение стрелки к целевому углу
         double diff = targetAngle - currentAngle;
         
@@ -44,12 +97,19 @@ public class CompassPanel extends JPanel {
         while (diff > 180) diff -= 360;
         while (diff < -180) diff += 360;
         
+        // Остаток меньше доли градуса не виден: ставим стрелку на цель и останавливаем кадры
+        if (Math.abs(diff) < SETTLE_DEGREES) {
+            currentAngle = targetAngle;
+            return false;
+        }
+        
         // Плавное движение (интерполяция)
         currentAngle += diff * 0.1;
         
         // Нормализуем угол
         while (currentAngle >= 360) currentAngle -= 360;
         while (currentAngle < 0) currentAngle += 360;
+        return true;
     }
     
     private void calculateTargetAngle() {
@@ -64,8 +124,9 @@ public class CompassPanel extends JPanel {
             return;
         }
         
-        int playerX = player.getX();
-        int playerY = player.getY();
+        long state = player.getState();
+        int playerX = Player.xOf(state);
+        int playerY = Player.yOf(state);
         int exitX = gameState.getExitX();
         int exitY = gameState.getExitY();
         
@@ -94,37 +155,31 @@ public class CompassPanel extends JPanel {
         
         int centerX = getWidth() / 2;
         int centerY = getHeight() / 2;
-        int radius = Math.min(getWidth(), getHeight()) / 2 - 20;
+        int radius = dialRadius();
         
         // Рисуем круг компаса
-        g2d.setColor(new Color(200, 200, 200));
+        g2d.setColor(DIAL_FILL);
         g2d.fillOval(centerX - radius, centerY - radius, radius * 2, radius * 2);
         
         g2d.setColor(Color.BLACK);
-        g2d.setStroke(new BasicStroke(2));
+        g2d.setStroke(OUTLINE_STROKE);
         g2d.drawOval(centerX - radius, centerY - radius, radius * 2, radius * 2);
         
         // Рисуем метки направлений
-        g2d.setFont(new Font("Arial", Font.BOLD, 14));
+        g2d.setFont(LABEL_FONT);
         FontMetrics fm = g2d.getFontMetrics();
         
-        String[] directions = {"С", "В", "Ю", "З"};
-        int[] angles = {0, 90, 180, 270};
-        
-        for (int i = 0; i < directions.length; i++) {
-            double angleRad = Math.toRadians(angles[i]);
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            double angleRad = Math.toRadians(ANGLES[i]);
             int x = centerX + (int)((radius - 15) * Math.sin(angleRad));
             int y = centerY - (int)((radius - 15) * Math.cos(angleRad));
             
-            String dir = directions[i];
+            String dir = DIRECTIONS[i];
             int textWidth = fm.stringWidth(dir);
             int textHeight = fm.getHeight();
             g2d.drawString(dir, x - textWidth / 2, y + textHeight / 4);
         }
         
-        // Обновляем целевой угол
-        calculateTargetAngle();
-        
         // Рисуем стрелку
         AffineTransform oldTransform = g2d.getTransform();
         
@@ -134,21 +189,49 @@ public class CompassPanel extends JPanel {
         
         // Рисуем стрелку (треугольник)
         int arrowSize = radius - 10;
-        int[] xPoints = {0, -arrowSize / 3, arrowSize / 3};
-        int[] yPoints = {-arrowSize, arrowSize / 2, arrowSize / 2};
+        needleX[0] = 0;
+        needleY[0] = -arrowSize;
+        needleX[1] = -arrowSize / 3;
+        needleY[1] = arrowSize / 2;
+        needleX[2] = arrowSize / 3;
+        needleY[2] = arrowSize / 2;
         
-        g2d.setColor(new Color(200, 0, 0));
-        g2d.fillPolygon(xPoints, yPoints, 3);
+        g2d.setColor(NEEDLE_FILL);
+        g2d.fillPolygon(needleX, needleY, 3);
         
         g2d.setColor(Color.BLACK);
-        g2d.setStroke(new BasicStroke(2));
-        g2d.drawPolygon(xPoints, yPoints, 3);
+        g2d.setStroke(OUTLINE_STROKE);
+        g2d.drawPolygon(needleX, needleY, 3);
         
         g2d.setTransform(oldTransform);
         
         // Рисуем центр компаса
-        g2d.setColor(new Color(100, 100, 100));
+        g2d.setColor(HUB_FILL);
         g2d.fillOval(centerX - 5, centerY - 5, 10, 10);
+        
+        drawPathDistance(g2d);
+    }
+    
+    /**
+     * Подсказка под компасом: длина кратчайшего пути до выхода (стрелка показывает только направление)
+     */
+    private void drawPathDistance(Graphics2D g2d) {
+        if (gameState == null || !gameState.isGameStarted()) {
+            return;
+        }
+        Player player = gameState.getPlayer(playerId);
+        PathField pathToExit = gameState.getPathToExit();
+        if (player == null || pathToExit == null) {
+            return;
+        }
+        
+        long state = player.getState();
+        int distance = pathToExit.distance(Player.xOf(state), Player.yOf(state));
+        String text = distance == PathField.UNREACHABLE ? "Путь не найден" : "До выхода: " + distance;
+        g2d.setFont(DISTANCE_FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.drawString(text, (getWidth() - fm.stringWidth(text)) / 2, getHeight() - 8);
     }
 }
 
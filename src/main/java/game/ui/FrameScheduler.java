@@ -0,0 +1,151 @@
+package game.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Единый источник кадров окна игры вместо таймеров панелей и repaint() на каждое сообщение
+ * Панели помечают изменившиеся области (invalidate), анимации регистрируются на время
+ * движения (animate). Раз в FRAME_MILLIS таймер делает шаг анимаций и перерисовывает только
+ * накопленные области, поэтому пачка позиций из сети даёт один кадр. Когда перерисовывать
+ * нечего и анимаций нет, таймер останавливается и окно не тратит процессор.
+ * invalidate и animate можно вызывать из любого потока, кадр идёт в потоке Swing
+ */
+final class FrameScheduler {
+    static final int FRAME_MILLIS = 16;
+    
+    /**
+     * Анимация, которой нужны кадры
+     */
+    interface Animation {
+        /**
+         * Шаг анимации в начале кадра (поток Swing); изменившиеся области помечает сама
+         * @return нужен ли анимации следующий кадр
+         */
+        boolean step(long nowMillis);
+    }
+    
+    private final Timer timer;
+    // Под this: панели, их грязные области (пустая - нечего перерисовывать) и активные анимации
+    private final List<JComponent> components = new ArrayList<>();
+    private final List<Rectangle> regions = new ArrayList<>();
+    private final List<Animation> animations = new ArrayList<>();
+    // Только поток Swing: панели и области текущего кадра, переносятся из components и regions под блокировкой
+    private final List<JComponent> frameComponents = new ArrayList<>();
+    private final List<Rectangle> frameRegions = new ArrayList<>();
+    private long frames;
+    
+    FrameScheduler() {
+        timer = new Timer(FRAME_MILLIS, e -> frame());
+    }
+    
+    /**
+     * Перерисовать компонент целиком в ближайшем кадре
+     */
+    void invalidate(JComponent component) {
+        invalidate(component, 0, 0, component.getWidth(), component.getHeight());
+    }
+    
+    /**
+     * Перерисовать область компонента в ближайшем кадре; области одного компонента объединяются
+     */
+    void invalidate(JComponent component, int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        synchronized (this) {
+            union(regionOf(component), x, y, width, height);
+            timer.start();
+        }
+    }
+    
+    /**
+     * Запустить анимацию, если она ещё не идёт
+     */
+    synchronized void animate(Animation animation) {
+        if (!animations.contains(animation)) {
+            animations.add(animation);
+        }
+        timer.start();
+    }
+    
+    /**
+     * Остановить кадры (закрытие окна); новые invalidate и animate запустят их снова
+     */
+    synchronized void stop() {
+        animations.clear();
+        timer.stop();
+    }
+    
+    /**
+     * Сколько кадров с шагами анимаций или перерисовкой прошло с запуска
+     */
+    synchronized long getFrames() {
+        return frames;
+    }
+    
+    private void frame() {
+        long now = System.currentTimeMillis();
+        boolean dirty = false;
+        synchronized (this) {
+            // Шаги под блокировкой: animate() из другого потока не потеряется между шагом и удалением
+            for (int i = animations.size() - 1; i >= 0; i--) {
+                if (!animations.get(i).step(now)) {
+                    animations.remove(i);
+                }
+            }
+            while (frameComponents.size() < components.size()) {
+                frameComponents.add(components.get(frameComponents.size()));
+                frameRegions.add(new Rectangle());
+            }
+            for (int i = 0; i < regions.size(); i++) {
+                Rectangle region = regions.get(i);
+                frameRegions.get(i).setBounds(region);
+                if (!region.isEmpty()) {
+                    dirty = true;
+                    region.setSize(0, 0);
+                }
+            }
+            if (!dirty && animations.isEmpty()) {
+                // Нечего рисовать: таймер спит до следующего invalidate или animate
+                timer.stop();
+                return;
+            }
+            frames++;
+        }
+        
+        // Рисуем вне блокировки, чтобы сеть могла помечать области следующего кадра
+        for (int i = 0; i < frameRegions.size(); i++) {
+            Rectangle region = frameRegions.get(i);
+            if (!region.isEmpty()) {
+                frameComponents.get(i).paintImmediately(region);
+            }
+        }
+    }
+    
+    private Rectangle regionOf(JComponent component) {
+        int index = components.indexOf(component);
+        if (index >= 0) {
+            return regions.get(index);
+        }
+        // Панелей в окне несколько, поэтому список и линейный поиск
+        components.add(component);
+        Rectangle region = new Rectangle();
+        regions.add(region);
+        return region;
+    }
+    
+    private static void union(Rectangle region, int x, int y, int width, int height) {
+        if (region.isEmpty()) {
+            region.setBounds(x, y, width, height);
+            return;
+        }
+        int left = Math.min(region.x, x);
+        int top = Math.min(region.y, y);
+        int right = Math.max(region.x + region.width, x + width);
+        int bottom = Math.max(region.y + region.height, y + height);
+        region.setBounds(left, top, right - left, bottom - top);
+    }
+}
@@ -1,5 +1,6 @@
 package game.ui;
 
+import game.model.Direction;
 import game.model.GameState;
 import game.model.Maze;
 import game.model.Player;
@@ -8,12 +9,46 @@ import game.utils.Constants;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 public class GamePanel extends JPanel {
+    // Цвета, шрифт и линии общие для всех кадров: перерисовка не выделяет памяти
+    private static final Color HIDDEN_BACKGROUND = new Color(30, 30, 30);
+    private static final Color EXIT_FILL = new Color(255, 215, 0, 200);
+    private static final Color EXIT_BORDER = new Color(255, 165, 0);
+    private static final Color PLAYER_FILL = new Color(0, 150, 255);
+    private static final Color PLAYER_BORDER = new Color(0, 100, 200);
+    private static final Color REMOTE_FILL = new Color(230, 90, 60);
+    private static final Color REMOTE_BORDER = new Color(170, 50, 30);
+    private static final Color VISIBILITY_RING = new Color(255, 255, 255, 30);
+    private static final Stroke EXIT_STROKE = new BasicStroke(3);
+    private static final Stroke PLAYER_STROKE = new BasicStroke(2);
+    private static final Stroke VISIBILITY_STROKE = new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                                                                     0, new float[]{5, 5}, 0);
+    private static final Font WAITING_FONT = new Font("Arial", Font.BOLD, 24);
+    
     private GameState gameState;
     private int playerId;
     private int viewOffsetX;
     private int viewOffsetY;
+    private int visibilityRadius = Constants.VISIBILITY_RADIUS;
+    // Клетки лабиринта, отрисованные один раз на лабиринт
+    private MazeTiles tiles;
+    // Вершины стрелки направления игрока
+    private final int[] arrowX = new int[3];
+    private final int[] arrowY = new int[3];
+    // Кадры окна; null - панель вне окна игры (бенчмарки), перерисовка через repaint()
+    private FrameScheduler frameScheduler;
+    // Пульсация выхода идёт кадрами, пока выход на экране; перерисовывается только его клетка
+    private final FrameScheduler.Animation exitPulse = this::stepExitPulse;
+    private int lastPulse = -1;
+    // Другие игроки: сглаженные между позициями из сети, двигаются кадрами, пока догоняют последнюю
+    private final RemotePlayers remotes = new RemotePlayers(Constants.REMOTE_STATES,
+        Constants.REMOTE_RENDER_DELAY_MS, 1000 / Constants.TICK_RATE, Constants.CELL_SIZE);
+    private final FrameScheduler.Animation remoteMotion = this::stepRemotePlayers;
+    // Другие игроки по направлениям, отрисованные один раз: fillOval со сглаживанием
+    // выделяет память на каждый круг, а копия картинки - нет, сколько бы игроков ни было видно
+    private final BufferedImage[] remoteSprites = new BufferedImage[Direction.values().length];
     
     public GamePanel() {
         setPreferredSize(new Dimension(Constants.GAME_PANEL_WIDTH, Constants.GAME_PANEL_HEIGHT));
@@ -27,7 +62,67 @@ public class GamePanel extends JPanel {
     public void setGameState(GameState gameState, int playerId) {
         this.gameState = gameState;
         this.playerId = playerId;
+        remotes.clear();
         updateViewOffset();
+        playerMoved();
+    }
+    
+    void setFrameScheduler(FrameScheduler frameScheduler) {
+        this.frameScheduler = frameScheduler;
+    }
+    
+    /**
+     * Свой игрок сдвинулся: вид центрирован на нём, поэтому перерисовывается вся панель
+     */
+    void playerMoved() {
+        if (frameScheduler == null) {
+            repaint();
+            return;
+        }
+        frameScheduler.invalidate(this);
+        frameScheduler.animate(exitPulse);
+    }
+    
+    /**
+     * Позиция другого игрока из сети, полученная в момент receivedMillis (System.currentTimeMillis)
+     * Игрок рисуется с задержкой Constants.REMOTE_RENDER_DELAY_MS, плавно между клетками.
+     * Вызывается из потока Swing
+     */
+    public void remotePlayerMoved(int id, long receivedMillis, int x, int y, Direction direction) {
+        remotes.update(id, receivedMillis, x, y, direction);
+        if (frameScheduler == null) {
+            repaint();
+            return;
+        }
+        frameScheduler.animate(remoteMotion);
+    }
+    
+    /**
+     * Другой игрок вышел из зоны видимости или из игры. Вызывается из потока Swing
+     */
+    public void remotePlayerLeft(int id) {
+        int slot = remotes.indexOf(id);
+        if (slot < 0) {
+            return;
+        }
+        if (frameScheduler == null) {
+            remotes.remove(id);
+            repaint();
+            return;
+        }
+        invalidatePlayerAt(remotes.getDrawX(slot), remotes.getDrawY(slot));
+        remotes.remove(id);
+    }
+    
+    /**
+     * Радиус видимости в клетках; по умолчанию Constants.VISIBILITY_RADIUS
+     */
+    public void setVisibilityRadius(int visibilityRadius) {
+        if (visibilityRadius < 0) {
+            throw new IllegalArgumentException("Радиус видимости не может быть отрицательным: " + visibilityRadius);
+        }
+        this.visibilityRadius = visibilityRadius;
+        repaint();
     }
     
     private void updateViewOffset() {
@@ -39,14 +134,18 @@ public class GamePanel extends JPanel {
         if (player == null) {
             return;
         }
-        
+        long state = player.getState();
+        updateViewOffset(Player.xOf(state), Player.yOf(state));
+    }
+    
+    private void updateViewOffset(int playerX, int playerY) {
         // Центрируем вид на игроке
         int cellSize = Constants.CELL_SIZE;
         int panelWidth = getWidth();
         int panelHeight = getHeight();
         
-        viewOffsetX = panelWidth / 2 - player.getX() * cellSize - cellSize / 2;
-        viewOffsetY = panelHeight / 2 - player.getY() * cellSize - cellSize / 2;
+        viewOffsetX = panelWidth / 2 - playerX * cellSize - cellSize / 2;
+        viewOffsetY = panelHeight / 2 - playerY * cellSize - cellSize / 2;
     }
     
     @Override
@@ -68,41 +167,35 @@ public class GamePanel extends JPanel {
             return;
         }
         
-        updateViewOffset();
+        // Одно чтение состояния: сеть может сдвинуть игрока посреди отрисовки
+        long state = player.getState();
+        int playerX = Player.xOf(state);
+        int playerY = Player.yOf(state);
+        updateViewOffset(playerX, playerY);
         
         int cellSize = Constants.CELL_SIZE;
-        int visibilityRadius = Constants.VISIBILITY_RADIUS;
         
         // Рисуем видимую часть лабиринта
-        int startX = Math.max(0, player.getX() - visibilityRadius);
-        int endX = Math.min(maze.getWidth(), player.getX() + visibilityRadius + 1);
-        int startY = Math.max(0, player.getY() - visibilityRadius);
-        int endY = Math.min(maze.getHeight(), player.getY() + visibilityRadius + 1);
+        int startX = Math.max(0, playerX - visibilityRadius);
+        int endX = Math.min(maze.getWidth(), playerX + visibilityRadius + 1);
+        int startY = Math.max(0, playerY - visibilityRadius);
+        int endY = Math.min(maze.getHeight(), playerY + visibilityRadius + 1);
         
         // Фон (невидимая область)
-        g2d.setColor(new Color(30, 30, 30));
+        g2d.setColor(HIDDEN_BACKGROUND);
         g2d.fillRect(0, 0, getWidth(), getHeight());
         
-        // Рисуем видимые клетки
-        for (int y = startY; y < endY; y++) {
-            for (int x = startX; x < endX; x++) {
-                int screenX = x * cellSize + viewOffsetX;
-                int screenY = y * cellSize + viewOffsetY;
-                
-                if (maze.isWall(x, y)) {
-                    // Стена
-                    g2d.setColor(new Color(100, 100, 150));
-                    g2d.fillRect(screenX, screenY, cellSize, cellSize);
-                    g2d.setColor(new Color(80, 80, 120));
-                    g2d.drawRect(screenX, screenY, cellSize, cellSize);
-                } else {
-                    // Проход
-                    g2d.setColor(new Color(240, 240, 240));
-                    g2d.fillRect(screenX, screenY, cellSize, cellSize);
-                    g2d.setColor(new Color(200, 200, 200));
-                    g2d.drawRect(screenX, screenY, cellSize, cellSize);
-                }
-            }
+        // Рисуем видимые клетки: копия из заранее отрисованных кусков лабиринта
+        if (tiles == null || !tiles.isFor(maze, cellSize)) {
+            tiles = new MazeTiles(maze, cellSize, getGraphicsConfiguration());
+        }
+        // Клетки за краем панели не видны при любом радиусе, их не копируем и не держим в кэше
+        int drawStartX = Math.max(startX, Math.floorDiv(-viewOffsetX, cellSize));
+        int drawEndX = Math.min(endX, Math.floorDiv(getWidth() - viewOffsetX, cellSize) + 1);
+        int drawStartY = Math.max(startY, Math.floorDiv(-viewOffsetY, cellSize));
+        int drawEndY = Math.min(endY, Math.floorDiv(getHeight() - viewOffsetY, cellSize) + 1);
+        if (drawStartX < drawEndX && drawStartY < drawEndY) {
+            tiles.draw(g2d, drawStartX, drawStartY, drawEndX, drawEndY, viewOffsetX, viewOffsetY);
         }
         
         // Рисуем выход
@@ -114,68 +207,44 @@ public class GamePanel extends JPanel {
             int screenY = exitY * cellSize + viewOffsetY;
             
             // Пульсирующий эффект для выхода
-            long time = System.currentTimeMillis();
-            int pulse = (int)(Math.sin(time / 200.0) * 5 + 5);
+            int pulse = pulse(System.currentTimeMillis());
             
-            g2d.setColor(new Color(255, 215, 0, 200));
+            g2d.setColor(EXIT_FILL);
             g2d.fillOval(screenX + pulse, screenY + pulse, 
                         cellSize - pulse * 2, cellSize - pulse * 2);
             
-            g2d.setColor(new Color(255, 165, 0));
-            g2d.setStroke(new BasicStroke(3));
+            g2d.setColor(EXIT_BORDER);
+            g2d.setStroke(EXIT_STROKE);
             g2d.drawOval(screenX + pulse, screenY + pulse, 
                         cellSize - pulse * 2, cellSize - pulse * 2);
         }
         
-        // Рисуем игрока
-        if (player.getX() >= startX && player.getX() < endX && 
-            player.getY() >= startY && player.getY() < endY) {
-            
-            int screenX = player.getX() * cellSize + viewOffsetX;
-            int screenY = player.getY() * cellSize + viewOffsetY;
-            
-            // Тело игрока (круг)
-            g2d.setColor(new Color(0, 150, 255));
-            g2d.fillOval(screenX + 5, screenY + 5, cellSize - 10, cellSize - 10);
-            
-            // Обводка
-            g2d.setColor(new Color(0, 100, 200));
-            g2d.setStroke(new BasicStroke(2));
-            g2d.drawOval(screenX + 5, screenY + 5, cellSize - 10, cellSize - 10);
-            
-            // Направление (маленький треугольник)
-            int centerX = screenX + cellSize / 2;
-            int centerY = screenY + cellSize / 2;
-            int[] xPoints = new int[3];
-            int[] yPoints = new int[3];
-            
-            switch (player.getDirection()) {
-                case "ВВЕРХ":
-                    xPoints = new int[]{centerX, centerX - 5, centerX + 5};
-                    yPoints = new int[]{centerY - 8, centerY + 2, centerY + 2};
-                    break;
-                case "ВНИЗ":
-                    xPoints = new int[]{centerX, centerX - 5, centerX + 5};
-                    yPoints = new int[]{centerY + 8, centerY - 2, centerY - 2};
-                    break;
-                case "ВЛЕВО":
-                    xPoints = new int[]{centerX - 8, centerX + 2, centerX + 2};
-                    yPoints = new int[]{centerY, centerY - 5, centerY + 5};
-                    break;
-                case "ВПРАВО":
-                    xPoints = new int[]{centerX + 8, centerX - 2, centerX - 2};
-                    yPoints = new int[]{centerY, centerY - 5, centerY + 5};
-                    break;
+        // Другие игроки: без окна кадров положения считаются здесь, иначе их считает шаг анимации
+        if (frameScheduler == null) {
+            remotes.advance(System.currentTimeMillis());
+        }
+        for (int slot = 0; slot < remotes.size(); slot++) {
+            int remoteX = remotes.getDrawX(slot);
+            int remoteY = remotes.getDrawY(slot);
+            // Клетка, в которой сейчас большая часть круга
+            int remoteCellX = Math.floorDiv(remoteX + cellSize / 2, cellSize);
+            int remoteCellY = Math.floorDiv(remoteY + cellSize / 2, cellSize);
+            if (remoteCellX >= startX && remoteCellX < endX && remoteCellY >= startY && remoteCellY < endY) {
+                g2d.drawImage(remoteSprite(remotes.getDrawDirection(slot)),
+                    remoteX + viewOffsetX, remoteY + viewOffsetY, null);
             }
-            
-            g2d.setColor(Color.WHITE);
-            g2d.fillPolygon(xPoints, yPoints, 3);
+        }
+        
+        // Рисуем игрока
+        if (playerX >= startX && playerX < endX && 
+            playerY >= startY && playerY < endY) {
+            drawPlayer(g2d, playerX * cellSize + viewOffsetX, playerY * cellSize + viewOffsetY,
+                Player.directionOf(state), PLAYER_FILL, PLAYER_BORDER);
         }
         
         // Рисуем границы видимости (опционально)
-        g2d.setColor(new Color(255, 255, 255, 30));
-        g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 
-                                      0, new float[]{5, 5}, 0));
+        g2d.setColor(VISIBILITY_RING);
+        g2d.setStroke(VISIBILITY_STROKE);
         int centerScreenX = getWidth() / 2;
         int centerScreenY = getHeight() / 2;
         int visibilitySize = visibilityRadius * cellSize * 2;
@@ -183,12 +252,148 @@ public class GamePanel extends JPanel {
                     visibilitySize, visibilitySize);
     }
     
+    private BufferedImage remoteSprite(Direction direction) {
+        BufferedImage sprite = remoteSprites[direction.ordinal()];
+        if (sprite == null) {
+            int cellSize = Constants.CELL_SIZE;
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            sprite = configuration != null
+                ? configuration.createCompatibleImage(cellSize, cellSize, Transparency.TRANSLUCENT)
+                : new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = sprite.createGraphics();
+            try {
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                drawPlayer(g2d, 0, 0, direction, REMOTE_FILL, REMOTE_BORDER);
+            } finally {
+                g2d.dispose();
+            }
+            remoteSprites[direction.ordinal()] = sprite;
+        }
+        return sprite;
+    }
+    
+    private void drawPlayer(Graphics2D g2d, int screenX, int screenY, Direction direction, Color fill, Color border) {
+        int cellSize = Constants.CELL_SIZE;
+        
+        // Тело игрока (круг)
+        g2d.setColor(fill);
+        g2d.fillOval(screenX + 5, screenY + 5, cellSize - 10, cellSize - 10);
+        
+        // Обводка
+        g2d.setColor(border);
+        g2d.setStroke(PLAYER_STROKE);
+        g2d.drawOval(screenX + 5, screenY + 5, cellSize - 10, cellSize - 10);
+        
+        // Направление (маленький треугольник)
+        int centerX = screenX + cellSize / 2;
+        int centerY = screenY + cellSize / 2;
+        switch (direction) {
+            case UP:
+                setArrow(centerX, centerY - 8, centerX - 5, centerY + 2, centerX + 5, centerY + 2);
+                break;
+            case DOWN:
+                setArrow(centerX, centerY + 8, centerX - 5, centerY - 2, centerX + 5, centerY - 2);
+                break;
+            case LEFT:
+                setArrow(centerX - 8, centerY, centerX + 2, centerY - 5, centerX + 2, centerY + 5);
+                break;
+            case RIGHT:
+                setArrow(centerX + 8, centerY, centerX - 2, centerY - 5, centerX - 2, centerY + 5);
+                break;
+        }
+        
+        g2d.setColor(Color.WHITE);
+        g2d.fillPolygon(arrowX, arrowY, 3);
+    }
+    
+    private static int pulse(long time) {
+        return (int)(Math.sin(time / 200.0) * 5 + 5);
+    }
+    
+    /**
+     * Шаг пульсации выхода: клетка перерисовывается, только когда меняется размер круга
+     * @return false, когда выход ушёл из зоны видимости или партия кончилась
+     */
+    private boolean stepExitPulse(long now) {
+        if (gameState == null || !gameState.isGameStarted() || gameState.isGameEnded()) {
+            return false;
+        }
+        Player player = gameState.getPlayer(playerId);
+        if (player == null) {
+            return false;
+        }
+        long state = player.getState();
+        int playerX = Player.xOf(state);
+        int playerY = Player.yOf(state);
+        int exitX = gameState.getExitX();
+        int exitY = gameState.getExitY();
+        if (Math.abs(exitX - playerX) > visibilityRadius || Math.abs(exitY - playerY) > visibilityRadius) {
+            lastPulse = -1;
+            return false;
+        }
+        
+        int pulse = pulse(now);
+        if (pulse != lastPulse) {
+            lastPulse = pulse;
+            int cellSize = Constants.CELL_SIZE;
+            int screenX = getWidth() / 2 + (exitX - playerX) * cellSize - cellSize / 2;
+            int screenY = getHeight() / 2 + (exitY - playerY) * cellSize - cellSize / 2;
+            // Запас на половину толщины обводки
+            frameScheduler.invalidate(this, screenX - 2, screenY - 2, cellSize + 4, cellSize + 4);
+        }
+        return true;
+    }
+    
+    /**
+     * Шаг сглаживания других игроков: перерисовываются старое и новое место каждого сдвинувшегося
+     * @return false, когда все дошли до последних полученных позиций
+     */
+    private boolean stepRemotePlayers(long now) {
+        if (gameState == null || !gameState.isGameStarted()) {
+            return false;
+        }
+        boolean moving = remotes.advance(now);
+        for (int slot = 0; slot < remotes.size(); slot++) {
+            if (remotes.isChanged(slot)) {
+                invalidatePlayerAt(remotes.getPreviousX(slot), remotes.getPreviousY(slot));
+                invalidatePlayerAt(remotes.getDrawX(slot), remotes.getDrawY(slot));
+            }
+        }
+        return moving;
+    }
+    
+    /**
+     * Перерисовать клетку игрока, стоящего в точке (x, y) в пикселях от угла лабиринта
+     */
+    private void invalidatePlayerAt(int x, int y) {
+        Player player = gameState != null ? gameState.getPlayer(playerId) : null;
+        if (player == null) {
+            return;
+        }
+        // Смещение вида от своего игрока, как в paintComponent: панель могла не рисоваться с его хода
+        long state = player.getState();
+        int cellSize = Constants.CELL_SIZE;
+        int screenX = getWidth() / 2 - Player.xOf(state) * cellSize - cellSize / 2 + x;
+        int screenY = getHeight() / 2 - Player.yOf(state) * cellSize - cellSize / 2 + y;
+        // Запас на половину толщины обводки
+        frameScheduler.invalidate(this, screenX - 2, screenY - 2, cellSize + 4, cellSize + 4);
+    }
+    
+    private void setArrow(int x0, int y0, int x1, int y1, int x2, int y2) {
+        arrowX[0] = x0;
+        arrowY[0] = y0;
+        arrowX[1] = x1;
+        arrowY[1] = y1;
+        arrowX[2] = x2;
+        arrowY[2] = y2;
+    }
+    
     private void drawWaiting(Graphics g) {
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
+        g2d.setFont(WAITING_FONT);
         FontMetrics fm = g2d.getFontMetrics();
         String text = "Ожидание начала игры...";
         int x = (getWidth() - fm.stringWidth(text)) / 2;
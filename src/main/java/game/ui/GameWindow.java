@@ -1,9 +1,12 @@
 package game.ui;
 
 import game.client.GameClient;
+import game.model.Direction;
 import game.model.GameState;
 import game.model.Maze;
+import game.model.MazeCache;
 import game.model.Player;
+import game.server.GameRoom;
 import game.server.GameServer;
 import game.utils.Constants;
 
@@ -19,6 +22,7 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
     private GamePanel gamePanel;
     private CompassPanel compassPanel;
     private InfoPanel infoPanel;
+    private final FrameScheduler frameScheduler = new FrameScheduler();
     
     private GameServer server;
     private GameClient client;
@@ -46,6 +50,8 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
         gamePanel = new GamePanel();
         compassPanel = new CompassPanel();
         infoPanel = new InfoPanel();
+        gamePanel.setFrameScheduler(frameScheduler);
+        compassPanel.setFrameScheduler(frameScheduler);
         
         // Размещаем панели
         JPanel rightPanel = new JPanel(new BorderLayout());
@@ -78,7 +84,7 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
             try {
                 server = new GameServer(Constants.DEFAULT_PORT);
                 server.addServerPlayer();
-                playerId = 1;
+                playerId = GameRoom.HOST_PLAYER_ID;
                 
                 // Устанавливаем listener для уведомлений о завершении игры
                 server.setGameEndListener((winnerId, time) -> {
@@ -86,6 +92,25 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
                         onGameEnd(winnerId, time);
                     });
                 });
+                // Комната сообщает о начале партии сама, когда подключится клиент.
+                // Окно рисует свою копию состояния: игроков комнаты двигает только её шард
+                server.setGameStartListener(serverState -> {
+                    GameState view = copyOf(serverState);
+                    SwingUtilities.invokeLater(() -> {
+                        initializeServerGameState(view);
+                    });
+                });
+                server.setPositionListener(new GameServer.PositionListener() {
+                    @Override
+                    public void onPositionUpdate(int pid, int x, int y, Direction direction) {
+                        GameWindow.this.onPositionUpdate(pid, x, y, direction);
+                    }
+                    
+                    @Override
+                    public void onPlayerLeave(int pid) {
+                        GameWindow.this.onPlayerLeave(pid);
+                    }
+                });
                 
                 // Запускаем сервер в отдельном потоке
                 new Thread(() -> {
@@ -94,25 +119,6 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
                 
                 infoPanel.setConnectionStatus(true);
                 infoPanel.setStatus("Сервер запущен. Ожидание клиента...");
-                
-                // Периодически проверяем инициализацию игры
-                new Thread(() -> {
-                    while (server != null && !gameStarted) {
-                        try {
-                            Thread.sleep(500);
-                            GameState serverState = server.getGameState();
-                            if (serverState != null && serverState.isGameStarted()) {
-                                SwingUtilities.invokeLater(() -> {
-                                    initializeServerGameState(serverState);
-                                });
-                                break;
-                            }
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }).start();
             } catch (IOException e) {
                 JOptionPane.showMessageDialog(this, "Ошибка запуска сервера: " + e.getMessage(), 
                                              "Ошибка", JOptionPane.ERROR_MESSAGE);
@@ -126,6 +132,8 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
             }
             
             client = new GameClient(host, Constants.DEFAULT_PORT, this);
+            // Свой ход виден сразу, сервер подтверждает или поправляет его
+            client.setPrediction(true);
             client.start();
             
             infoPanel.setConnectionStatus(true);
@@ -133,9 +141,25 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
         }
     }
     
-    private void initializeServerGameState(GameState serverState) {
-        this.gameState = serverState;
-        playerId = 1;
+    /**
+     * Копия состояния комнаты для окна сервера; вызывается в потоке шарда при старте партии,
+     * дальше копия меняется только в потоке Swing по уведомлениям комнаты
+     */
+    private static GameState copyOf(GameState serverState) {
+        GameState view = new GameState();
+        view.initialize(serverState.getMaze(), serverState.getExitX(), serverState.getExitY());
+        for (Player player : serverState.getPlayers().values()) {
+            long state = player.getState();
+            Player copy = new Player(player.getId(), Player.xOf(state), Player.yOf(state));
+            copy.move(Player.xOf(state), Player.yOf(state), Player.directionOf(state));
+            view.addPlayer(copy);
+        }
+        return view;
+    }
+    
+    private void initializeServerGameState(GameState view) {
+        this.gameState = view;
+        playerId = GameRoom.HOST_PLAYER_ID;
         
         if (gameState != null && gameState.isGameStarted()) {
             // Обновляем UI
@@ -159,24 +183,24 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
                     return;
                 }
                 
-                String direction = null;
+                Direction direction = null;
                 
                 switch (e.getKeyCode()) {
                     case KeyEvent.VK_UP:
                     case KeyEvent.VK_W:
-                        direction = "ВВЕРХ";
+                        direction = Direction.UP;
                         break;
                     case KeyEvent.VK_DOWN:
                     case KeyEvent.VK_S:
-                        direction = "ВНИЗ";
+                        direction = Direction.DOWN;
                         break;
                     case KeyEvent.VK_LEFT:
                     case KeyEvent.VK_A:
-                        direction = "ВЛЕВО";
+                        direction = Direction.LEFT;
                         break;
                     case KeyEvent.VK_RIGHT:
                     case KeyEvent.VK_D:
-                        direction = "ВПРАВО";
+                        direction = Direction.RIGHT;
                         break;
                 }
                 
@@ -187,7 +211,7 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
         });
     }
     
-    private void handleMove(String direction) {
+    private void handleMove(Direction direction) {
         if (isServer) {
             // Сервер обрабатывает движение локально
             handleServerMove(direction);
@@ -199,65 +223,25 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
         }
     }
     
-    private void handleServerMove(String direction) {
+    private void handleServerMove(Direction direction) {
         if (gameState == null || !gameState.isGameStarted()) {
             return;
         }
         
-        Player player = gameState.getPlayer(playerId);
-        if (player == null || player.isFinished()) {
-            return;
-        }
-        
-        Maze maze = gameState.getMaze();
-        if (maze.canMove(player.getX(), player.getY(), direction)) {
-            int newX = player.getX();
-            int newY = player.getY();
-            
-            switch (direction) {
-                case "ВВЕРХ":
-                    newY--;
-                    break;
-                case "ВНИЗ":
-                    newY++;
-                    break;
-                case "ВЛЕВО":
-                    newX--;
-                    break;
-                case "ВПРАВО":
-                    newX++;
-                    break;
-            }
-            
-            player.setPosition(newX, newY);
-            player.setDirection(direction);
-            
-            // Отправляем обновление позиции клиентам
-            if (server != null) {
-                server.broadcastPosition(playerId, newX, newY, direction);
-            }
-            
-            if (gameState.checkWin(playerId, newX, newY)) {
-                infoPanel.showWinner(playerId, gameState.getElapsedTime());
-                infoPanel.stopTimer();
-                if (server != null) {
-                    server.broadcastGameEnd(playerId, gameState.getElapsedTime());
-                }
-            }
-            
-            gamePanel.repaint();
-            compassPanel.repaint();
+        // Ход применит тик комнаты сервера, новая позиция придёт через onPositionUpdate
+        if (server != null) {
+            server.queueHostMove(direction);
         }
     }
     
     // Реализация ClientMessageListener
     @Override
-    public void onGameStart(int pid, long mazeSeed, int startX, int startY, int exitX, int exitY) {
+    public void onGameStart(int pid, long mazeSeed, int mazeWidth, int mazeHeight, int startX, int startY, int exitX, int exitY) {
         SwingUtilities.invokeLater(() -> {
             playerId = pid;
             
-            // Инициализируем состояние игры
-            Maze maze = new Maze(Constants.MAZE_WIDTH, Constants.MAZE_HEIGHT, mazeSeed);
+            // Инициализируем состояние игры: GameClient уже сгенерировал этот лабиринт
+            Maze maze = MazeCache.shared().get(mazeWidth, mazeHeight, mazeSeed);
             gameState.initialize(maze, exitX, exitY);
             
             Player player = new Player(pid, startX, startY);
@@ -277,21 +261,50 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
     }
     
     @Override
-    public void onPositionUpdate(int pid, int x, int y, String direction) {
+    public void onPositionUpdate(int pid, int x, int y, Direction direction) {
+        // Время прихода, а не разбора очереди Swing: по нему сглаживаются другие игроки
+        long received = System.currentTimeMillis();
         SwingUtilities.invokeLater(() -> {
             if (gameState != null && !gameState.isGameEnded()) {
                 Player player = gameState.getPlayer(pid);
                 if (player != null && !player.isFinished()) {
-                    player.setPosition(x, y);
-                    player.setDirection(direction);
+                    player.move(x, y, direction);
                     
-                    gamePanel.repaint();
-                    compassPanel.repaint();
+                    // Пачка позиций перерисуется одним кадром
+                    if (pid == playerId) {
+                        gamePanel.playerMoved();
+                        compassPanel.playerMoved();
+                    } else {
+                        gamePanel.remotePlayerMoved(pid, received, x, y, direction);
+                    }
                 }
             }
         });
     }
     
+    @Override
+    public void onPlayerEnter(int pid, int x, int y, Direction direction) {
+        long received = System.currentTimeMillis();
+        SwingUtilities.invokeLater(() -> {
+            if (gameState != null && gameStarted && pid != playerId) {
+                Player player = new Player(pid, x, y);
+                player.move(x, y, direction);
+                gameState.addPlayer(player);
+                gamePanel.remotePlayerMoved(pid, received, x, y, direction);
+            }
+        });
+    }
+    
+    @Override
+    public void onPlayerLeave(int pid) {
+        SwingUtilities.invokeLater(() -> {
+            if (gameState != null && pid != playerId) {
+                gameState.removePlayer(pid);
+                gamePanel.remotePlayerLeft(pid);
+            }
+        });
+    }
+    
     @Override
     public void onGameEnd(int winnerId, long time) {
         SwingUtilities.invokeLater(() -> {
@@ -327,6 +340,7 @@ public class GameWindow extends JFrame implements GameClient.ClientMessageListen
     }
     
     private void cleanup() {
+        frameScheduler.stop();
         if (server != null) {
             server.stop();
         }
@@ -11,6 +11,8 @@ public class InfoPanel extends JPanel {
     private JLabel connectionLabel;
     private long startTime;
     private boolean gameStarted;
+    // Показанная секунда: надпись меняется раз в секунду, и таймер будит панель только на границе секунды
+    private long shownSeconds = -1;
     private Timer timer;
     
     public InfoPanel() {
@@ -34,16 +36,19 @@ public class InfoPanel extends JPanel {
         add(Box.createHorizontalStrut(30));
         add(connectionLabel);
         
-        timer = new Timer(100, e -> updateTime());
+        timer = new Timer(1000, e -> tick());
+        timer.setRepeats(false);
     }
     
     public void startTimer() {
         gameStarted = true;
         startTime = System.currentTimeMillis();
-        timer.start();
+        shownSeconds = -1;
+        tick();
     }
     
     public void stopTimer() {
+        gameStarted = false;
         timer.stop();
     }
     
@@ -51,12 +56,28 @@ public class InfoPanel extends JPanel {
         if (gameStarted) {
             long elapsed = System.currentTimeMillis() - startTime;
             long seconds = elapsed / 1000;
+            if (seconds == shownSeconds) {
+                return;
+            }
+            shownSeconds = seconds;
             long minutes = seconds / 60;
             seconds = seconds % 60;
             timeLabel.setText(String.format("Время: %02d:%02d", minutes, seconds));
         }
     }
     
+    /**
+     * Обновляет время и заводит таймер на начало следующей секунды игры
+     */
+    private void tick() {
+        updateTime();
+        if (gameStarted) {
+            long elapsed = System.currentTimeMillis() - startTime;
+            timer.setInitialDelay((int) (1000 - elapsed % 1000));
+            timer.restart();
+        }
+    }
+    
     public void setStatus(String status) {
         statusLabel.setText(status);
     }
@@ -72,7 +93,7 @@ public class InfoPanel extends JPanel {
     }
     
     public void showWinner(int winnerId, long time) {
-        timer.stop();
+        stopTimer();
         long seconds = time / 1000;
         long minutes = seconds / 60;
         seconds = seconds % 60;
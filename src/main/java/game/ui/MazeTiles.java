@@ -0,0 +1,153 @@
+package game.ui;
+
+import game.model.Maze;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Статический слой лабиринта, заранее отрисованный кусками по CHUNK_CELLS x CHUNK_CELLS клеток
+ * Клетки не меняются за партию, поэтому кусок рисуется один раз - когда впервые попадает в зону
+ * видимости, а кадр только копирует из готовых кусков видимый прямоугольник (drawImage).
+ * Время кадра и выделения памяти больше не зависят от числа видимых клеток. Неизменяемую
+ * BufferedImage Java2D сама держит в видеопамяти, как VolatileImage, но без потери содержимого.
+ * В памяти держатся видимые куски и кольцо кусков вокруг них, давно не показанные вытесняются,
+ * чтобы большой лабиринт не держал картинку целиком. Используется только из потока Swing
+ */
+final class MazeTiles {
+    static final int CHUNK_CELLS = 8;
+    
+    private static final Color WALL_FILL = new Color(100, 100, 150);
+    private static final Color WALL_BORDER = new Color(80, 80, 120);
+    private static final Color PASSAGE_FILL = new Color(240, 240, 240);
+    private static final Color PASSAGE_BORDER = new Color(200, 200, 200);
+    
+    private final Maze maze;
+    private final int cellSize;
+    private final GraphicsConfiguration configuration;
+    private final int chunksX;
+    // Куски по индексу chunkY * chunksX + chunkX и номер кадра, в котором кусок показан последним
+    private final BufferedImage[] chunks;
+    private final long[] lastUsed;
+    private int cached;
+    private int capacity;
+    private long frame;
+    
+    /**
+     * @param configuration экран, под формат которого создаются картинки; null - обычная RGB
+     */
+    MazeTiles(Maze maze, int cellSize, GraphicsConfiguration configuration) {
+        this.maze = maze;
+        this.cellSize = cellSize;
+        this.configuration = configuration;
+        this.chunksX = (maze.getWidth() + CHUNK_CELLS - 1) / CHUNK_CELLS;
+        int chunksY = (maze.getHeight() + CHUNK_CELLS - 1) / CHUNK_CELLS;
+        this.chunks = new BufferedImage[chunksX * chunksY];
+        this.lastUsed = new long[chunks.length];
+    }
+    
+    /**
+     * Отрисован ли этот слой для данного лабиринта и размера клетки
+     */
+    boolean isFor(Maze other, int otherCellSize) {
+        return maze == other && cellSize == otherCellSize;
+    }
+    
+    /**
+     * Рисует клетки [startX, endX) x [startY, endY) со сдвигом экрана offsetX, offsetY
+     */
+    void draw(Graphics2D g2d, int startX, int startY, int endX, int endY, int offsetX, int offsetY) {
+        frame++;
+        int firstChunkX = startX / CHUNK_CELLS;
+        int lastChunkX = (endX - 1) / CHUNK_CELLS;
+        int firstChunkY = startY / CHUNK_CELLS;
+        int lastChunkY = (endY - 1) / CHUNK_CELLS;
+        // Видимые куски плюс кольцо в кусок шириной: при ходьбе туда-обратно у края куска
+        // вытеснялись бы и заново рисовались только что показанные куски
+        capacity = Math.max(capacity, (lastChunkX - firstChunkX + 3) * (lastChunkY - firstChunkY + 3));
+        
+        for (int chunkY = firstChunkY; chunkY <= lastChunkY; chunkY++) {
+            int originY = chunkY * CHUNK_CELLS;
+            int fromY = Math.max(startY, originY);
+            int toY = Math.min(endY, originY + CHUNK_CELLS);
+            for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+                int originX = chunkX * CHUNK_CELLS;
+                int fromX = Math.max(startX, originX);
+                int toX = Math.min(endX, originX + CHUNK_CELLS);
+                
+                // Копируем только пересечение куска с видимыми клетками
+                BufferedImage chunk = chunk(chunkX, chunkY);
+                g2d.drawImage(chunk,
+                    fromX * cellSize + offsetX, fromY * cellSize + offsetY,
+                    toX * cellSize + offsetX, toY * cellSize + offsetY,
+                    (fromX - originX) * cellSize, (fromY - originY) * cellSize,
+                    (toX - originX) * cellSize, (toY - originY) * cellSize,
+                    null);
+            }
+        }
+    }
+    
+    private BufferedImage chunk(int chunkX, int chunkY) {
+        int index = chunkY * chunksX + chunkX;
+        BufferedImage chunk = chunks[index];
+        if (chunk == null) {
+            if (cached >= capacity) {
+                evictLeastRecentlyUsed();
+            }
+            chunk = render(chunkX * CHUNK_CELLS, chunkY * CHUNK_CELLS);
+            chunks[index] = chunk;
+            cached++;
+        }
+        lastUsed[index] = frame;
+        return chunk;
+    }
+    
+    private void evictLeastRecentlyUsed() {
+        int eldest = -1;
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null && (eldest < 0 || lastUsed[i] < lastUsed[eldest])) {
+                eldest = i;
+            }
+        }
+        chunks[eldest].flush();
+        chunks[eldest] = null;
+        cached--;
+    }
+    
+    private BufferedImage render(int originX, int originY) {
+        int cellsX = Math.min(CHUNK_CELLS, maze.getWidth() - originX);
+        int cellsY = Math.min(CHUNK_CELLS, maze.getHeight() - originY);
+        int width = cellsX * cellSize;
+        int height = cellsY * cellSize;
+        BufferedImage chunk = configuration != null
+            ? configuration.createCompatibleImage(width, height, Transparency.OPAQUE)
+            : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        
+        Graphics2D g2d = chunk.createGraphics();
+        try {
+            // Те же настройки, что у панели, чтобы клетки выглядели как при прямой отрисовке
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            for (int y = 0; y < cellsY; y++) {
+                for (int x = 0; x < cellsX; x++) {
+                    int screenX = x * cellSize;
+                    int screenY = y * cellSize;
+                    
+                    if (maze.isWall(originX + x, originY + y)) {
+                        g2d.setColor(WALL_FILL);
+                        g2d.fillRect(screenX, screenY, cellSize, cellSize);
+                        g2d.setColor(WALL_BORDER);
+                        g2d.drawRect(screenX, screenY, cellSize, cellSize);
+                    } else {
+                        g2d.setColor(PASSAGE_FILL);
+                        g2d.fillRect(screenX, screenY, cellSize, cellSize);
+                        g2d.setColor(PASSAGE_BORDER);
+                        g2d.drawRect(screenX, screenY, cellSize, cellSize);
+                    }
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return chunk;
+    }
+}
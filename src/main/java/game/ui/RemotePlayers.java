@@ -0,0 +1,258 @@
+package game.ui;
+
+import game.model.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Другие игроки на экране: по каждому кольцо последних позиций с временем получения
+ * Игрок рисуется не в последней пришедшей клетке, а там, где он был renderDelay миллисекунд назад,
+ * между двумя соседними позициями из кольца. Сервер шлёт позиции раз в тик, и без этого игроки
+ * прыгают из клетки в клетку; задержка в пару тиков почти всегда оставляет впереди следующую
+ * позицию, поэтому движение плавное без повышения частоты рассылки.
+ * Позиции через несколько клеток (пачка ходов за тик) не сглаживаются: прямая прошла бы сквозь стены.
+ * Память выделяется только для новых игроков, кадр (advance) ничего не создаёт.
+ * Используется только из потока Swing
+ */
+final class RemotePlayers {
+    private static final int INITIAL_CAPACITY = 4;
+    
+    private final int history;
+    private final long renderDelay;
+    private final long stepMillis;
+    private final int cellSize;
+    
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    // Кольца позиций: игрок slot занимает [slot * history, (slot + 1) * history), newest - индекс последней
+    private long[] times;
+    private int[] cellX;
+    private int[] cellY;
+    private Direction[] directions;
+    private int[] newest = new int[INITIAL_CAPACITY];
+    private int[] stored = new int[INITIAL_CAPACITY];
+    // Положение в пикселях от угла лабиринта на текущем и предыдущем кадре
+    private int[] drawX = new int[INITIAL_CAPACITY];
+    private int[] drawY = new int[INITIAL_CAPACITY];
+    private Direction[] drawDirection = new Direction[INITIAL_CAPACITY];
+    private int[] previousX = new int[INITIAL_CAPACITY];
+    private int[] previousY = new int[INITIAL_CAPACITY];
+    private boolean[] changed = new boolean[INITIAL_CAPACITY];
+    private boolean[] fresh = new boolean[INITIAL_CAPACITY];
+    
+    /**
+     * @param history     сколько последних позиций помнить на игрока
+     * @param renderDelay на сколько миллисекунд отрисовка отстаёт от последней позиции
+     * @param stepMillis  за сколько миллисекунд игрок проходит клетку (тик сервера)
+     */
+    RemotePlayers(int history, long renderDelay, long stepMillis, int cellSize) {
+        if (history < 2) {
+            throw new IllegalArgumentException("Для сглаживания нужно хотя бы две позиции: " + history);
+        }
+        this.history = history;
+        this.renderDelay = renderDelay;
+        this.stepMillis = Math.max(1, stepMillis);
+        this.cellSize = cellSize;
+        this.times = new long[INITIAL_CAPACITY * history];
+        this.cellX = new int[INITIAL_CAPACITY * history];
+        this.cellY = new int[INITIAL_CAPACITY * history];
+        this.directions = new Direction[INITIAL_CAPACITY * history];
+    }
+    
+    /**
+     * Позиция игрока, полученная в момент time; первая позиция добавляет игрока
+     */
+    void update(int id, long time, int x, int y, Direction direction) {
+        int slot = indexOf(id);
+        if (slot < 0) {
+            slot = add(id);
+        } else {
+            int last = slot * history + newest[slot];
+            if (cellX[last] == x && cellY[last] == y && directions[last] == direction) {
+                return;
+            }
+            // Позиции из разных тиков одного кадра не должны идти назад во времени
+            time = Math.max(time, times[last]);
+        }
+        
+        int index = (newest[slot] + 1) % history;
+        int at = slot * history + index;
+        times[at] = time;
+        cellX[at] = x;
+        cellY[at] = y;
+        directions[at] = direction;
+        newest[slot] = index;
+        stored[slot] = Math.min(stored[slot] + 1, history);
+        if (fresh[slot]) {
+            drawX[slot] = x * cellSize;
+            drawY[slot] = y * cellSize;
+            drawDirection[slot] = direction;
+        }
+    }
+    
+    /**
+     * Игрок ушёл: последний в списке занимает его место
+     */
+    void remove(int id) {
+        int slot = indexOf(id);
+        if (slot < 0) {
+            return;
+        }
+        int last = --size;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            System.arraycopy(times, last * history, times, slot * history, history);
+            System.arraycopy(cellX, last * history, cellX, slot * history, history);
+            System.arraycopy(cellY, last * history, cellY, slot * history, history);
+            System.arraycopy(directions, last * history, directions, slot * history, history);
+            newest[slot] = newest[last];
+            stored[slot] = stored[last];
+            drawX[slot] = drawX[last];
+            drawY[slot] = drawY[last];
+            drawDirection[slot] = drawDirection[last];
+            previousX[slot] = previousX[last];
+            previousY[slot] = previousY[last];
+            changed[slot] = changed[last];
+            fresh[slot] = fresh[last];
+        }
+        Arrays.fill(directions, last * history, (last + 1) * history, null);
+        drawDirection[last] = null;
+    }
+    
+    void clear() {
+        Arrays.fill(directions, 0, size * history, null);
+        Arrays.fill(drawDirection, 0, size, null);
+        size = 0;
+    }
+    
+    /**
+     * Положения игроков для кадра в момент now
+     * @return есть ли игроки, ещё не дошедшие до последней полученной позиции
+     */
+    boolean advance(long now) {
+        long renderTime = now - renderDelay;
+        boolean moving = false;
+        for (int slot = 0; slot < size; slot++) {
+            int base = slot * history;
+            int to = newest[slot];
+            int from = -1;
+            // Ищем пару соседних позиций вокруг renderTime, начиная с последней
+            for (int k = 1; k < stored[slot] && times[base + to] > renderTime; k++) {
+                from = to;
+                to = (to - 1 + history) % history;
+            }
+            int at = base + to;
+            int x = cellX[at] * cellSize;
+            int y = cellY[at] * cellSize;
+            Direction direction = directions[at];
+            if (from >= 0 && times[at] <= renderTime) {
+                // Между to и from: к from игрок шёл последний шаг перед её приходом
+                int next = base + from;
+                int dx = cellX[next] - cellX[at];
+                int dy = cellY[next] - cellY[at];
+                long start = Math.max(times[at], times[next] - stepMillis);
+                if (renderTime >= start && Math.abs(dx) + Math.abs(dy) == 1) {
+                    long span = Math.max(1, times[next] - start);
+                    long passed = renderTime - start;
+                    x += (int) (dx * cellSize * passed / span);
+                    y += (int) (dy * cellSize * passed / span);
+                    direction = directions[next];
+                }
+            }
+            if (times[base + newest[slot]] > renderTime) {
+                moving = true;
+            }
+            
+            changed[slot] = fresh[slot] || x != drawX[slot] || y != drawY[slot] || direction != drawDirection[slot];
+            previousX[slot] = fresh[slot] ? x : drawX[slot];
+            previousY[slot] = fresh[slot] ? y : drawY[slot];
+            drawX[slot] = x;
+            drawY[slot] = y;
+            drawDirection[slot] = direction;
+            fresh[slot] = false;
+        }
+        return moving;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int indexOf(int id) {
+        for (int slot = 0; slot < size; slot++) {
+            if (ids[slot] == id) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    int getId(int slot) {
+        return ids[slot];
+    }
+    
+    /**
+     * Положение на последнем кадре в пикселях от угла лабиринта
+     */
+    int getDrawX(int slot) {
+        return drawX[slot];
+    }
+    
+    int getDrawY(int slot) {
+        return drawY[slot];
+    }
+    
+    Direction getDrawDirection(int slot) {
+        return drawDirection[slot];
+    }
+    
+    /**
+     * Положение на кадре перед последним advance - его область нужно стереть
+     */
+    int getPreviousX(int slot) {
+        return previousX[slot];
+    }
+    
+    int getPreviousY(int slot) {
+        return previousY[slot];
+    }
+    
+    /**
+     * Сдвинулся ли игрок или появился на последнем advance
+     */
+    boolean isChanged(int slot) {
+        return changed[slot];
+    }
+    
+    private int add(int id) {
+        if (size == ids.length) {
+            grow();
+        }
+        int slot = size++;
+        ids[slot] = id;
+        // Первая позиция ляжет в индекс 0
+        newest[slot] = history - 1;
+        stored[slot] = 0;
+        changed[slot] = false;
+        fresh[slot] = true;
+        return slot;
+    }
+    
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        times = Arrays.copyOf(times, capacity * history);
+        cellX = Arrays.copyOf(cellX, capacity * history);
+        cellY = Arrays.copyOf(cellY, capacity * history);
+        directions = Arrays.copyOf(directions, capacity * history);
+        newest = Arrays.copyOf(newest, capacity);
+        stored = Arrays.copyOf(stored, capacity);
+        drawX = Arrays.copyOf(drawX, capacity);
+        drawY = Arrays.copyOf(drawY, capacity);
+        drawDirection = Arrays.copyOf(drawDirection, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        changed = Arrays.copyOf(changed, capacity);
+        fresh = Arrays.copyOf(fresh, capacity);
+    }
+}
@@ -0,0 +1,84 @@
+package game.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Потоки для блокирующих циклов чтения соединений (ClientHandler, GameClient)
+ * Виртуальные потоки (Java 21+) берутся через reflection, чтобы код собирался и работал на Java 8:
+ * на старой JVM virtual() недоступен, и вызывающий переходит на обычные потоки
+ */
+public final class ConnectionThreads {
+    // Thread.ofVirtual() и Thread.Builder.factory(); null, если виртуальных потоков нет
+    private static final Method OF_VIRTUAL;
+    private static final Method FACTORY;
+    
+    static {
+        Method ofVirtual = null;
+        Method factory = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            // На Java 19-20 без --enable-preview методы есть, но бросают UnsupportedOperationException
+            factory.invoke(ofVirtual.invoke(null));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            ofVirtual = null;
+            factory = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        FACTORY = factory;
+    }
+    
+    private ConnectionThreads() {
+    }
+    
+    /**
+     * Есть ли в этой JVM виртуальные потоки
+     */
+    public static boolean isVirtualAvailable() {
+        return OF_VIRTUAL != null;
+    }
+    
+    /**
+     * Фабрика виртуальных потоков
+     * @throws UnsupportedOperationException если JVM их не поддерживает
+     */
+    public static ThreadFactory virtual() {
+        if (!isVirtualAvailable()) {
+            throw new UnsupportedOperationException("Виртуальные потоки недоступны в Java " + System.getProperty("java.version"));
+        }
+        try {
+            return (ThreadFactory) FACTORY.invoke(OF_VIRTUAL.invoke(null));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Не удалось создать фабрику виртуальных потоков", e);
+        }
+    }
+    
+    /**
+     * Фабрика обычных потоков - по одному на соединение, как раньше
+     */
+    public static ThreadFactory platform(boolean daemon) {
+        return runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+    
+    /**
+     * Виртуальные потоки, если они нужны и есть, иначе обычные (с предупреждением)
+     */
+    public static ThreadFactory select(boolean preferVirtual, boolean daemon) {
+        if (!preferVirtual) {
+            return platform(daemon);
+        }
+        if (!isVirtualAvailable()) {
+            System.err.println("Виртуальные потоки недоступны в Java " + System.getProperty("java.version")
+                + " (нужна 21+), используются обычные потоки");
+            return platform(daemon);
+        }
+        // Виртуальные потоки всегда демоны
+        return virtual();
+    }
+}
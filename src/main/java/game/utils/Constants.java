@@ -14,6 +14,33 @@ public class Constants {
     // Сетевые настройки
     public static final int DEFAULT_PORT = 12345;
     
+    // Количество игроков в комнате (партия стартует, когда комната заполнена)
+    public static final int ROOM_CAPACITY = 2;
+    
+    // Частота симуляции комнат, тиков в секунду
+    public static final int TICK_RATE = 20;
+    
+    // Ограничение ходов игрока на сервере: в среднем ходов в секунду, подряд после паузы
+    // и сколько ходов ждут своей очереди, прежде чем лишние начнут отбрасываться
+    public static final int MOVES_PER_SECOND = 20;
+    public static final int MOVE_BURST = 3;
+    public static final int INPUT_QUEUE_SIZE = 8;
+    
+    // Сколько последних снимков состояния хранят сервер и клиент для дельта-обновлений
+    public static final int SNAPSHOT_HISTORY = 32;
+    
+    // Сколько неподтверждённых сервером ходов клиент с предсказанием хранит для повтора
+    public static final int PREDICTED_MOVES = 64;
+    
+    // Другие игроки рисуются с задержкой в два тика между позициями из кольца последних REMOTE_STATES
+    public static final int REMOTE_RENDER_DELAY_MS = 2 * 1000 / TICK_RATE;
+    public static final int REMOTE_STATES = 8;
+    
+    // Сколько готовых лабиринтов хранит MazeCache (карта 1000x1000 - около 125 КБ)
+    public static final int MAZE_CACHE_SIZE = 16;
+    // Сколько байт битовых карт стен хранит MazeCache всего; карта больше лимита не кэшируется
+    public static final long MAZE_CACHE_BYTES = 32L << 20;
+    
     // Размеры окна
     public static final int WINDOW_WIDTH = 1000;
     public static final int WINDOW_HEIGHT = 700;